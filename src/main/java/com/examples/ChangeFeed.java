@@ -0,0 +1,494 @@
+package com.examples;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Feeds the changes of a container to any number of subscribers as they happen.
+ * <p>
+ * Every change is encoded once, when the first subscriber sends it, and the same bytes are sent to every subscriber.
+ * The subscribers do not have a thread each, they get a bounded queue and a shared executor sends the queued events,
+ * a subscriber at a time and a batch of events at a time. The container tells its listeners while a change is
+ * applied, so handing a change to the subscribers only queues it.
+ * <p>
+ * A subscriber that falls behind until its queue is full gets the queued changes of the same key merged into one
+ * change, from the representation it last got to the current one, and changes that brought a representation back to
+ * where it was are left out. If the merged changes still do not fit in the queue, the subscriber is disconnected, it
+ * can resume from the last change it got.
+ * <p>
+ * A subscriber resuming from a version is sent the changes since that version as told by
+ * {@link RepresentationContainer#changesSince(int)} before the changes that happen after, if the container no longer
+ * knows the changes since the version, the subscriber is told to resync and sent every representation as added.
+ * The events of the last changes sent are kept, so subscribers resuming or resyncing from the same version share
+ * the events, and their encoding, with each other and with the subscribers that got the changes as they happened.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of representation
+ */
+public class ChangeFeed<K, V> implements RepresentationContainer.Listener<K, V> {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeFeed.class.getName());
+    private static final int BATCH_SIZE = 64;
+    private static final int SHARED_EVENTS = 4096;
+
+    private final RepresentationContainer<K, V> container;
+    private final Encoder<K, V> encoder;
+    private final Executor writers;
+    private final int queueSize;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<EventId, Event> shared = new LinkedHashMap<EventId, Event>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EventId, Event> eldest) {
+            return size() > SHARED_EVENTS;
+        }
+    };
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private volatile boolean open;
+
+    /**
+     * @param container the container whose changes are fed
+     * @param encoder the encoding of the changes into the events sent
+     * @param writers the executor sending the events to the subscribers
+     * @param queueSize the number of events queued for a subscriber at most
+     */
+    public ChangeFeed(RepresentationContainer<K, V> container, Encoder<K, V> encoder, Executor writers, int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("a subscriber must be able to queue at least one event");
+        }
+        this.container = Objects.requireNonNull(container);
+        this.encoder = Objects.requireNonNull(encoder);
+        this.writers = Objects.requireNonNull(writers);
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * starts following the changes of the container
+     */
+    public void open() {
+        container.addListener(this);
+        open = true;
+    }
+
+    /**
+     * stops following the changes of the container and disconnects every subscriber
+     */
+    public void close() {
+        open = false;
+        container.removeListener(this);
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        synchronized (shared) {
+            shared.clear();
+        }
+    }
+
+    /**
+     * subscribes to the changes from now on
+     *
+     * @param sink where the events are sent to
+     * @return the subscription
+     */
+    public Subscription subscribe(Sink sink) {
+        Subscription subscription = register(sink);
+        subscription.start(null);
+        return subscription;
+    }
+
+    /**
+     * subscribes to the changes since a version, as when resuming after a disconnect
+     *
+     * @param sink where the events are sent to
+     * @param since the version of the last change the subscriber got
+     * @return the subscription
+     */
+    public Subscription subscribe(Sink sink, int since) {
+        Subscription subscription = register(sink);
+        subscription.start(container.changesSince(since));
+        return subscription;
+    }
+
+    /**
+     * sends an event to the subscribers with nothing queued, so connections closed by the clients are noticed
+     *
+     * @param event the encoded event, e.g. a comment
+     */
+    public void heartbeat(byte[] event) {
+        Event heartbeat = new Event(event);
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeat(heartbeat);
+        }
+    }
+
+    @Override
+    public void changed(K key, V previous, V current) {
+        changed(container.getVersion(), key, previous, current);
+    }
+
+    @Override
+    public void changed(int version, K key, V previous, V current) {
+        if (!open || subscriptions.isEmpty()) {
+            return;
+        }
+        Event event = share(version, key, previous, current);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * @return the number of subscribers connected
+     */
+    public int getSubscribers() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return the number of changes encoded, each once however many subscribers it is sent to
+     */
+    public long getEncoded() {
+        return encoded.sum();
+    }
+
+    /**
+     * @return the number of queued changes merged into others or left out as a subscriber fell behind
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of subscribers disconnected because they fell too far behind
+     */
+    public long getDisconnected() {
+        return disconnected.sum();
+    }
+
+    /**
+     * the event of a change, the same one for every subscriber sent the change from the same representations
+     */
+    private Event share(int version, K key, V previous, V current) {
+        EventId id = new EventId(version, key);
+        synchronized (shared) {
+            Event event = shared.get(id);
+            if (event == null || event.previous != previous || event.current != current) {
+                event = new Event(version, key, previous, current);
+                shared.put(id, event);
+            }
+            return event;
+        }
+    }
+
+    /**
+     * the event telling the subscribers to resync from a version, encoded once for all of them
+     */
+    private Event resync(int version) {
+        synchronized (shared) {
+            return shared.computeIfAbsent(new EventId(version, null), id -> new Event(encoder.resync(version)));
+        }
+    }
+
+    private Subscription register(Sink sink) {
+        Subscription subscription = new Subscription(Objects.requireNonNull(sink));
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Encodes the changes into the events sent to the subscribers.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of representation
+     */
+    public interface Encoder<K, V> {
+
+        /**
+         * @param version the version of the container the change was made in
+         * @param key the identifying key for the representation
+         * @param previous the representation before the change or null if it was added
+         * @param current the representation after the change or null if it was removed
+         * @return the encoded event
+         */
+        byte[] change(int version, K key, V previous, V current);
+
+        /**
+         * @param version the version of the container every representation is sent as added from
+         * @return the encoded event telling the subscriber to drop what it has
+         */
+        byte[] resync(int version);
+    }
+
+    /**
+     * Where the events of a subscriber are sent to, an event at a time and never concurrently.
+     */
+    public interface Sink {
+
+        /**
+         * @param event the encoded event, shared and not to be modified
+         * @throws IOException if the event could not be sent, the subscriber is disconnected
+         */
+        void send(byte[] event) throws IOException;
+
+        /**
+         * the subscriber is disconnected, no more events are sent
+         */
+        void close();
+    }
+
+    /**
+     * A subscriber of the changes.
+     */
+    public final class Subscription {
+        private final Sink sink;
+        private final Deque<Event> queue = new ArrayDeque<>();
+        private Iterator<RepresentationContainer.Change<K, V>> backlog = Collections.emptyIterator();
+        private Event resync;
+        private boolean resuming = true;
+        private boolean draining;
+        private boolean cancelled;
+        private boolean closed;
+
+        private Subscription(Sink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * disconnects the subscriber, the events queued are dropped
+         */
+        public synchronized void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                queue.clear();
+                schedule();
+            }
+        }
+
+        /**
+         * @return the number of events queued and not yet sent
+         */
+        public synchronized int getQueued() {
+            return queue.size();
+        }
+
+        private synchronized void start(RepresentationContainer.Changes<K, V> changes) {
+            if (changes != null) {
+                // the changes told after changesSince returned are all newer, those told before may be in both
+                int version = changes.getVersion();
+                queue.removeIf(event -> event.version <= version);
+                backlog = changes.getChanges().iterator();
+                if (changes.isResync()) {
+                    resync = resync(changes.getVersion());
+                }
+            }
+            resuming = false;
+            if (cancelled || resync != null || backlog.hasNext() || !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private synchronized void offer(Event event) {
+            if (cancelled) {
+                return;
+            }
+            if (queue.size() < queueSize) {
+                queue.addLast(event);
+            } else if (!coalesce(event)) {
+                disconnected.increment();
+                LOGGER.log(Level.INFO, "Disconnected a subscriber {0} changes behind", queue.size());
+                cancel();
+                return;
+            }
+            schedule();
+        }
+
+        private synchronized void heartbeat(Event heartbeat) {
+            if (!cancelled && !resuming && !draining && queue.isEmpty()) {
+                queue.addLast(heartbeat);
+                schedule();
+            }
+        }
+
+        /**
+         * merges the queued changes and the one offered per key
+         *
+         * @return true if the merged changes fit in the queue
+         */
+        private boolean coalesce(Event offered) {
+            Map<K, Event> merged = new LinkedHashMap<>();
+            queue.addLast(offered);
+            for (Event event : queue) {
+                if (event.key != null) {
+                    merged.merge(event.key, event, (earlier, later) -> new Event(later.version, later.key, earlier.previous, later.current));
+                }
+            }
+            List<Event> events = new ArrayList<>(merged.size());
+            for (Event event : merged.values()) {
+                if (!Objects.equals(event.previous, event.current)) {
+                    events.add(event);
+                }
+            }
+            events.sort(Comparator.comparingInt(event -> event.version));
+            coalesced.add(queue.size() - events.size());
+            queue.clear();
+            queue.addAll(events);
+            return queue.size() <= queueSize;
+        }
+
+        private void schedule() {
+            if (draining || resuming) {
+                return;
+            }
+            draining = true;
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException ree) {
+                LOGGER.log(Level.WARNING, "Could not send the events of a subscriber", ree);
+                draining = false;
+                cancelled = true;
+                queue.clear();
+                closeSink();
+            }
+        }
+
+        private void drain() {
+            for (int sent = 0; sent < BATCH_SIZE; sent++) {
+                Event next;
+                synchronized (this) {
+                    if (cancelled) {
+                        draining = false;
+                        closeSink();
+                        return;
+                    }
+                    next = next();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    sink.send(next.bytes());
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Could not send an event, the subscriber is disconnected", e);
+                    synchronized (this) {
+                        cancelled = true;
+                        queue.clear();
+                        draining = false;
+                        closeSink();
+                    }
+                    return;
+                }
+            }
+            synchronized (this) {
+                draining = false;
+                schedule();
+            }
+        }
+
+        private Event next() {
+            if (resync != null) {
+                Event event = resync;
+                resync = null;
+                return event;
+            }
+            if (backlog.hasNext()) {
+                RepresentationContainer.Change<K, V> change = backlog.next();
+                return share(change.getVersion(), change.getKey(), change.getPrevious(), change.getCurrent());
+            }
+            return queue.pollFirst();
+        }
+
+        private void closeSink() {
+            subscriptions.remove(this);
+            if (!closed) {
+                closed = true;
+                sink.close();
+            }
+        }
+    }
+
+    /**
+     * Identifies the event of a change by the version and key it was made in, resyncs have no key.
+     */
+    private static final class EventId {
+        private final int version;
+        private final Object key;
+
+        private EventId(int version, Object key) {
+            this.version = version;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EventId)) {
+                return false;
+            }
+            EventId other = (EventId) o;
+            return version == other.version && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * version + Objects.hashCode(key);
+        }
+    }
+
+    /**
+     * A change as sent to the subscribers, encoded once when first sent.
+     */
+    private final class Event {
+        private final int version;
+        private final K key;
+        private final V previous;
+        private final V current;
+        private volatile byte[] bytes;
+
+        private Event(int version, K key, V previous, V current) {
+            this.version = version;
+            this.key = key;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        private Event(byte[] bytes) {
+            this(0, null, null, null);
+            this.bytes = bytes;
+        }
+
+        private byte[] bytes() {
+            byte[] encoding = bytes;
+            if (encoding == null) {
+                synchronized (this) {
+                    encoding = bytes;
+                    if (encoding == null) {
+                        encoding = encoder.change(version, key, previous, current);
+                        encoded.increment();
+                        bytes = encoding;
+                    }
+                }
+            }
+            return encoding;
+        }
+    }
+}
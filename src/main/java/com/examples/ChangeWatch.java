@@ -0,0 +1,94 @@
+package com.examples;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets callers wait for the representation under a key to change, without a thread waiting.
+ * <p>
+ * A caller gets a future for the representation it has, completed with the representation replacing it, or null if
+ * it is removed. The container tells its listeners while a change is applied, so the futures are completed on another
+ * thread. A caller no longer waiting cancels its future, which is then dropped.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of representation
+ */
+public class ChangeWatch<K, V> implements RepresentationContainer.Listener<K, V> {
+
+    private final RepresentationContainer<K, V> container;
+    private final Map<K, Set<CompletableFuture<V>>> watches = new ConcurrentHashMap<>();
+    private final LongAdder changed = new LongAdder();
+
+    /**
+     * @param container the container whose representations are watched, the watch is to be registered as its listener
+     */
+    public ChangeWatch(RepresentationContainer<K, V> container) {
+        this.container = Objects.requireNonNull(container);
+    }
+
+    /**
+     * waits for the representation under a key to change
+     *
+     * @param key the identifying key for the representation
+     * @param seen the representation the caller has, null if it has none
+     * @return the representation after the change or null if it was removed, at once if it differs from the one seen
+     */
+    public CompletableFuture<V> next(K key, V seen) {
+        CompletableFuture<V> next = new CompletableFuture<>();
+        // added within compute, so a drop emptying the set at the same time cannot remove it with the future in it
+        watches.compute(key, (k, waiting) -> {
+            if (waiting == null) {
+                waiting = ConcurrentHashMap.newKeySet();
+            }
+            waiting.add(next);
+            return waiting;
+        });
+        next.whenComplete((representation, failure) -> drop(key, next));
+        // a change made before the future was added is not told to it
+        V current = container.get(key);
+        if (!Objects.equals(current, seen)) {
+            next.completeAsync(() -> current);
+        }
+        return next;
+    }
+
+    @Override
+    public void changed(K key, V previous, V current) {
+        Set<CompletableFuture<V>> waiting = watches.remove(key);
+        if (waiting != null) {
+            for (CompletableFuture<V> next : waiting) {
+                changed.increment();
+                next.completeAsync(() -> current);
+            }
+        }
+    }
+
+    /**
+     * @return the number of callers waiting for a change
+     */
+    public int getWaiting() {
+        int waiting = 0;
+        for (Set<CompletableFuture<V>> futures : watches.values()) {
+            waiting += futures.size();
+        }
+        return waiting;
+    }
+
+    /**
+     * @return the number of callers told about a change
+     */
+    public long getChanged() {
+        return changed.sum();
+    }
+
+    private void drop(K key, CompletableFuture<V> next) {
+        watches.computeIfPresent(key, (k, waiting) -> {
+            waiting.remove(next);
+            return waiting.isEmpty() ? null : waiting;
+        });
+    }
+}
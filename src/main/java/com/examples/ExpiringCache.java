@@ -0,0 +1,103 @@
+package com.examples;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache bounded both in size and in time.
+ * <p>
+ * Every value lives for the same time, so the values expire in the order they were put in the cache. The values
+ * are kept in that order, expired values are evicted from the oldest end when the cache is used and the oldest
+ * value is evicted when the cache is full, which makes every eviction a constant time operation.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the cached value
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Expiring<V>> values = new LinkedHashMap<>();
+    private final int maxEntries;
+    private final long timeToLive;
+    private final LongSupplier clock;
+    private long evictions;
+
+    /**
+     * @param maxEntries the maximum number of values in the cache
+     * @param timeToLive the time a value is kept in the cache
+     */
+    public ExpiringCache(int maxEntries, Duration timeToLive) {
+        this(maxEntries, timeToLive, System::nanoTime);
+    }
+
+    ExpiringCache(int maxEntries, Duration timeToLive, LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("the cache must be able to hold at least one value");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * retrieves the value for the key unless it has expired
+     *
+     * @param key the identifying key for the value
+     * @return the cached value or null
+     */
+    public synchronized V get(K key) {
+        evictExpired(clock.getAsLong());
+        Expiring<V> value = values.get(key);
+        return value == null ? null : value.value;
+    }
+
+    /**
+     * caches a value under the key, replacing and renewing a value already cached under the key
+     *
+     * @param key the identifying key for the value
+     * @param value the value to cache
+     */
+    public synchronized void put(K key, V value) {
+        long now = clock.getAsLong();
+        evictExpired(now);
+        values.remove(key);
+        values.put(key, new Expiring<>(value, now + timeToLive));
+        if (values.size() > maxEntries) {
+            Iterator<Expiring<V>> oldest = values.values().iterator();
+            oldest.next();
+            oldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        evictExpired(clock.getAsLong());
+        return values.size();
+    }
+
+    /**
+     * @return the number of values evicted before they expired because the cache was full
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Expiring<V>> oldest = values.values().iterator();
+        while (oldest.hasNext() && oldest.next().expires - now <= 0) {
+            oldest.remove();
+        }
+    }
+
+    private static final class Expiring<V> {
+        private final V value;
+        private final long expires;
+
+        private Expiring(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+}
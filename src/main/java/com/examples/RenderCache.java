@@ -0,0 +1,104 @@
+package com.examples;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the renderings of the representations in a container until the representations change.
+ * <p>
+ * The representations in a container are immutable and every change stores a new one, so a rendering is kept
+ * together with the representation it was made from and is only handed out for that very representation. Being
+ * registered as a listener on the container, the renderings of a representation are dropped as soon as it is
+ * replaced or removed, so nothing is kept for representations no longer stored. A rendering put after the change
+ * that drops it is never handed out, as it belongs to a representation that is no longer current.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of representation
+ * @param <R> the type of the rendering
+ */
+public class RenderCache<K, V, R> implements RepresentationContainer.Listener<K, V> {
+
+    private final Map<K, Renderings<V, R>> renderings = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * retrieves a rendering of the representation
+     *
+     * @param key the identifying key for the representation
+     * @param variant the kind of rendering, e.g. the version of the representation
+     * @param source the representation as it is stored now
+     * @return the rendering of exactly that representation or null if it was not rendered in that variant
+     */
+    public R get(K key, Object variant, V source) {
+        Renderings<V, R> cached = renderings.get(key);
+        R rendering = cached == null || cached.source != source ? null : cached.variants.get(variant);
+        if (rendering == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return rendering;
+    }
+
+    /**
+     * keeps a rendering of the representation until the representation changes
+     *
+     * @param key the identifying key for the representation
+     * @param variant the kind of rendering, e.g. the version of the representation
+     * @param source the representation the rendering was made from
+     * @param rendering the rendering
+     * @return the rendering
+     */
+    public R put(K key, Object variant, V source, R rendering) {
+        renderings.compute(key, (k, cached) -> cached != null && cached.source == source ? cached : new Renderings<>(source))
+                .variants.put(variant, rendering);
+        return rendering;
+    }
+
+    @Override
+    public void changed(K key, V previous, V current) {
+        if (renderings.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * @return the number of representations having renderings kept
+     */
+    public int size() {
+        return renderings.size();
+    }
+
+    /**
+     * @return the number of renderings handed out from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of renderings that were not in the cache
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of representations whose renderings were dropped because they changed
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private static final class Renderings<V, R> {
+        private final V source;
+        private final Map<Object, R> variants = new ConcurrentHashMap<>(4);
+
+        private Renderings(V source) {
+            this.source = source;
+        }
+    }
+}
@@ -1,21 +1,91 @@
 package com.examples;
 
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A container for immutable representations of a given type.
+ * <p>
+ * Reads are lock free, changes are applied one at a time and each change bumps the version of the container.
+ * Listeners are told about every change in the order the changes are applied.
+ * <p>
+ * The latest changes are kept in a bounded change log, so the changes since a recent version can be told without
+ * comparing the representations. Asking for the changes since a version older than the log retains gives the
+ * whole content of the container instead.
  *
  * @param <K> the type of the key
  * @param <V> the type of representation
  */
 public class RepresentationContainer<K, V> {
 
+    /**
+     * The number of changes kept in the change log by default.
+     */
+    public static final int DEFAULT_CHANGE_LOG_SIZE = 1024;
+
     private Map<K, V> representations = new ConcurrentHashMap<>();
-    private int chCode = 111;
+    private volatile int chCode = 111;
+    private final List<Listener<K, V>> listeners = new CopyOnWriteArrayList<>();
+    private final Deque<Change<K, V>> changeLog = new ArrayDeque<>();
+    private final int changeLogSize;
+    private int changeLogBase = chCode;
+
+    public RepresentationContainer() {
+        this(DEFAULT_CHANGE_LOG_SIZE);
+    }
+
+    /**
+     * @param changeLogSize the number of changes kept in the change log
+     */
+    public RepresentationContainer(int changeLogSize) {
+        if (changeLogSize < 1) {
+            throw new IllegalArgumentException("the change log must be able to hold at least one change");
+        }
+        this.changeLogSize = changeLogSize;
+    }
+
+    /**
+     * Is told about the changes of the representations in a container.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of representation
+     */
+    public interface Listener<K, V> {
+
+        /**
+         * a representation was added, replaced or removed
+         *
+         * @param key the identifying key for the representation
+         * @param previous the representation before the change or null if it was added
+         * @param current the representation after the change or null if it was removed
+         */
+        void changed(K key, V previous, V current);
+
+        /**
+         * a representation was added, replaced or removed in a version of the container
+         *
+         * @param version the version of the container the change was made in
+         * @param key the identifying key for the representation
+         * @param previous the representation before the change or null if it was added
+         * @param current the representation after the change or null if it was removed
+         */
+        default void changed(int version, K key, V previous, V current) {
+            changed(key, previous, current);
+        }
+    }
 
     /**
      * retrieves the value object V on the basis of the key K
@@ -33,18 +103,95 @@ public class RepresentationContainer<K, V> {
      * @param key the identifying key for a given representation
      * @param representation the representation object
      */
-    public void add(K key, V representation) {
-        if (representations.get(key) == null) {
+    public synchronized void add(K key, V representation) {
+        V previous = representations.put(key, representation);
+        if (!representation.equals(previous)) {
+            chCode++;
+            log(key, previous, representation);
+            notifyListeners(chCode, key, previous, representation);
+        }
+    }
+
+    /**
+     * adds all value objects V under their keys K as one change of the container, bumping its version once
+     *
+     * @param batch the representations to add, keyed by their identifying keys
+     * @return the representations replaced by the batch, keyed by their identifying keys
+     */
+    public synchronized Map<K, V> addAll(Map<K, V> batch) {
+        Map<K, V> replaced = new HashMap<>();
+        List<Map.Entry<K, V>> changed = new ArrayList<>();
+        for (Map.Entry<K, V> entry : batch.entrySet()) {
+            V previous = representations.put(entry.getKey(), entry.getValue());
+            if (previous != null) {
+                replaced.put(entry.getKey(), previous);
+            }
+            if (!entry.getValue().equals(previous)) {
+                changed.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), previous));
+            }
+        }
+        if (!changed.isEmpty()) {
+            // the whole batch is applied and the version bumped before anyone is told about it
             chCode++;
-        } else if (!representation.equals(representations.get(key))) {
+            for (Map.Entry<K, V> change : changed) {
+                log(change.getKey(), change.getValue(), batch.get(change.getKey()));
+            }
+            for (Map.Entry<K, V> change : changed) {
+                notifyListeners(chCode, change.getKey(), change.getValue(), batch.get(change.getKey()));
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * replaces the value object V under the key K if it is still the one the replacement was made from
+     * <p>
+     * The representations are immutable and every change stores a new one, so the representation read before
+     * the replacement was made identifies the version of the entry it was made from.
+     *
+     * @param key the identifying key for a given representation
+     * @param expected the representation the replacement was made from
+     * @param replacement the new representation
+     * @return true if the representation was replaced, false if the entry was changed or removed in between
+     */
+    public synchronized boolean replace(K key, V expected, V replacement) {
+        V previous = representations.get(key);
+        if (previous == null || previous != expected) {
+            return false;
+        }
+        representations.put(key, replacement);
+        if (!replacement.equals(previous)) {
             chCode++;
+            log(key, previous, replacement);
+            notifyListeners(chCode, key, previous, replacement);
         }
-        representations.put(key, representation);
+        return true;
     }
 
-    public void remove(K key) {
-        representations.remove(key);
+    public synchronized void remove(K key) {
+        V previous = representations.remove(key);
         chCode++;
+        if (previous != null) {
+            log(key, previous, null);
+            notifyListeners(chCode, key, previous, null);
+        }
+    }
+
+    /**
+     * registers a listener for the changes of the container, it is first told about every representation already
+     * in the container as an added representation
+     *
+     * @param listener the listener to register
+     */
+    public synchronized void addListener(Listener<K, V> listener) {
+        for (Map.Entry<K, V> entry : representations.entrySet()) {
+            listener.changed(chCode, entry.getKey(), null, entry.getValue());
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener<K, V> listener) {
+        listeners.remove(listener);
     }
 
     public Collection<V> values() {
@@ -55,14 +202,87 @@ public class RepresentationContainer<K, V> {
         return Collections.unmodifiableSet(representations.entrySet());
     }
 
-    public void alterchCode() {
-        chCode++;
+    /**
+     * takes a consistent snapshot of the container, no change is applied while the snapshot is taken
+     * <p>
+     * Only the references to the representations are copied, the representations are immutable and shared.
+     *
+     * @return the keys and representations in the container at a single version, and that version
+     */
+    public synchronized Snapshot<K, V> snapshot() {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(representations.size());
+        for (Map.Entry<K, V> entry : representations.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+        }
+        return new Snapshot<>(chCode, entries);
     }
 
     public String getChCode() {
         return Integer.toHexString(chCode);
     }
 
+    /**
+     * @return the version of the container, bumped by every change
+     */
+    public int getVersion() {
+        return chCode;
+    }
+
+    /**
+     * tells the changes of the container since a version, taken as one consistent view of the container
+     * <p>
+     * The changes of a representation are merged into a single change from the representation at the version asked
+     * for to the current one, and representations that are back where they were are left out. If the change log does
+     * not reach back to the version, or the version is not one of this container, every representation in the
+     * container is told as added and the changes are marked as a resync.
+     *
+     * @param since the version the changes are wanted from
+     * @return the changes since the version up to the current version
+     */
+    public synchronized Changes<K, V> changesSince(int since) {
+        if (since < changeLogBase || since > chCode) {
+            List<Change<K, V>> all = new ArrayList<>(representations.size());
+            for (Map.Entry<K, V> entry : representations.entrySet()) {
+                all.add(new Change<>(chCode, entry.getKey(), null, entry.getValue()));
+            }
+            return new Changes<>(since, chCode, true, all);
+        }
+        Map<K, Change<K, V>> merged = new LinkedHashMap<>();
+        Iterator<Change<K, V>> newestFirst = changeLog.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Change<K, V> change = newestFirst.next();
+            if (change.version <= since) {
+                break;
+            }
+            merged.merge(change.key, change, (later, earlier) -> new Change<>(later.version, later.key, earlier.previous, later.current));
+        }
+        List<Change<K, V>> changes = new ArrayList<>(merged.size());
+        for (Change<K, V> change : merged.values()) {
+            if (!Objects.equals(change.previous, change.current)) {
+                changes.add(change);
+            }
+        }
+        Collections.reverse(changes);
+        return new Changes<>(since, chCode, false, changes);
+    }
+
+    private void log(K key, V previous, V current) {
+        log(new Change<>(chCode, key, previous, current));
+    }
+
+    private void log(Change<K, V> change) {
+        if (changeLog.size() == changeLogSize) {
+            changeLogBase = changeLog.removeFirst().version;
+        }
+        changeLog.addLast(change);
+    }
+
+    private void notifyListeners(int version, K key, V previous, V current) {
+        for (Listener<K, V> listener : listeners) {
+            listener.changed(version, key, previous, current);
+        }
+    }
+
     public int size() {
         return representations.size();
     }
@@ -70,4 +290,128 @@ public class RepresentationContainer<K, V> {
     public boolean isEmpty() {
         return representations.isEmpty();
     }
+
+    /**
+     * The keys and representations of a container at a single version.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of representation
+     */
+    public static final class Snapshot<K, V> {
+        private final int version;
+        private final List<Map.Entry<K, V>> entries;
+
+        private Snapshot(int version, List<Map.Entry<K, V>> entries) {
+            this.version = version;
+            this.entries = Collections.unmodifiableList(entries);
+        }
+
+        /**
+         * @return the version of the container the snapshot was taken at
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        public List<Map.Entry<K, V>> getEntries() {
+            return entries;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * A change of a single representation.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of representation
+     */
+    public static final class Change<K, V> {
+        private final int version;
+        private final K key;
+        private final V previous;
+        private final V current;
+
+        private Change(int version, K key, V previous, V current) {
+            this.version = version;
+            this.key = key;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /**
+         * @return the version of the container the change was made in
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * @return the representation before the change or null if it was added
+         */
+        public V getPrevious() {
+            return previous;
+        }
+
+        /**
+         * @return the representation after the change or null if it was removed
+         */
+        public V getCurrent() {
+            return current;
+        }
+    }
+
+    /**
+     * The changes of a container between two versions.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of representation
+     */
+    public static final class Changes<K, V> {
+        private final int since;
+        private final int version;
+        private final boolean resync;
+        private final List<Change<K, V>> changes;
+
+        private Changes(int since, int version, boolean resync, List<Change<K, V>> changes) {
+            this.since = since;
+            this.version = version;
+            this.resync = resync;
+            this.changes = Collections.unmodifiableList(changes);
+        }
+
+        /**
+         * @return the version the changes were asked from
+         */
+        public int getSince() {
+            return since;
+        }
+
+        /**
+         * @return the version of the container after the changes
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return true if the changes are not those since the version asked for, but every representation as added
+         */
+        public boolean isResync() {
+            return resync;
+        }
+
+        /**
+         * @return the changes in the order they were made, at most one per key
+         */
+        public List<Change<K, V>> getChanges() {
+            return changes;
+        }
+    }
 }
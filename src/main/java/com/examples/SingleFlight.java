@@ -0,0 +1,90 @@
+package com.examples;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent computations of the same value.
+ * <p>
+ * The first caller for a given key computes the value, callers arriving while that computation is in flight
+ * wait for and share its result instead of computing it again. Nothing is retained once the computation is
+ * done, so this is not a cache but the thing that stands in front of one.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the computed value
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * computes the value for the key or waits for a computation of it already in flight
+     *
+     * @param key the identifying key for the computation
+     * @param computation the computation used if none is in flight for the key
+     * @return the computed value, shared with every concurrent caller using the same key
+     */
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+        computed.increment();
+        try {
+            V value = computation.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return the number of computations actually done
+     */
+    public long getComputed() {
+        return computed.sum();
+    }
+
+    /**
+     * @return the number of callers that shared the result of a computation in flight
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the share of callers served by another caller's computation, between 0 and 1
+     */
+    public double getCoalescingRatio() {
+        long shared = getCoalesced();
+        long total = shared + getComputed();
+        return total == 0 ? 0.0 : (double) shared / total;
+    }
+
+    private V await(CompletableFuture<V> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ce;
+        }
+    }
+}
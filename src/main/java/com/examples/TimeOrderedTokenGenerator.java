@@ -0,0 +1,62 @@
+package com.examples;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates time ordered ids in the layout of a version 7 UUID.
+ * <p>
+ * The id starts with the milliseconds since the epoch, followed by a sequence counting the ids made by a thread
+ * within the same millisecond and random bits from the random number generator of the thread. Every thread keeps
+ * its own clock and sequence, so no state is shared between threads and the ids of a thread are strictly ordered.
+ * The ids are unique but not unpredictable, use {@link TokenGenerator#secure()} where they must not be guessed.
+ */
+public class TimeOrderedTokenGenerator implements TokenGenerator {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_SEQUENCE = 0xfff;
+
+    private final ThreadLocal<Clock> clocks = ThreadLocal.withInitial(Clock::new);
+
+    @Override
+    public String next() {
+        Clock clock = clocks.get();
+        long now = System.currentTimeMillis();
+        if (now > clock.millis) {
+            clock.millis = now;
+            clock.sequence = 0;
+        } else if (++clock.sequence > MAX_SEQUENCE) {
+            clock.millis++;
+            clock.sequence = 0;
+        }
+        long random = ThreadLocalRandom.current().nextLong();
+        long high = (clock.millis << 16) | 0x7000L | clock.sequence;
+        long low = (random & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return format(high, low);
+    }
+
+    static String format(long high, long low) {
+        char[] id = new char[36];
+        hex(id, 0, high >>> 32, 8);
+        id[8] = '-';
+        hex(id, 9, high >>> 16, 4);
+        id[13] = '-';
+        hex(id, 14, high, 4);
+        id[18] = '-';
+        hex(id, 19, low >>> 48, 4);
+        id[23] = '-';
+        hex(id, 24, low, 12);
+        return new String(id);
+    }
+
+    private static void hex(char[] id, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            id[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private static final class Clock {
+        private long millis;
+        private int sequence;
+    }
+}
@@ -0,0 +1,30 @@
+package com.examples;
+
+import java.util.UUID;
+
+/**
+ * Generates the correlation ids handed to consumers that did not send one.
+ * <p>
+ * Every id is a 36 character UUID string, so ids from any generator can be sent back as an X-Log-Token.
+ */
+public interface TokenGenerator {
+
+    /**
+     * @return a new unique id
+     */
+    String next();
+
+    /**
+     * @return a generator of time ordered ids that never waits for other threads or for entropy
+     */
+    static TokenGenerator timeOrdered() {
+        return new TimeOrderedTokenGenerator();
+    }
+
+    /**
+     * @return a generator of random ids from the shared cryptographically strong random number generator
+     */
+    static TokenGenerator secure() {
+        return () -> UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,312 @@
+package com.examples.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import com.examples.client.ResponseCache.CachedResponse;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+
+/**
+ * A Jersey client connector answering GET requests from a {@link ResponseCache} before sending them with another
+ * connector.
+ * <p>
+ * A 200 response with an {@code ETag} or a {@code Cache-Control: max-age} is kept, unless it is {@code no-store}. It
+ * answers the same request at once while it is fresh, for max-age seconds less its {@code Age}. Once stale, the request
+ * is sent with the {@code If-None-Match} of the response kept, and a 304 Not Modified is answered with the response
+ * kept, freshened by the headers of the 304. A response of {@code no-cache} is revalidated every time.
+ * <p>
+ * The responses are kept per URI and {@code Accept} and {@code Accept-Language}, the headers the representations are
+ * negotiated by, and a response varying by other headers is not kept. A request with conditions of its own or with
+ * {@code Cache-Control: no-store} is sent as it is, one with {@code no-cache} or {@code max-age=0} is revalidated. A
+ * successful PUT, PATCH, POST or DELETE drops the responses kept for its URI. A response larger than the cache is
+ * streamed to the caller and not kept, and no more of it is read into memory than the cache could hold.
+ */
+public class CachingConnector implements Connector {
+
+    /**
+     * The request headers the responses are kept by.
+     */
+    private static final Set<String> KEY_HEADERS = new HashSet<>(Arrays.asList("accept", "accept-language"));
+
+    /**
+     * The request headers making a request the caller validates itself.
+     */
+    private static final List<String> CONDITIONAL_HEADERS = Arrays.asList(
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_UNMODIFIED_SINCE, "Range");
+
+    /**
+     * The methods not changing the resource, all others drop the responses kept for it.
+     */
+    private static final Set<String> SAFE_METHODS = new HashSet<>(Arrays.asList(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, "TRACE"));
+
+    /**
+     * The headers of a 304 that do not describe the response kept.
+     */
+    private static final Set<String> HOP_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "keep-alive", "transfer-encoding"));
+
+    private final Connector connector;
+    private final ResponseCache cache;
+
+    /**
+     * @param connector the connector sending the requests not answered from the cache
+     * @param cache the responses kept
+     */
+    public CachingConnector(Connector connector, ResponseCache cache) {
+        this.connector = connector;
+        this.cache = cache;
+    }
+
+    @Override
+    public ClientResponse apply(ClientRequest request) {
+        if (!isCacheable(request)) {
+            return invalidated(request, connector.apply(request));
+        }
+        String key = keyOf(request);
+        CachedResponse cached = cache.get(key);
+        if (cached != null && isFresh(request, cached)) {
+            cache.hit();
+            return toClientResponse(request, cached);
+        }
+        revalidate(request, cached);
+        return stored(request, key, cached, connector.apply(request));
+    }
+
+    @Override
+    public Future<?> apply(ClientRequest request, AsyncConnectorCallback callback) {
+        if (!isCacheable(request)) {
+            return connector.apply(request, new AsyncConnectorCallback() {
+                @Override
+                public void response(ClientResponse response) {
+                    callback.response(invalidated(request, response));
+                }
+
+                @Override
+                public void failure(Throwable failure) {
+                    callback.failure(failure);
+                }
+            });
+        }
+        String key = keyOf(request);
+        CachedResponse cached = cache.get(key);
+        if (cached != null && isFresh(request, cached)) {
+            cache.hit();
+            callback.response(toClientResponse(request, cached));
+            return CompletableFuture.completedFuture(null);
+        }
+        revalidate(request, cached);
+        return connector.apply(request, new AsyncConnectorCallback() {
+            @Override
+            public void response(ClientResponse response) {
+                ClientResponse answer;
+                try {
+                    answer = stored(request, key, cached, response);
+                } catch (ProcessingException e) {
+                    callback.failure(e);
+                    return;
+                }
+                callback.response(answer);
+            }
+
+            @Override
+            public void failure(Throwable failure) {
+                callback.failure(failure);
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return connector.getName() + " with a response cache";
+    }
+
+    @Override
+    public void close() {
+        connector.close();
+    }
+
+    private static boolean isCacheable(ClientRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return false;
+        }
+        for (String header : CONDITIONAL_HEADERS) {
+            if (request.getHeaderString(header) != null) {
+                return false;
+            }
+        }
+        return !directives(request.getHeaderString(HttpHeaders.CACHE_CONTROL)).containsKey("no-store");
+    }
+
+    private static String keyOf(ClientRequest request) {
+        return request.getUri() + "\n" + request.getHeaderString(HttpHeaders.ACCEPT)
+                + "\n" + request.getHeaderString(HttpHeaders.ACCEPT_LANGUAGE);
+    }
+
+    private boolean isFresh(ClientRequest request, CachedResponse cached) {
+        Map<String, String> directives = directives(request.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        return !directives.containsKey("no-cache") && !"0".equals(directives.get("max-age")) && cached.isFresh(cache.now());
+    }
+
+    private void revalidate(ClientRequest request, CachedResponse cached) {
+        if (cached != null && cached.eTag != null) {
+            cache.revalidation();
+            request.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, cached.eTag);
+        } else {
+            cache.miss();
+        }
+    }
+
+    private ClientResponse invalidated(ClientRequest request, ClientResponse response) {
+        int status = response.getStatus();
+        if (status >= 200 && status < 400 && !SAFE_METHODS.contains(request.getMethod())) {
+            cache.invalidate(request.getUri());
+        }
+        return response;
+    }
+
+    private ClientResponse stored(ClientRequest request, String key, CachedResponse cached, ClientResponse response) {
+        if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() && cached != null) {
+            response.close();
+            Map<String, List<String>> headers = headers(cached.headers);
+            response.getHeaders().forEach((name, values) -> {
+                if (!HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+            CachedResponse freshened = cachedResponse(headers, cached.entity);
+            cache.put(key, freshened);
+            cache.notModified();
+            return toClientResponse(request, freshened);
+        }
+        if (response.getStatus() != Response.Status.OK.getStatusCode() || !isStorable(response)) {
+            cache.remove(key);
+            return response;
+        }
+        if (response.getLength() > cache.maxBytes()) {
+            cache.remove(key);
+            return response;
+        }
+        byte[] entity = readEntity(response, cache.maxBytes());
+        if (entity == null) {
+            cache.remove(key);
+            return response;
+        }
+        response.setEntityStream(new ByteArrayInputStream(entity));
+        cache.put(key, cachedResponse(headers(response.getHeaders()), entity));
+        return response;
+    }
+
+    private static boolean isStorable(ClientResponse response) {
+        Map<String, String> directives = directives(response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        if (directives.containsKey("no-store")) {
+            return false;
+        }
+        if (response.getHeaderString(HttpHeaders.ETAG) == null && !directives.containsKey("max-age")) {
+            return false;
+        }
+        String vary = response.getHeaderString(HttpHeaders.VARY);
+        if (vary != null) {
+            for (String header : vary.split(",")) {
+                if (!header.trim().isEmpty() && !KEY_HEADERS.contains(header.trim().toLowerCase(Locale.ROOT))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private CachedResponse cachedResponse(Map<String, List<String>> headers, byte[] entity) {
+        Map<String, String> directives = directives(join(headers, HttpHeaders.CACHE_CONTROL));
+        long lifetime = 0;
+        if (!directives.containsKey("no-cache")) {
+            lifetime = seconds(directives.get("max-age")) - seconds(join(headers, "Age"));
+        }
+        return new CachedResponse(headers, entity, join(headers, HttpHeaders.ETAG),
+                cache.now() + TimeUnit.SECONDS.toNanos(Math.max(lifetime, 0)));
+    }
+
+    private static ClientResponse toClientResponse(ClientRequest request, CachedResponse cached) {
+        ClientResponse response = new ClientResponse(Response.Status.OK, request);
+        cached.headers.forEach(response.getHeaders()::addAll);
+        response.setEntityStream(new ByteArrayInputStream(cached.entity));
+        return response;
+    }
+
+    /**
+     * @return the entity of the response, or null if it is larger than the limit, the response then streams the entity
+     * from the bytes read on
+     */
+    private static byte[] readEntity(ClientResponse response, long limit) {
+        InputStream entity = response.getEntityStream();
+        if (entity == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] read = entity.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+            if (read.length > limit) {
+                response.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(read), entity));
+                return null;
+            }
+            entity.close();
+            return read;
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        }
+    }
+
+    private static Map<String, List<String>> headers(Map<String, List<String>> headers) {
+        Map<String, List<String>> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.forEach((name, values) -> copy.put(name, List.copyOf(values)));
+        return copy;
+    }
+
+    private static String join(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : String.join(",", values);
+    }
+
+    private static Map<String, String> directives(String cacheControl) {
+        Map<String, String> directives = new LinkedHashMap<>();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                int equals = directive.indexOf('=');
+                String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+                directives.put(name, equals < 0 ? null : directive.substring(equals + 1).trim().replace("\"", ""));
+            }
+        }
+        return directives;
+    }
+
+    private static long seconds(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
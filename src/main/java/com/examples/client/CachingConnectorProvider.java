@@ -0,0 +1,50 @@
+package com.examples.client;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Configuration;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.client.spi.ConnectorProvider;
+
+/**
+ * Provides a {@link CachingConnector} keeping the responses in a {@link ResponseCache} in front of the connector of
+ * another provider.
+ * <p>
+ * {@code new ClientConfig().connectorProvider(new CachingConnectorProvider(new JdkHttpClientConnectorProvider(), cache))}
+ * gives a client answering repeated GET requests from the cache.
+ * <p>
+ * Given a metrics registry, the provider registers the gauges of the cache in it, so they are exposed with the
+ * metrics of the service using the client.
+ */
+public class CachingConnectorProvider implements ConnectorProvider {
+
+    private final ConnectorProvider provider;
+    private final ResponseCache cache;
+
+    /**
+     * @param provider the provider of the connector sending the requests not answered from the cache
+     * @param cache the responses kept, which may be shared with other clients
+     */
+    public CachingConnectorProvider(ConnectorProvider provider, ResponseCache cache) {
+        this.provider = provider;
+        this.cache = cache;
+    }
+
+    /**
+     * @param provider the provider of the connector sending the requests not answered from the cache
+     * @param cache the responses kept, which may be shared with other clients
+     * @param metrics the registry the gauges of the cache are registered in, e.g. the application registry of the
+     *                service using the client
+     * @param name the prefix of the names of the gauges, e.g. {@code greetings.client.cache}
+     */
+    public CachingConnectorProvider(ConnectorProvider provider, ResponseCache cache, MetricRegistry metrics, String name) {
+        this(provider, cache);
+        cache.registerMetrics(metrics, name);
+    }
+
+    @Override
+    public Connector getConnector(Client client, Configuration runtimeConfig) {
+        return new CachingConnector(provider.getConnector(client, runtimeConfig), cache);
+    }
+}
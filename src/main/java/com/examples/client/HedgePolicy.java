@@ -0,0 +1,173 @@
+package com.examples.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.core.UriBuilder;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+/**
+ * When and where a {@link HedgingConnector} sends a request again.
+ * <p>
+ * A GET still unanswered after a percentile of the recent response times, the 95th say, is sent again to the next
+ * replica and the first response wins, so only the slowest few requests are sent twice. Until enough response times
+ * are known no request is hedged. A GET failing to connect or answered with 503 Service Unavailable is retried on the
+ * next replica. Every hedge and retry takes a token from the {@link RetryBudget}, so slow or failing replicas are not
+ * sent more than a share of extra requests. A policy may be shared by the connectors of several clients of the same
+ * replicas.
+ */
+public class HedgePolicy {
+
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 16;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final List<URI> replicas;
+    private final double percentile;
+    private final long minDelay;
+    private final RetryBudget budget;
+    private final long[] latencies = new long[WINDOW];
+    private long samples;
+    private long delay = Long.MAX_VALUE;
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * @param replicas the base URIs of the replicas, e.g. {@code http://greetings-1:8080}, a request to one of them is
+     *                 hedged and retried on the next, a request to another server is sent to that server again
+     * @param percentile the percentile of the response times a request is hedged after, e.g. 95
+     * @param minDelay the time a request is hedged after at the earliest
+     * @param budget the budget of extra requests
+     */
+    public HedgePolicy(List<URI> replicas, double percentile, Duration minDelay, RetryBudget budget) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("the percentile must be above 0 and at most 100");
+        }
+        this.replicas = new ArrayList<>(replicas);
+        this.percentile = percentile;
+        this.minDelay = minDelay.toNanos();
+        this.budget = budget;
+    }
+
+    /**
+     * @return the budget of extra requests
+     */
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the time a request is hedged after in nanoseconds, or {@link Long#MAX_VALUE} until enough response
+     * times are known
+     */
+    public synchronized long getDelay() {
+        return delay;
+    }
+
+    /**
+     * @return the number of requests sent again as they were slow
+     */
+    public long getHedged() {
+        return hedged.sum();
+    }
+
+    /**
+     * @return the number of hedged requests answered first by the hedge
+     */
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * @return the number of requests sent again as they failed
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    /**
+     * Register the gauges of the policy and its budget in a metrics registry, unless gauges of that name are
+     * registered already.
+     *
+     * @param metrics the registry, e.g. the application registry of the service using the client
+     * @param name the prefix of the names of the gauges, e.g. {@code greetings.client.hedging}
+     */
+    public void registerMetrics(MetricRegistry metrics, String name) {
+        synchronized (HedgePolicy.class) {
+            if (metrics.getGauges().containsKey(name + ".hedged")) {
+                return;
+            }
+            metrics.register(new Metadata(name + ".hedged", "Hedged requests",
+                            "the number of slow requests sent again to another replica", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getHedged);
+            metrics.register(new Metadata(name + ".hedges-won", "Hedges won",
+                            "the number of hedged requests answered first by the hedge", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getHedgesWon);
+            metrics.register(new Metadata(name + ".retried", "Retried requests",
+                            "the number of failed requests sent again to another replica", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getRetried);
+            metrics.register(new Metadata(name + ".budget-refused", "Retry budget refused",
+                            "the number of hedges and retries not sent as the budget was spent", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) budget::getRefused);
+            metrics.register(new Metadata(name + ".delay", "Hedge delay",
+                            "the time a request is hedged after", MetricType.GAUGE, MetricUnits.NANOSECONDS),
+                    (Gauge<Long>) this::getDelay);
+        }
+    }
+
+    /**
+     * @return the number of times a request is sent at most
+     */
+    int maxAttempts() {
+        return Math.max(2, replicas.size());
+    }
+
+    /**
+     * @return the URI of the request on the replica following the one it was sent to
+     */
+    URI next(URI uri) {
+        for (int i = 0; i < replicas.size(); i++) {
+            URI replica = replicas.get(i);
+            if (replica.getHost().equalsIgnoreCase(uri.getHost()) && replica.getPort() == uri.getPort()) {
+                URI next = replicas.get((i + 1) % replicas.size());
+                return UriBuilder.fromUri(uri).scheme(next.getScheme()).host(next.getHost()).port(next.getPort()).build();
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * records the time a replica took to answer, the hedge delay is recomputed now and then from the recent times
+     */
+    synchronized void record(long latency) {
+        latencies[(int) (samples++ % WINDOW)] = latency;
+        if (samples >= MIN_SAMPLES && samples % RECOMPUTE_EVERY == 0) {
+            long[] recent = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+            Arrays.sort(recent);
+            int index = (int) Math.ceil(percentile / 100 * recent.length) - 1;
+            delay = Math.max(minDelay, recent[Math.max(0, index)]);
+        }
+    }
+
+    void hedged() {
+        hedged.increment();
+    }
+
+    void hedgeWon() {
+        hedgesWon.increment();
+    }
+
+    void retried() {
+        retried.increment();
+    }
+}
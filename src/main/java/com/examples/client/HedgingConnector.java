@@ -0,0 +1,295 @@
+package com.examples.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+
+/**
+ * A Jersey client connector hedging and retrying GET requests sent with another connector, as its
+ * {@link HedgePolicy} tells.
+ * <p>
+ * A request is sent, and sent again to the next replica if it is not answered within the hedge delay. The first
+ * response wins, the other attempts are cancelled and their responses closed if they arrive anyway. A request failing
+ * or answered with 503 Service Unavailable is sent to the next replica once no other attempt is left. The hedges and
+ * retries are sent only as long as the {@link RetryBudget} allows, otherwise the request is answered as the replica
+ * answered it. Requests with other methods or with an entity are sent as they are.
+ * <p>
+ * The attempts run in parallel only if the connector sends them without a thread waiting, as the
+ * {@link JdkHttpClientConnector} does, whose cancelled attempts are aborted.
+ */
+public class HedgingConnector implements Connector {
+
+    /**
+     * The methods that may be sent more than once.
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList(HttpMethod.GET, HttpMethod.HEAD));
+
+    /**
+     * Sends the hedges, on a thread of its own so they are not held up by busy shared pools.
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hedge-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Connector connector;
+    private final HedgePolicy policy;
+
+    /**
+     * @param connector the connector sending the attempts
+     * @param policy when and where the requests are sent again
+     */
+    public HedgingConnector(Connector connector, HedgePolicy policy) {
+        this.connector = connector;
+        this.policy = policy;
+    }
+
+    @Override
+    public ClientResponse apply(ClientRequest request) {
+        if (!isHedged(request)) {
+            return connector.apply(request);
+        }
+        CompletableFuture<ClientResponse> response = new CompletableFuture<>();
+        Future<?> exchange = apply(request, new AsyncConnectorCallback() {
+            @Override
+            public void response(ClientResponse clientResponse) {
+                response.complete(clientResponse);
+            }
+
+            @Override
+            public void failure(Throwable failure) {
+                response.completeExceptionally(failure);
+            }
+        });
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof ProcessingException
+                    ? (ProcessingException) e.getCause() : new ProcessingException(e.getCause());
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted waiting for the response of " + request.getUri(), e);
+        }
+    }
+
+    @Override
+    public Future<?> apply(ClientRequest request, AsyncConnectorCallback callback) {
+        if (!isHedged(request)) {
+            return connector.apply(request, callback);
+        }
+        policy.getBudget().deposit();
+        Exchange exchange = new Exchange(request, callback);
+        exchange.start();
+        long delay = policy.getDelay();
+        if (delay != Long.MAX_VALUE) {
+            Future<?> hedge = TIMER.schedule(exchange::hedge, delay, TimeUnit.NANOSECONDS);
+            exchange.result.whenComplete((response, t) -> hedge.cancel(false));
+        }
+        return exchange.result;
+    }
+
+    @Override
+    public String getName() {
+        return connector.getName() + " with hedged requests";
+    }
+
+    @Override
+    public void close() {
+        connector.close();
+    }
+
+    private static boolean isHedged(ClientRequest request) {
+        return IDEMPOTENT_METHODS.contains(request.getMethod()) && !request.hasEntity();
+    }
+
+    /**
+     * The attempts of one request, completed by the first response.
+     */
+    private final class Exchange {
+        private final ClientRequest request;
+        private final CompletableFuture<ClientResponse> result = new CompletableFuture<>();
+        private final List<Future<?>> sent = new ArrayList<>();
+        private URI last;
+        private int attempts;
+        private int pending;
+        private ClientResponse unavailable;
+        private Throwable failure;
+        private boolean settled;
+
+        private Exchange(ClientRequest request, AsyncConnectorCallback callback) {
+            this.request = request;
+            this.last = request.getUri();
+            result.whenComplete((response, t) -> {
+                cancelAttempts();
+                if (t == null) {
+                    callback.response(response);
+                } else if (!(t instanceof CancellationException)) {
+                    callback.failure(t);
+                }
+            });
+        }
+
+        private void start() {
+            synchronized (this) {
+                attempts++;
+                pending++;
+            }
+            send(request, false);
+        }
+
+        private void hedge() {
+            URI uri;
+            synchronized (this) {
+                if (settled || result.isDone() || attempts >= policy.maxAttempts() || !policy.getBudget().tryWithdraw()) {
+                    return;
+                }
+                uri = nextAttempt();
+            }
+            policy.hedged();
+            send(copy(uri), true);
+        }
+
+        private void send(ClientRequest attempt, boolean hedge) {
+            long start = System.nanoTime();
+            Future<?> future = connector.apply(attempt, new AsyncConnectorCallback() {
+                @Override
+                public void response(ClientResponse response) {
+                    if (response.getStatus() == Response.Status.SERVICE_UNAVAILABLE.getStatusCode()) {
+                        failed(response, null);
+                    } else {
+                        answered(response, System.nanoTime() - start, hedge);
+                    }
+                }
+
+                @Override
+                public void failure(Throwable t) {
+                    failed(null, t);
+                }
+            });
+            synchronized (this) {
+                sent.add(future);
+            }
+            if (result.isDone()) {
+                future.cancel(true);
+            }
+        }
+
+        private void answered(ClientResponse response, long latency, boolean hedge) {
+            policy.record(latency);
+            boolean won;
+            synchronized (this) {
+                pending--;
+                // the win is counted before the caller is answered, who may look at the counts at once
+                won = settle();
+                if (won && hedge) {
+                    policy.hedgeWon();
+                }
+            }
+            if (!won || !result.complete(response)) {
+                response.close();
+            }
+        }
+
+        private void failed(ClientResponse response, Throwable t) {
+            URI retry = null;
+            ClientResponse answer = null;
+            Throwable cause = null;
+            synchronized (this) {
+                pending--;
+                if (settled || result.isDone()) {
+                    close(response);
+                    return;
+                }
+                if (response != null) {
+                    close(unavailable);
+                    unavailable = response;
+                } else {
+                    failure = t;
+                }
+                if (pending == 0 && attempts < policy.maxAttempts() && policy.getBudget().tryWithdraw()) {
+                    retry = nextAttempt();
+                } else if (pending == 0) {
+                    settled = true;
+                    answer = unavailable;
+                    cause = failure;
+                    unavailable = null;
+                }
+            }
+            if (retry != null) {
+                policy.retried();
+                send(copy(retry), false);
+            } else if (answer != null) {
+                if (!result.complete(answer)) {
+                    answer.close();
+                }
+            } else if (cause != null) {
+                result.completeExceptionally(cause);
+            }
+        }
+
+        /**
+         * takes the answer of the exchange for the caller, once only and unless the caller cancelled it
+         *
+         * @return true if the exchange is to be completed by the caller of this method
+         */
+        private boolean settle() {
+            if (settled || result.isDone()) {
+                return false;
+            }
+            settled = true;
+            return true;
+        }
+
+        private URI nextAttempt() {
+            attempts++;
+            pending++;
+            last = policy.next(last);
+            return last;
+        }
+
+        private ClientRequest copy(URI uri) {
+            ClientRequest attempt = new ClientRequest(request);
+            attempt.setUri(uri);
+            return attempt;
+        }
+
+        private void cancelAttempts() {
+            List<Future<?>> attempts;
+            synchronized (this) {
+                attempts = new ArrayList<>(sent);
+                close(unavailable);
+                unavailable = null;
+            }
+            for (Future<?> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+
+        private void close(ClientResponse response) {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+}
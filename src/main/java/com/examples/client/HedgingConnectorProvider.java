@@ -0,0 +1,50 @@
+package com.examples.client;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Configuration;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.client.spi.ConnectorProvider;
+
+/**
+ * Provides a {@link HedgingConnector} hedging and retrying the requests sent by the connector of another provider.
+ * <p>
+ * {@code new ClientConfig().connectorProvider(new HedgingConnectorProvider(new JdkHttpClientConnectorProvider(), policy))}
+ * gives a client hedging its GET requests to the replicas of the policy. A {@link CachingConnectorProvider} in front
+ * of it keeps the responses, so only the requests not answered from the cache are hedged.
+ * <p>
+ * Given a metrics registry, the provider registers the gauges of the policy in it, so they are exposed with the
+ * metrics of the service using the client.
+ */
+public class HedgingConnectorProvider implements ConnectorProvider {
+
+    private final ConnectorProvider provider;
+    private final HedgePolicy policy;
+
+    /**
+     * @param provider the provider of the connector sending the attempts
+     * @param policy when and where the requests are sent again, which may be shared with other clients
+     */
+    public HedgingConnectorProvider(ConnectorProvider provider, HedgePolicy policy) {
+        this.provider = provider;
+        this.policy = policy;
+    }
+
+    /**
+     * @param provider the provider of the connector sending the attempts
+     * @param policy when and where the requests are sent again, which may be shared with other clients
+     * @param metrics the registry the gauges of the policy are registered in, e.g. the application registry of the
+     *                service using the client
+     * @param name the prefix of the names of the gauges, e.g. {@code greetings.client.hedging}
+     */
+    public HedgingConnectorProvider(ConnectorProvider provider, HedgePolicy policy, MetricRegistry metrics, String name) {
+        this(provider, policy);
+        policy.registerMetrics(metrics, name);
+    }
+
+    @Override
+    public Connector getConnector(Client client, Configuration runtimeConfig) {
+        return new HedgingConnector(provider.getConnector(client, runtimeConfig), policy);
+    }
+}
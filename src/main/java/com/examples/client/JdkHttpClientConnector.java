@@ -0,0 +1,210 @@
+package com.examples.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Configuration;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.message.internal.Statuses;
+
+/**
+ * A Jersey client connector sending the requests with the JDK {@link HttpClient}.
+ * <p>
+ * Every method is sent as it is, PATCH included, without the reflection {@link java.net.HttpURLConnection} needs. The
+ * connector keeps one {@link HttpClient} for its Jersey client, so the connections to a host are pooled and reused, and
+ * HTTP/2 is used when the server supports it. Asynchronous requests are sent without a thread waiting for the response,
+ * the callback is called once the response headers are received and the entity is read as it arrives. Cancelling an
+ * asynchronous request before it is answered aborts it, the callback is then not called.
+ * <p>
+ * The request entity is written into memory before the request is sent, so its length is known. Redirects are
+ * followed or not for all the requests of the client, as configured by {@link ClientProperties#FOLLOW_REDIRECTS}.
+ */
+public class JdkHttpClientConnector implements Connector {
+
+    private static final Logger LOGGER = Logger.getLogger(JdkHttpClientConnector.class.getName());
+
+    /**
+     * The headers the JDK client sets itself and refuses to take from the request.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    private final HttpClient httpClient;
+
+    /**
+     * @param client the Jersey client the connector sends the requests of
+     * @param config the configuration of the client
+     */
+    public JdkHttpClientConnector(Client client, Configuration config) {
+        Map<String, Object> properties = config.getProperties();
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(ClientProperties.getValue(properties, JdkHttpClientConnectorProvider.HTTP_VERSION,
+                        HttpClient.Version.HTTP_2, HttpClient.Version.class))
+                .followRedirects(ClientProperties.getValue(properties, ClientProperties.FOLLOW_REDIRECTS, true, Boolean.class)
+                        ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER)
+                .sslContext(client.getSslContext());
+        int connectTimeout = ClientProperties.getValue(properties, ClientProperties.CONNECT_TIMEOUT, 0, Integer.class);
+        if (connectTimeout > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeout));
+        }
+        if (client.getHostnameVerifier() != null) {
+            LOGGER.log(Level.WARNING, "The JDK HttpClient verifies the host names itself, the hostname verifier is not used");
+        }
+        this.httpClient = builder.build();
+    }
+
+    @Override
+    public ClientResponse apply(ClientRequest request) {
+        HttpRequest httpRequest = toHttpRequest(request);
+        try {
+            return toClientResponse(request, httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream()));
+        } catch (IOException e) {
+            throw new ProcessingException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted waiting for the response of " + request.getUri(), e);
+        }
+    }
+
+    @Override
+    public Future<?> apply(ClientRequest request, AsyncConnectorCallback callback) {
+        CompletableFuture<HttpResponse<InputStream>> sent;
+        try {
+            sent = httpClient.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (Throwable t) {
+            callback.failure(t);
+            return CompletableFuture.completedFuture(null);
+        }
+        // cancelling the future of the exchange aborts the request only from JDK 16 on, so a request cancelled
+        // before its response arrives has the body of its response closed once it arrives, which aborts it
+        CompletableFuture<ClientResponse> exchange = new CompletableFuture<>();
+        sent.whenComplete((httpResponse, failure) -> {
+            if (failure != null) {
+                Throwable cause = unwrap(failure);
+                if (exchange.completeExceptionally(cause)) {
+                    callback.failure(cause);
+                }
+                return;
+            }
+            ClientResponse clientResponse;
+            try {
+                clientResponse = toClientResponse(request, httpResponse);
+            } catch (Throwable t) {
+                close(httpResponse.body());
+                if (exchange.completeExceptionally(t)) {
+                    callback.failure(t);
+                }
+                return;
+            }
+            if (exchange.complete(clientResponse)) {
+                callback.response(clientResponse);
+            } else {
+                close(httpResponse.body());
+            }
+        });
+        exchange.whenComplete((clientResponse, failure) -> {
+            if (failure instanceof CancellationException) {
+                sent.cancel(true);
+            }
+        });
+        return exchange;
+    }
+
+    @Override
+    public String getName() {
+        return "JDK HttpClient " + System.getProperty("java.version");
+    }
+
+    @Override
+    public void close() {
+        // the pooled connections are closed by the JDK client once idle
+    }
+
+    /**
+     * @return the HTTP client sending the requests
+     */
+    HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    private static HttpRequest toHttpRequest(ClientRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri());
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if (request.hasEntity()) {
+            ByteArrayOutputStream entity = new ByteArrayOutputStream();
+            request.setStreamProvider(contentLength -> entity);
+            try {
+                request.writeEntity();
+            } catch (IOException e) {
+                throw new ProcessingException(e);
+            }
+            body = HttpRequest.BodyPublishers.ofByteArray(entity.toByteArray());
+        }
+        // the headers are complete once the entity is written, the cookies go in a single header separated by
+        // semicolons and every other header value is sent as it is, as not every header can be joined by commas
+        for (Map.Entry<String, List<String>> header : request.getStringHeaders().entrySet()) {
+            String name = header.getKey();
+            if (RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                continue;
+            }
+            if ("cookie".equalsIgnoreCase(name)) {
+                builder.header(name, String.join("; ", header.getValue()));
+            } else {
+                for (String value : header.getValue()) {
+                    builder.header(name, value);
+                }
+            }
+        }
+        int readTimeout = request.resolveProperty(ClientProperties.READ_TIMEOUT, 0);
+        if (readTimeout > 0) {
+            builder.timeout(Duration.ofMillis(readTimeout));
+        }
+        return builder.method(request.getMethod(), body).build();
+    }
+
+    private static ClientResponse toClientResponse(ClientRequest request, HttpResponse<InputStream> httpResponse) {
+        ClientResponse response = new ClientResponse(Statuses.from(httpResponse.statusCode()), request, httpResponse.uri());
+        response.headers(httpResponse.headers().map().entrySet().stream()
+                .filter(header -> !header.getKey().startsWith(":"))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        response.setEntityStream(httpResponse.body());
+        return response;
+    }
+
+    private static void close(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not close the response of a cancelled request", e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return cause instanceof IOException ? new ProcessingException(cause) : cause;
+    }
+}
@@ -0,0 +1,28 @@
+package com.examples.client;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Configuration;
+
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.client.spi.ConnectorProvider;
+
+/**
+ * Provides the {@link JdkHttpClientConnector} to a Jersey client.
+ * <p>
+ * {@code new ClientConfig().connectorProvider(new JdkHttpClientConnectorProvider())} gives a client sending its
+ * requests with the JDK {@link java.net.http.HttpClient}.
+ */
+public class JdkHttpClientConnectorProvider implements ConnectorProvider {
+
+    /**
+     * The HTTP version preferred by the client, a {@link java.net.http.HttpClient.Version}, HTTP/2 by default.
+     * <p>
+     * Servers not supporting HTTP/2 are sent HTTP/1.1 requests either way.
+     */
+    public static final String HTTP_VERSION = "com.examples.client.httpVersion";
+
+    @Override
+    public Connector getConnector(Client client, Configuration runtimeConfig) {
+        return new JdkHttpClientConnector(client, runtimeConfig);
+    }
+}
@@ -0,0 +1,229 @@
+package com.examples.client;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+/**
+ * The responses kept by a {@link CachingConnector}, bounded by the bytes of their entities and headers.
+ * <p>
+ * The responses are kept in the order they were last used and the least recently used are evicted once the cache
+ * holds more bytes than allowed, so a few large responses push out many small ones. A response larger than the cache
+ * is not kept at all. A cache may be shared by the connectors of several clients.
+ */
+public class ResponseCache {
+
+    private final Map<String, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private final LongSupplier clock;
+    private long bytes;
+    private long evictions;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    /**
+     * @param maxBytes the number of bytes of the responses kept at most
+     */
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, System::nanoTime);
+    }
+
+    ResponseCache(long maxBytes, LongSupplier clock) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("the cache must be able to hold at least one byte");
+        }
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the number of responses kept
+     */
+    public synchronized int size() {
+        return responses.size();
+    }
+
+    /**
+     * @return the number of bytes of the responses kept
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of responses evicted to make room for others
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of requests answered with a fresh response without asking the server
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of requests for which no response was kept
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of requests sent to the server to revalidate a stale response
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return the number of revalidations the server answered with 304 Not Modified, served from the cache
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * Register the gauges of the cache in a metrics registry, unless gauges of that name are registered already.
+     *
+     * @param metrics the registry, e.g. the application registry of the service using the client
+     * @param name the prefix of the names of the gauges, e.g. {@code greetings.client.cache}
+     */
+    public void registerMetrics(MetricRegistry metrics, String name) {
+        synchronized (ResponseCache.class) {
+            if (metrics.getGauges().containsKey(name + ".hits")) {
+                return;
+            }
+            metrics.register(new Metadata(name + ".hits", "Response cache hits",
+                            "the number of requests answered by a fresh cached response", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getHits);
+            metrics.register(new Metadata(name + ".misses", "Response cache misses",
+                            "the number of requests with no cached response", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getMisses);
+            metrics.register(new Metadata(name + ".revalidations", "Response cache revalidations",
+                            "the number of requests revalidating a stale cached response", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getRevalidations);
+            metrics.register(new Metadata(name + ".not-modified", "Response cache not modified",
+                            "the number of revalidated responses served from the cache", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getNotModified);
+            metrics.register(new Metadata(name + ".evictions", "Response cache evictions",
+                            "the number of cached responses evicted to make room", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getEvictions);
+            metrics.register(new Metadata(name + ".bytes", "Response cache bytes",
+                            "the size of the cached responses", MetricType.GAUGE, MetricUnits.BYTES),
+                    (Gauge<Long>) this::getBytes);
+        }
+    }
+
+    /**
+     * @return the number of bytes of the responses kept at most
+     */
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    synchronized CachedResponse get(String key) {
+        return responses.get(key);
+    }
+
+    synchronized void put(String key, CachedResponse response) {
+        remove(key);
+        if (response.weight > maxBytes) {
+            return;
+        }
+        responses.put(key, response);
+        bytes += response.weight;
+        Iterator<CachedResponse> eldest = responses.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void remove(String key) {
+        CachedResponse removed = responses.remove(key);
+        if (removed != null) {
+            bytes -= removed.weight;
+        }
+    }
+
+    /**
+     * drops every response of the resource, whatever the request headers it was kept for
+     */
+    synchronized void invalidate(URI uri) {
+        String prefix = uri + "\n";
+        Iterator<Map.Entry<String, CachedResponse>> entries = responses.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = entries.next();
+            if (entry.getKey().startsWith(prefix)) {
+                bytes -= entry.getValue().weight;
+                entries.remove();
+            }
+        }
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void revalidation() {
+        revalidations.increment();
+    }
+
+    void notModified() {
+        notModified.increment();
+    }
+
+    /**
+     * A response as it is kept, never changed once kept.
+     */
+    static final class CachedResponse {
+        final Map<String, List<String>> headers;
+        final byte[] entity;
+        final String eTag;
+        final long expires;
+        final long weight;
+
+        CachedResponse(Map<String, List<String>> headers, byte[] entity, String eTag, long expires) {
+            this.headers = Collections.unmodifiableMap(headers);
+            this.entity = entity;
+            this.eTag = eTag;
+            this.expires = expires;
+            long headerBytes = 0;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    headerBytes += header.getKey().length() + value.length();
+                }
+            }
+            this.weight = entity.length + headerBytes;
+        }
+
+        boolean isFresh(long now) {
+            return expires - now > 0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.examples.client;
+
+/**
+ * A token bucket bounding the extra requests sent as hedges and retries to a share of the requests.
+ * <p>
+ * Every request puts a fraction of a token in the bucket and every hedge or retry takes a whole token, so with a ratio
+ * of 0.1 at most one extra request is sent for ten requests, however many of them are slow or fail. The bucket holds
+ * a few tokens at most, which lets a burst of slow requests be hedged while an overloaded server is not sent more than
+ * the share. A budget may be shared by the connectors of several clients.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+    private long withdrawn;
+    private long refused;
+
+    /**
+     * @param ratio the share of extra requests, the fraction of a token every request puts in the bucket
+     * @param maxTokens the number of tokens in the bucket at most, the bucket is full to begin with
+     */
+    public RetryBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || maxTokens < 0) {
+            throw new IllegalArgumentException("the ratio and the tokens of a retry budget cannot be negative");
+        }
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    /**
+     * puts the share of a request in the bucket
+     */
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * takes a token for an extra request
+     *
+     * @return true if the extra request may be sent, false if the budget is spent
+     */
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            refused++;
+            return false;
+        }
+        tokens--;
+        withdrawn++;
+        return true;
+    }
+
+    /**
+     * @return the number of whole tokens in the bucket
+     */
+    public synchronized int getTokens() {
+        return (int) tokens;
+    }
+
+    /**
+     * @return the number of extra requests the budget allowed
+     */
+    public synchronized long getWithdrawn() {
+        return withdrawn;
+    }
+
+    /**
+     * @return the number of extra requests not sent because the budget was spent
+     */
+    public synchronized long getRefused() {
+        return refused;
+    }
+}
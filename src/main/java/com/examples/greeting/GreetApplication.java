@@ -22,7 +22,10 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 
+import com.examples.patch.OptionsAcceptPatchHeaderFilter;
+import com.examples.patch.PatchInterceptor;
 import io.helidon.common.CollectionsHelper;
+import io.helidon.webserver.jersey.FileEntityWriter;
 
 /**
  * Simple Application that produces a greeting message.
@@ -33,6 +36,7 @@ public class GreetApplication extends Application {
 
     @Override
     public Set<Class<?>> getClasses() {
-        return CollectionsHelper.setOf(GreetResource.class, Greeting.class);
+        return CollectionsHelper.setOf(GreetResource.class, Greeting.class, OptionsAcceptPatchHeaderFilter.class,
+                PatchInterceptor.class, FileEntityWriter.class);
     }
 }
@@ -16,6 +16,8 @@
 
 package com.examples.greeting;
 
+import java.util.concurrent.CompletionStage;
+
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.json.Json;
@@ -40,6 +42,9 @@ import javax.ws.rs.core.MediaType;
  * Change greeting
  * curl -X PUT http://localhost:8080/greet/greeting/Hola
  *
+ * The meet and meet-representation endpoints are also served asynchronously below /async, e.g.:
+ * curl -X GET http://localhost:8080/async/meet/Joe
+ *
  * The message is returned as a JSON object.
  */
 @Path("/")
@@ -51,15 +56,22 @@ public class GreetResource {
      */
     private final GreetingProvider greetingProvider;
 
+    /**
+     * The executor serving the asynchronous variants of the endpoints.
+     */
+    private final GreetingExecutor executor;
+
     /**
      * Using constructor injection to get a configuration property.
      * By default this gets the value from META-INF/microprofile-config
      *
      * @param greetingConfig the configured greeting message
+     * @param executor the executor for the asynchronous endpoints
      */
     @Inject
-    public GreetResource(GreetingProvider greetingConfig) {
+    public GreetResource(GreetingProvider greetingConfig, GreetingExecutor executor) {
         this.greetingProvider = greetingConfig;
+        this.executor = executor;
     }
 
     /**
@@ -107,6 +119,48 @@ public class GreetResource {
                 .build();
     }
 
+    /**
+     * Return a wordly greeting message asynchronously.
+     *
+     * @return {@link JsonObject}
+     */
+    @SuppressWarnings("checkstyle:designforextension")
+    @Path("/async/meet")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<JsonObject> getDefaultMessageAsync() {
+        return executor.submit(this::getDefaultMessage);
+    }
+
+    /**
+     * Return a greeting message using the name that was provided asynchronously.
+     *
+     * @param name the name to greet
+     * @return {@link JsonObject}
+     */
+    @SuppressWarnings("checkstyle:designforextension")
+    @Path("/async/meet/{name}")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<JsonObject> getMessageAsync(@PathParam("name") String name) {
+        return executor.submit(() -> createResponse(name));
+    }
+
+    /**
+     * Set the greeting to use in future messages asynchronously.
+     *
+     * @param newGreeting the new greeting message
+     * @return {@link JsonObject}
+     */
+    @SuppressWarnings("checkstyle:designforextension")
+    @Path("/async/meet-representation/{greeting}")
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<JsonObject> updateGreetingAsync(@PathParam("greeting") String newGreeting) {
+        return executor.submit(() -> updateGreeting(newGreeting));
+    }
+
     private JsonObject createResponse(String who) {
         String msg = String.format("%s %s!", greetingProvider.getMessage(), who);
 
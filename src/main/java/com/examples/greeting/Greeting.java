@@ -16,23 +16,52 @@
 
 package com.examples.greeting;
 
+import com.examples.ChangeWatch;
+import com.examples.RenderCache;
 import com.examples.RepresentationContainer;
-import com.examples.patch.JSONPatchContainer;
+import com.examples.SingleFlight;
+import com.examples.patch.JSONPatch;
+import com.examples.patch.JSONPatchException;
+import com.examples.patch.PatchInterceptor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.openapitools.jackson.dataformat.hal.HALLink;
 import io.openapitools.jackson.dataformat.hal.HALMapper;
 import io.swagger.annotations.ApiOperation;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -45,14 +74,140 @@ import java.util.stream.Collectors;
 public class Greeting {
 
     private static final Logger LOGGER = Logger.getLogger(Greeting.class.getName());
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final long NOT_FOUND_LOG_INTERVAL = 100;
+    private static final JsonFactory CHANGES = new JsonFactory();
+    private static final ObjectMapper PATCH_MAPPER = new HALMapper();
+    private static final ObjectReader PATCHED = PATCH_MAPPER.readerFor(GreetingRepresentation.class);
+
+    private static final ResponseTemplate NOT_FOUND = ResponseTemplate.of(Response.Status.NOT_FOUND, "application/hal+json", "{"
+            + "\"message\":\"Sorry your representation does not exist yet!\","
+            + "\"_links\":{"
+            + "\"greetings\":{"
+            + "\"href\":\"/greetings\","
+            + "\"type\":\"application/hal+json\","
+            + "\"title\":\"List of existing greetings\""
+            + "}"
+            + "}"
+            + "}");
+    private static final ResponseTemplate NOT_FOUND_V2 = ResponseTemplate.of(Response.Status.NOT_FOUND, "application/hal+json", "{"
+            + "  \"message\": \"Sorry your representation does not exist yet!\","
+            + "  \"_links\":{"
+            + "      \"href\":\"/greetings\","
+            + "      \"type\":\"application/hal+json\","
+            + "      \"title\":\"List of exixting greetings\""
+            + "      }"
+            + "}");
+    private static final ResponseTemplate MOVED = ResponseTemplate.of(Response.Status.MOVED_PERMANENTLY, "application/hal+json", "{"
+            + "\"message\":\"Sorry your representation does not exist yet!\","
+            + "\"_links\":{"
+            + "\"greetings\":{"
+            + "\"href\":\"/greetings\","
+            + "\"type\":\"application/hal+json\","
+            + "\"title\":\"List of existing greetings\""
+            + "}"
+            + "}"
+            + "}").withLocation("/greetings/hallo");
+    private static final ResponseTemplate PROBLEM = ResponseTemplate.of(Response.Status.NOT_FOUND, "application/problem+json", "{"
+            + "\"type\":\"non-existent greeting!\","
+            + "\"title\":\"Sorry your representation does not exist!\","
+            + "\"detail\":\"You can create one using POST at greetings or PUT at greetings/{greeting}\""
+            + "}").withLocation("/greetings");
+    private static final ResponseTemplate NOT_ACCEPTABLE = ResponseTemplate.of(Response.Status.NOT_ACCEPTABLE, null, "{"
+            + "  \"message\":\"Sorry your representation of greetings does not exist!\","
+            + "  \"accepted\":{"
+            + "    \"application/json\", \"application/hal+json\", \"application/json;p=greeting\","
+            + "    \"application/json;p=greetings;v=2\", \"application/json;p=greetings;v=1\", "
+            + "    \"application/hal+json;p=metadata\""
+            + "  }"
+            + "}");
+    private static final ResponseTemplate METADATA = ResponseTemplate.of(Response.Status.OK, "application/hal+json;p=metadata", "{"
+            + "  \"metadata\":  {"
+            + "      \"versions\":\"....\","
+            + "      \"deprecations\":\"....\","
+            + "      \"relations\":\"....\","
+            + "      \"specifications\":\"....\","
+            + "      \"reports\":\"....\","
+            + "      \"issues\":\"....\","
+            + "      \"history\":\"....\","
+            + "      \"help\":\"....\""
+            + "      }"
+            + "}");
+
+    /**
+     * The number of requests for greetings that do not exist.
+     */
+    private static final AtomicLong notFound = new AtomicLong();
+
+    /**
+     * The sub-resources of the greetings, a greeting of the same name could never be read as they are matched first.
+     */
+    static final Set<String> RESERVED_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "async", "batch", "changes", "events", "export", "import", "search")));
 
     private static RepresentationContainer<String, GreetingRepresentation> representations = new RepresentationContainer<>();
 
+    /**
+     * The search index over the greetings, following every change of the greetings.
+     */
+    private static final GreetingIndex index = new GreetingIndex();
+
+    /**
+     * The renderings of the greetings and their entity tags, dropped when the greeting changes.
+     */
+    private static final RenderCache<String, GreetingRepresentation, Rendering> rendered = new RenderCache<>();
+
+    /**
+     * The requests waiting for a greeting to change.
+     */
+    private static final ChangeWatch<String, GreetingRepresentation> watched = new ChangeWatch<>(representations);
+
+    static {
+        representations.addListener(index);
+        representations.addListener(rendered);
+        representations.addListener(watched);
+    }
+
+    /**
+     * Concurrent requests for the same greeting in the same representation share one rendering.
+     */
+    private static final SingleFlight<String, Rendering> renderings = new SingleFlight<>();
+
     /**
      * The representation message provider.
      */
     private final GreetingProvider greetingProvider;
 
+    /**
+     * The executor serving the asynchronous variants of the endpoints.
+     */
+    private final GreetingExecutor executor;
+
+    /**
+     * The export and import of all greetings.
+     */
+    private final GreetingCatalog catalog;
+
+    /**
+     * The outcomes of creations sent with an Idempotency-Key.
+     */
+    private final GreetingIdempotency idempotency;
+
+    /**
+     * The correlation ids for consumers not sending one.
+     */
+    private final LogTokenProvider logTokens;
+
+    /**
+     * The changes of the greetings streamed as server-sent events.
+     */
+    private final GreetingEvents events;
+
+    /**
+     * The time a request for a greeting waits for it to change at most.
+     */
+    private final long maxWaitSeconds;
+
     private final Map<String, GreetingProducer> greetingProducers = new HashMap<>();
     private final Map<String, GreetingListProducer> greetingListProducers = new HashMap<>();
 
@@ -61,11 +216,25 @@ public class Greeting {
      * By default this gets the value from META-INF/microprofile-config
      *
      * @param greetingConfig the configured representation message
+     * @param executor the executor for the asynchronous endpoints
+     * @param catalog the export and import of all greetings
+     * @param idempotency the outcomes of creations sent with an Idempotency-Key
+     * @param logTokens the correlation ids for consumers not sending one
+     * @param events the changes of the greetings streamed as server-sent events
+     * @param maxWaitSeconds the time a request for a greeting waits for it to change at most
      */
     @Inject
-    public Greeting(GreetingProvider greetingConfig) {
+    public Greeting(GreetingProvider greetingConfig, GreetingExecutor executor, GreetingCatalog catalog,
+                    GreetingIdempotency idempotency, LogTokenProvider logTokens, GreetingEvents events,
+                    @ConfigProperty(name = "app.watch.max-wait-seconds", defaultValue = "60") long maxWaitSeconds) {
         populateRepresentations();
         this.greetingProvider = greetingConfig;
+        this.executor = executor;
+        this.catalog = catalog;
+        this.idempotency = idempotency;
+        this.logTokens = logTokens;
+        this.events = events;
+        this.maxWaitSeconds = maxWaitSeconds;
         greetingProducers.put("application/json", this::getGreetingG1V4);
         greetingProducers.put("application/hal+json", this::getGreetingG1V4);
         greetingProducers.put("application/hal+json;p=greeting", this::getGreetingG1V4);
@@ -83,10 +252,14 @@ public class Greeting {
     }
     /**
      * Create a new representation and disallow replace an existing representation.
+     * <p>
+     * A request sent with an Idempotency-Key can be retried safely, a retry with the same key and the same input gets
+     * the status, Location and ETag of the first successful creation replayed instead of a conflict.
      *
      * @param request the actual request
      * @param acceptLanguage the preferred language
      * @param logToken a correlation id for a consumer
+     * @param idempotencyKey a consumer chosen key identifying the creation across retries
      * @param greeting a json formatted input
      * @return response the status, headers etc. send back to the consumer
      *
@@ -116,8 +289,18 @@ public class Greeting {
             @Context Request request,
             @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
             @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @HeaderParam("Idempotency-Key") @Pattern(regexp = "^[\\x21-\\x7e]{1,255}$") String idempotencyKey,
             String greeting) {
         LOGGER.log(Level.INFO, "POST - Greeting");
+        if (idempotencyKey == null) {
+            return createNewGreeting(acceptLanguage, logToken, greeting);
+        }
+        String fingerprint = GreetingIdempotency.fingerprint(preferredLanguage(acceptLanguage), greeting);
+        return idempotency.execute(idempotencyKey, fingerprint, validateOrCreateToken(logToken),
+                () -> createNewGreeting(acceptLanguage, logToken, greeting));
+    }
+
+    private Response createNewGreeting(String acceptLanguage, String logToken, String greeting) {
         Response.Status status = Response.Status.BAD_REQUEST;
         ObjectMapper mapper = new HALMapper();
         try {
@@ -161,6 +344,361 @@ public class Greeting {
         return Response.status(status).build();
     }
 
+    /**
+     * Create or replace a batch of representations as one change of the greetings.
+     * <p>
+     * The input is either a json array of greetings or a stream of newline delimited greetings (application/x-ndjson).
+     * The language of every greeting is taken from the hreflang of its self link, or from the preferred language of the
+     * request if it has none. Every greeting is reported back with its own status and eTag, the greetings that could be
+     * parsed are stored together and the version of the greetings list changes once.
+     *
+     * @param request the actual request
+     * @param acceptLanguage the preferred language for greetings without a hreflang
+     * @param logToken a correlation id for a consumer
+     * @param greetings a json array or newline delimited json stream of greetings
+     * @return response the status for every greeting in the batch
+     *
+     * {@code (
+     *   {"greeting":"Hej!","language":"Dansk","country":"Danmark","native":{"language":"Dansk","country":"Danmark"},
+     *    "_links":{"self":{"href":"greetings/hej","title":"Dansk Hilsen Hej","hreflang":"da"}}}
+     *   {"greeting":"Hi!","language":"English","country":"England","native":{"language":"English","country":"England"},
+     *    "_links":{"self":{"href":"greetings/hej","title":"English Greeting Hej","hreflang":"en"}}}
+     * )}
+     */
+    @POST
+    @Path("batch")
+    @Produces({"application/json"})
+    @Consumes({"application/json", "application/x-ndjson"})
+    @ApiOperation(value = "create or replace a batch of representations")
+    public Response createOrReplaceGreetings(
+            @Context Request request,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            InputStream greetings) {
+        LOGGER.log(Level.INFO, "POST - Greeting batch");
+        ObjectMapper mapper = new HALMapper();
+        String language = preferredLanguage(acceptLanguage);
+        List<BatchItem> items = new ArrayList<>();
+        Map<String, GreetingRepresentation> batch = new LinkedHashMap<>();
+        try (MappingIterator<JsonNode> input = mapper.readerFor(JsonNode.class).readValues(greetings)) {
+            while (input.hasNextValue()) {
+                BatchItem item = new BatchItem(items.size());
+                items.add(item);
+                parseBatchItem(mapper, input.nextValue(), language, item);
+                if (item.key != null) {
+                    batch.put(item.key, item.greeting);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Sorry, I could not parse the batch input", ex);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\":\"batch could not be parsed\"}")
+                    .header("X-Log-Token", validateOrCreateToken(logToken))
+                    .build();
+        }
+        Map<String, GreetingRepresentation> replaced = representations.addAll(batch);
+        LOGGER.log(Level.INFO, "Stored batch of " + batch.size() + " Greetings - in total (" + representations.size() + ")");
+        JsonArrayBuilder results = Json.createArrayBuilder();
+        for (BatchItem item : items) {
+            JsonObjectBuilder result = Json.createObjectBuilder().add("index", item.index);
+            if (item.key == null) {
+                results.add(result
+                        .add("status", Response.Status.BAD_REQUEST.getStatusCode())
+                        .add("error", item.error));
+            } else {
+                Response.Status status = replaced.containsKey(item.key) ? Response.Status.OK : Response.Status.CREATED;
+                results.add(result
+                        .add("status", status.getStatusCode())
+                        .add("href", item.greeting.getSelf().getHref())
+                        .add("language", item.language)
+                        .add("etag", item.eTag.toString()));
+            }
+        }
+        return Response.ok()
+                .entity(Json.createObjectBuilder()
+                        .add("version", representations.getChCode())
+                        .add("greetings", results)
+                        .build()
+                        .toString())
+                .type("application/json")
+                .header("X-Log-Token", validateOrCreateToken(logToken))
+                .build();
+    }
+
+    /**
+     * Export all greetings as newline delimited json.
+     * <p>
+     * The export is streamed from a consistent snapshot of the greetings, every greeting is serialized as it is
+     * written, or sent from a file kept for the following exports until the greetings change if the catalog is
+     * configured so. Every line is a greeting with its language as the hreflang of its self link. The version of the
+     * greetings exported is returned as the eTag, an export requested again with that eTag in If-None-Match is
+     * answered with {@code 304 Not Modified} until the greetings change.
+     *
+     * @param request the actual request
+     * @param logToken a correlation id for a consumer
+     * @return response streaming the greetings
+     */
+    @GET
+    @Path("export")
+    @Produces({"application/x-ndjson"})
+    @ApiOperation(value = "export all greetings as newline delimited json")
+    public Response exportGreetings(
+            @Context Request request,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken) {
+        LOGGER.log(Level.INFO, "GET - Greeting export");
+        Response.ResponseBuilder builder = request.evaluatePreconditions(new EntityTag(representations.getChCode()));
+        if (builder != null) {
+            return builder.header("X-Log-Token", validateOrCreateToken(logToken)).build();
+        }
+        if (!catalog.isExportFileCached()) {
+            RepresentationContainer.Snapshot<String, GreetingRepresentation> snapshot = representations.snapshot();
+            StreamingOutput export = output -> catalog.export(snapshot, output);
+            return Response.ok(export, "application/x-ndjson")
+                    .tag(new EntityTag(Integer.toHexString(snapshot.getVersion())))
+                    .header("X-Log-Token", validateOrCreateToken(logToken))
+                    .build();
+        }
+        GreetingCatalog.ExportFile export;
+        try {
+            export = catalog.exportFile(representations);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Could not write the export of the greetings", ex);
+            return Response.serverError().header("X-Log-Token", validateOrCreateToken(logToken)).build();
+        }
+        return Response.ok(export.getPath(), "application/x-ndjson")
+                .tag(new EntityTag(Integer.toHexString(export.getVersion())))
+                .header("X-Log-Token", validateOrCreateToken(logToken))
+                .build();
+    }
+
+    /**
+     * Import greetings from newline delimited json.
+     * <p>
+     * The greetings are parsed as they arrive and stored a chunk at a time, the language of every greeting is taken
+     * from the hreflang of its self link, or from the preferred language of the request if it has none. Greetings that
+     * cannot be stored are counted as rejected and skipped. If the input is broken the import stops with
+     * {@code 400 Bad Request}, the greetings stored until then are kept.
+     *
+     * @param acceptLanguage the preferred language for greetings without a hreflang
+     * @param logToken a correlation id for a consumer
+     * @param greetings a newline delimited json stream of greetings
+     * @return response with the number of greetings read, stored and rejected
+     */
+    @POST
+    @Path("import")
+    @Produces({"application/json"})
+    @Consumes({"application/x-ndjson", "application/json"})
+    @ApiOperation(value = "import greetings from newline delimited json")
+    public Response importGreetings(
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            InputStream greetings) {
+        LOGGER.log(Level.INFO, "POST - Greeting import");
+        GreetingCatalog.ImportResult result = catalog.importFrom(greetings, representations, preferredLanguage(acceptLanguage));
+        JsonObjectBuilder entity = Json.createObjectBuilder()
+                .add("read", result.getRead())
+                .add("stored", result.getStored())
+                .add("rejected", result.getRejected())
+                .add("version", representations.getChCode());
+        if (result.getError() != null) {
+            entity.add("error", result.getError());
+        }
+        return Response.status(result.getError() == null ? Response.Status.OK : Response.Status.BAD_REQUEST)
+                .entity(entity.build().toString())
+                .type("application/json")
+                .header("X-Log-Token", validateOrCreateToken(logToken))
+                .build();
+    }
+
+    /**
+     * Search the greetings.
+     * <p>
+     * The query is matched as a prefix of the greeting references and as words in the greeting text, the title and
+     * the country of the greetings. The matches are ranked with exact references first, then references starting
+     * with the query, then greetings with the words in their text, title and country, and are returned a page at a
+     * time with a link to the next page.
+     *
+     * @param logToken a correlation id for a consumer
+     * @param query the reference prefix or words to search for
+     * @param offset the number of best matches to skip
+     * @param limit the maximum number of matches in the page, at most 100
+     * @return response with a page of ranked matches
+     */
+    @GET
+    @Path("search")
+    @Produces({"application/hal+json", "application/json"})
+    @ApiOperation(value = "search the greetings by reference prefix and words")
+    public Response searchGreetings(
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @QueryParam("q") String query,
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("limit") @DefaultValue("20") int limit) {
+        LOGGER.log(Level.INFO, "GET - Greeting search");
+        if (query == null || query.trim().isEmpty() || offset < 0 || limit < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\":\"Sorry, a search needs a query q, a positive limit and an offset that is not negative\"}")
+                    .type("application/json")
+                    .header("X-Log-Token", validateOrCreateToken(logToken))
+                    .build();
+        }
+        int pageSize = Math.min(limit, MAX_SEARCH_RESULTS);
+        GreetingIndex.Result result = index.search(query, offset, pageSize);
+        JsonArrayBuilder matches = Json.createArrayBuilder();
+        for (GreetingIndex.Match match : result.getMatches()) {
+            GreetingRepresentation greeting = representations.get(match.getKey());
+            if (greeting == null) {
+                continue;
+            }
+            JsonObjectBuilder found = Json.createObjectBuilder()
+                    .add("href", greeting.getSelf().getHref())
+                    .add("hreflang", match.getKey().substring(match.getKey().lastIndexOf('_') + 1))
+                    .add("score", match.getScore());
+            if (greeting.getSelf().getTitle() != null) {
+                found.add("title", greeting.getSelf().getTitle());
+            }
+            if (greeting.getGreeting() != null) {
+                found.add("greeting", greeting.getGreeting());
+            }
+            matches.add(found);
+        }
+        JsonObjectBuilder links = Json.createObjectBuilder()
+                .add("self", Json.createObjectBuilder().add("href", searchHref(query, offset, pageSize)));
+        if (offset + pageSize < result.getTotal()) {
+            links.add("next", Json.createObjectBuilder().add("href", searchHref(query, offset + pageSize, pageSize)));
+        }
+        return Response.ok()
+                .entity(Json.createObjectBuilder()
+                        .add("query", query)
+                        .add("total", result.getTotal())
+                        .add("truncated", result.isTruncated())
+                        .add("offset", offset)
+                        .add("limit", pageSize)
+                        .add("matches", matches)
+                        .add("_links", links)
+                        .build()
+                        .toString())
+                .type("application/hal+json")
+                .header("X-Log-Token", validateOrCreateToken(logToken))
+                .build();
+    }
+
+    /**
+     * The changes of the greetings since a version.
+     * <p>
+     * The changes are json patch operations on the greetings keyed by reference and language: greetings added,
+     * replaced with their new content and removed since the version, at most one operation per greeting. The version
+     * after the changes is returned along with a link to poll for the next changes. If the version is older than the
+     * changes retained, unknown or not given, every greeting is returned as added and the changes are marked as a
+     * resync, so the consumer starts over from them. The version of the greetings is the eTag, if it did not change
+     * {@code 304 Not Modified} is returned.
+     *
+     * @param request the actual request
+     * @param logToken a correlation id for a consumer
+     * @param since the version of the greetings the consumer has, as returned with earlier changes or an import
+     * @return response with the changes since the version
+     */
+    @GET
+    @Path("changes")
+    @Produces({"application/hal+json", "application/json"})
+    @ApiOperation(value = "get the changes of the greetings since a version")
+    public Response getGreetingChanges(
+            @Context Request request,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @QueryParam("since") @Pattern(regexp = "^[0-9a-f]{1,8}$") String since) {
+        LOGGER.log(Level.INFO, "GET - Greeting changes");
+        int from;
+        try {
+            from = since == null ? Integer.MIN_VALUE : Integer.parseUnsignedInt(since, 16);
+        } catch (NumberFormatException ex) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\":\"Sorry, since must be a version as returned with the changes\"}")
+                    .type("application/json")
+                    .header("X-Log-Token", validateOrCreateToken(logToken))
+                    .build();
+        }
+        RepresentationContainer.Changes<String, GreetingRepresentation> changes = representations.changesSince(from);
+        String version = Integer.toHexString(changes.getVersion());
+        EntityTag et = getETag(version);
+        Response.ResponseBuilder builder = request.evaluatePreconditions(et);
+        if (builder != null) {
+            return builder.header("X-Log-Token", validateOrCreateToken(logToken)).build();
+        }
+        StringWriter entity = new StringWriter();
+        try (JsonGenerator json = CHANGES.createGenerator(entity)) {
+            json.writeStartObject();
+            if (since != null) {
+                json.writeStringField("since", since);
+            }
+            json.writeStringField("version", version);
+            json.writeBooleanField("resync", changes.isResync());
+            json.writeArrayFieldStart("changes");
+            for (RepresentationContainer.Change<String, GreetingRepresentation> change : changes.getChanges()) {
+                json.writeStartObject();
+                json.writeStringField("op", change.getCurrent() == null ? "remove" : change.getPrevious() == null ? "add" : "replace");
+                json.writeStringField("path", "/" + change.getKey().replace("~", "~0").replace("/", "~1"));
+                if (change.getCurrent() != null) {
+                    json.writeFieldName("value");
+                    json.writeRawValue(new String(halRendering(change.getKey(), change.getCurrent()).entity, StandardCharsets.UTF_8));
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("_links");
+            json.writeObjectFieldStart("self");
+            json.writeStringField("href", since == null ? "/greetings/changes" : "/greetings/changes?since=" + since);
+            json.writeEndObject();
+            json.writeObjectFieldStart("next");
+            json.writeStringField("href", "/greetings/changes?since=" + version);
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeEndObject();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Could not write the changes of the greetings", ex);
+            return Response.serverError().header("X-Log-Token", validateOrCreateToken(logToken)).build();
+        }
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        return Response.ok()
+                .entity(entity.toString())
+                .type("application/hal+json")
+                .tag(et)
+                .cacheControl(cacheControl)
+                .header("X-Log-Token", validateOrCreateToken(logToken))
+                .build();
+    }
+
+    /**
+     * Streams the changes of the greetings as server-sent events as they happen.
+     * <p>
+     * Every event has the version of the greetings as its id, is named {@code create}, {@code replace} or
+     * {@code delete} and has the change as its data, in the format of the changes of {@code /greetings/changes}. A
+     * consumer reconnecting with a Last-Event-ID gets the changes it missed first, or a {@code resync} event followed
+     * by every greeting created if the changes since that event are no longer retained. A consumer falling too far
+     * behind is disconnected and reconnects from the last event it got.
+     *
+     * @param lastEventId the id of the last event the consumer got when reconnecting
+     * @param logToken a correlation id for a consumer
+     * @return response streaming the events
+     */
+    @GET
+    @Path("events")
+    @Produces({"text/event-stream"})
+    @ApiOperation(value = "stream the changes of the greetings as server-sent events")
+    public Response getGreetingEvents(
+            @HeaderParam("Last-Event-ID") String lastEventId,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken) {
+        LOGGER.log(Level.INFO, "GET - Greeting events from {0}", lastEventId);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        cacheControl.setNoStore(true);
+        return Response.ok()
+                .entity(events.subscribe(representations, lastEventId))
+                .type("text/event-stream")
+                .cacheControl(cacheControl)
+                .header("X-Log-Token", validateOrCreateToken(logToken))
+                .build();
+    }
+
     /**
      * A Greeting can be addressed specifically and the consumer can specify what language he/she prefers.
      * <p>
@@ -344,6 +882,11 @@ public class Greeting {
     /**
      * A Greeting can be updated.
      * <p>
+     * The patch is a json patch (RFC6902), a single operation or an array of operations among add, remove, replace,
+     * move, copy and test, applied to a copy of the greeting in its json form. The patched greeting replaces the
+     * stored one only if that has not changed while the patch was applied, otherwise nothing is changed and
+     * {@code 409 Conflict} is returned, as it is when a test operation fails.
+     * <p>
      * A LogToken can be part of the request and that will be returned in the response. If no LogToken is present in the request a new one is extracted and returned to the
      * consumer. The format for the LogToken is a 36 long string that can consist of a-z, A-Z,0-9 and - In other words: small letters, capital letters and numbers and hyphens
      * <p>
@@ -353,7 +896,7 @@ public class Greeting {
      * @param eTag which is the header "If-None-Match" the etag which sets the expected state for the representation to be updated
      * @param logToken a correlation id for a consumer
      * @param greeting the representation to update.
-     * @param patch the patch that is used for updating the representation
+     * @param patch the operations of the patch, read by the {@link PatchInterceptor}
      * @return status, headers etc. to consumer
      */
     @PATCH
@@ -368,61 +911,134 @@ public class Greeting {
             @HeaderParam("If-None-Match") String eTag,
             @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
             @PathParam("representation") @Pattern(regexp = "[a-z]*") String greeting,
-            String patch) {
+            JSONPatch patch) {
         LOGGER.log(Level.INFO, "PATCH - Greeting");
 
         String key = greeting + "_" + preferredLanguage(acceptLanguage);
-        Response.Status status = Response.Status.BAD_REQUEST;
         GreetingRepresentation stored = representations.get(key);
         if (stored == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
-        } else {
-            ObjectMapper om = new HALMapper();
-            try {
-                EntityTag et = getETag(om.writeValueAsString(stored));
-                Response.ResponseBuilder builder = request.evaluatePreconditions(et);
-                if (builder != null) {
-                    try {
-                        ObjectMapper mapper = new ObjectMapper();
-                        JSONPatchContainer patchR = mapper.readValue(patch, JSONPatchContainer.class);
-                        if (patchR.getOperation().equals("replace")) {
-                            try {
-                                if (!patchR.replaceValue(stored)) {
-                                    return getPatchResponse(Response.Status.BAD_REQUEST, "{\"error\":\"value could not be replaced\"}",
-                                            stored.getSelf().getHref(), logToken);
-                                } else {
-                                    representations.alterchCode();
-                                }
-                            } catch (NoSuchFieldException | IllegalAccessException | IllegalArgumentException | SecurityException ex) {
-                                LOGGER.log(Level.WARNING,"PATCH::value is not replaced");
-                                return getPatchResponse(Response.Status.BAD_REQUEST, "{\"error\":\"value was not replaced\"}",
-                                        stored.getSelf().getHref(), logToken);
-                            }
-                            LOGGER.log(Level.INFO,"PATCH::value is replaced");
-                            return getPatchResponse(Response.Status.OK, "{\"status\":\"value is replaced\"}",
-                                    stored.getSelf().getHref(), logToken);
-                        } else {
-                            LOGGER.log(Level.WARNING,"PATCH::only operation replace is supported");
-                            return getPatchResponse(
-                                    Response.Status.BAD_REQUEST, "{\"error\":\"only operation replace is supported\"}",
-                                    stored.getSelf().getHref(), logToken);
-                        }
-                    } catch (IOException ex) {
-                        LOGGER.log(Level.WARNING,"PATCH::IO Exception happened");
-                        Response.status(Response.Status.BAD_REQUEST).build();
-                    }
-                } else {
-                    LOGGER.log(Level.WARNING, "PATCH::object has been updated, please get newest version");
-                    return getPatchResponse(
-                            Response.Status.CONFLICT, "{\"error\":\"object has been updated, please get newest version\"}",
-                            stored.getSelf().getHref(), logToken);
-                }
-            } catch (JsonProcessingException ex) {
-                LOGGER.log(Level.SEVERE, "Could not map List to json", ex);
-                status = Response.Status.UNSUPPORTED_MEDIA_TYPE;
+        }
+        String href = stored.getSelf().getHref();
+        Response unmet = checkPatchPreconditions(request, key, stored, logToken);
+        if (unmet != null) {
+            return unmet;
+        }
+        if (patch == null) {
+            LOGGER.log(Level.WARNING, "PATCH::no patch was sent");
+            return getPatchResponse(Response.Status.BAD_REQUEST, patchError("input could not be parsed", null), href, logToken);
+        }
+        JsonNode patched;
+        try {
+            patched = patch.apply(PATCH_MAPPER.valueToTree(stored));
+        } catch (JSONPatchException ex) {
+            LOGGER.log(Level.WARNING, "PATCH::value is not replaced - {0}", ex.getMessage());
+            if (ex.isTestFailure()) {
+                return getPatchResponse(Response.Status.CONFLICT, patchError("test failed", ex.getMessage()), href, logToken);
             }
+            return getPatchResponse(Response.Status.BAD_REQUEST, patchError("value was not replaced", ex.getMessage()), href, logToken);
         }
-        return Response.status(status).build();
+        GreetingRepresentation updated;
+        try {
+            updated = PATCHED.readValue(patched);
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.WARNING, "PATCH::value could not be replaced - {0}", ex.getMessage());
+            return getPatchResponse(Response.Status.BAD_REQUEST, patchError("value could not be replaced", ex.getMessage()), href, logToken);
+        }
+        return storePatched(key, stored, updated, logToken);
+    }
+
+    /**
+     * A Greeting can be updated by a merge patch.
+     * <p>
+     * The patch is a json merge patch (RFC7396), a partial greeting where the members present replace those of the
+     * greeting and members set to null are removed. The patched greeting replaces the stored one under the same
+     * conditions as for a json patch.
+     * <p>
+     * @param request the actual request
+     * @param acceptLanguage client can set the preferred preferredLanguage(s) as in HTTP spec.
+     * @param logToken a correlation id for a consumer
+     * @param greeting the representation to update.
+     * @param patch the merge patch that is used for updating the representation
+     * @return status, headers etc. to consumer
+     */
+    @PATCH
+    @Path("{representation}")
+    @Consumes(GreetingMergePatch.MEDIA_TYPE)
+    @Produces({"application/json"})
+    @ApiOperation(value = "update a representation with a merge patch")
+    public Response mergeGreeting(
+            @Context Request request,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @PathParam("representation") @Pattern(regexp = "[a-z]*") String greeting,
+            InputStream patch) {
+        String key = greeting + "_" + preferredLanguage(acceptLanguage);
+        GreetingRepresentation stored = representations.get(key);
+        if (stored == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        Response unmet = checkPatchPreconditions(request, key, stored, logToken);
+        if (unmet != null) {
+            return unmet;
+        }
+        GreetingRepresentation updated;
+        try {
+            updated = GreetingMergePatch.apply(stored, patch);
+        } catch (JSONPatchException ex) {
+            LOGGER.log(Level.WARNING, "PATCH::value is not merged - {0}", ex.getMessage());
+            return getPatchResponse(Response.Status.BAD_REQUEST, patchError("value was not replaced", ex.getMessage()),
+                    stored.getSelf().getHref(), logToken);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "PATCH::merge patch could not be parsed");
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        return storePatched(key, stored, updated, logToken);
+    }
+
+    /**
+     * @return a response telling why the stored greeting cannot be patched, or null if it can
+     */
+    private Response checkPatchPreconditions(Request request, String key, GreetingRepresentation stored, String logToken) {
+        if (request.evaluatePreconditions(eTagOf(key, stored)) == null) {
+            LOGGER.log(Level.WARNING, "PATCH::object has been updated, please get newest version");
+            return getPatchResponse(
+                    Response.Status.CONFLICT, "{\"error\":\"object has been updated, please get newest version\"}",
+                    stored.getSelf().getHref(), logToken);
+        }
+        return null;
+    }
+
+    /**
+     * Stores a patched greeting in place of the greeting it was patched from, unless that was changed meanwhile or
+     * the patch moved it to another key by changing the href or hreflang of its self link.
+     */
+    private Response storePatched(String key, GreetingRepresentation stored, GreetingRepresentation updated, String logToken) {
+        String href = stored.getSelf().getHref();
+        String rejection = GreetingCatalog.rejection(updated);
+        if (rejection == null && !key.equals(GreetingCatalog.keyOf(updated, key.substring(key.lastIndexOf('_') + 1)))) {
+            rejection = "the self link identifies the greeting and cannot be patched";
+        }
+        if (rejection != null) {
+            LOGGER.log(Level.WARNING, "PATCH::value could not be replaced - {0}", rejection);
+            return getPatchResponse(Response.Status.BAD_REQUEST, patchError("value could not be replaced", rejection), href, logToken);
+        }
+        if (!representations.replace(key, stored, updated)) {
+            LOGGER.log(Level.WARNING, "PATCH::object has been updated, please get newest version");
+            return getPatchResponse(
+                    Response.Status.CONFLICT, "{\"error\":\"object has been updated, please get newest version\"}",
+                    href, logToken);
+        }
+        LOGGER.log(Level.INFO, "PATCH::value is replaced");
+        return getPatchResponse(Response.Status.OK, "{\"status\":\"value is replaced\"}", updated.getSelf().getHref(), logToken);
+    }
+
+    private static String patchError(String error, String detail) {
+        JsonObjectBuilder json = Json.createObjectBuilder().add("error", error);
+        if (detail != null) {
+            json.add("detail", detail);
+        }
+        return json.build().toString();
     }
 
 
@@ -432,29 +1048,73 @@ public class Greeting {
      * A LogToken can be part of the request and that will be returned in the response. If no LogToken is present in the request a new one is extracted and returned to the
      * consumer. The format for the LogToken is a 36 long string that can consist of a-z, A-Z,0-9 and - In other words: small letters, capital letters and numbers and hyphens
      * <p>
+     * <p>
+     * A consumer polling with If-None-Match can ask to wait for the greeting to change with {@code Prefer: wait=N} or
+     * {@code ?wait=N}, instead of polling again and again. If the greeting is not modified, the request waits without
+     * a thread until the greeting changes or the seconds have passed, at most {@code app.watch.max-wait-seconds}, and
+     * then gets the greeting as it is by then: {@code 200} with the changed greeting or {@code 304 Not Modified}.
+     * <p>
+     * @param response the response, sent when the greeting is answered
      * @param request the actual request
      * @param uriInfo the URI information
      * @param accept the chosen accepted content-type by consumer
      * @param acceptLanguage client can set the preferred preferredLanguage(s) as in HTTP spec.
      * @param logToken a correlation id for a consumer
      * @param eTag the version of the list, it changes every time the list is changed
+     * @param prefer the preferences of the consumer, {@code wait=N} to wait for a change up to N seconds
+     * @param wait the seconds to wait for a change, for consumers not able to send a Prefer header
      * @param greeting the representation wanted by consumer
-     * @return String that will be returned containing "application/hal+json".
      */
     @GET
     @Path("{representation}")
     @Produces({"application/json", "application/hal+json"})
     @ApiOperation(value = "get a representation", response = GreetingRepresentation.class)
-    public Response getGreeting(
+    public void getGreeting(
+            @Suspended AsyncResponse response,
             @Context Request request, @Context UriInfo uriInfo,
             @HeaderParam("Accept") String accept,
             @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
             @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
             @HeaderParam("If-None-Match") String eTag,
+            @HeaderParam("Prefer") String prefer,
+            @QueryParam("wait") @Pattern(regexp = "^[0-9]{1,9}$") String wait,
             @PathParam("representation") @Pattern(regexp = "[a-z]*") String greeting) {
+        long waitSeconds = Math.min(maxWaitSeconds, wait != null ? waitSeconds(wait) : preferredWait(prefer));
+        String key = greeting + "_" + preferredLanguage(acceptLanguage);
+        GreetingRepresentation seen = representations.get(key);
+        Response current = getGreeting(request, accept, acceptLanguage, logToken, greeting);
+        if (waitSeconds <= 0 || seen == null || current.getStatus() != Response.Status.NOT_MODIFIED.getStatusCode()) {
+            response.resume(current);
+            return;
+        }
+        String applied = wait != null ? null : "wait=" + waitSeconds;
+        CompletableFuture<GreetingRepresentation> change = watched.next(key, seen);
+        response.setTimeoutHandler(suspended -> change.cancel(false));
+        response.setTimeout(waitSeconds, TimeUnit.SECONDS);
+        // on a change or when the time is up the greeting is answered as it is by then
+        change.whenComplete((changed, cancelled) -> {
+            Response answer = getGreeting(request, accept, acceptLanguage, logToken, greeting);
+            response.resume(applied == null ? answer : Response.fromResponse(answer).header("Preference-Applied", applied).build());
+        });
+    }
+
+    /**
+     * Answers a request for a greeting at once, as for the asynchronous variant of the endpoint.
+     */
+    Response getGreeting(Request request, String accept, String acceptLanguage, String logToken, String greeting) {
         return greetingProducers.getOrDefault(accept, this::handle406UnsupportedGreetings).getResponse(request, accept, acceptLanguage, greeting, logToken);
     }
 
+    /**
+     * The asynchronous variants of the greetings endpoints, addressed as {@code /greetings/async}.
+     *
+     * @return the asynchronous sub-resource sharing the state of this resource
+     */
+    @Path("async")
+    public GreetingAsync async() {
+        return new GreetingAsync(this, executor);
+    }
+
     private Response getGreetingListG1V2(Request request, String accept, String acceptLanguage, String logToken, String eTag) {
         LOGGER.log(Level.INFO, "GreetingList G1V2");
         EntityTag et = getETag(representations.getChCode());
@@ -504,24 +1164,7 @@ public class Greeting {
 
     private Response getGreetingListMetadata(Request request, String accept, String acceptLanguage, String logToken, String eTag) {
         LOGGER.log(Level.INFO, "GreetingList Metadata");
-        String entity = "{"
-                + "  \"metadata\":  {"
-                + "      \"versions\":\"....\","
-                + "      \"deprecations\":\"....\","
-                + "      \"relations\":\"....\","
-                + "      \"specifications\":\"....\","
-                + "      \"reports\":\"....\","
-                + "      \"issues\":\"....\","
-                + "      \"history\":\"....\","
-                + "      \"help\":\"....\""
-                + "      }"
-                + "}";
-        return Response
-                .status(200)
-                .entity(entity)
-                .type("application/hal+json;p=metadata")
-                .header("X-Log-Token", validateOrCreateToken(logToken))
-                .build();
+        return METADATA.build(validateOrCreateToken(logToken));
     }
 
 
@@ -535,22 +1178,13 @@ public class Greeting {
         LOGGER.log(Level.INFO, "Greeting G1V4");
         String language = preferredLanguage(acceptLanguage);
         final String key = greeting + "_" + language;
-        GreetingRepresentation entity = representations.get(key);
-        if (entity == null) {
+        Rendering rendering = render(key, 4, Greeting::renderHAL);
+        if (rendering == null) {
             Response response = getNoGreetingFound(logToken, key);
             return response;
         }
-        ObjectMapper mapper = new HALMapper();
         Date lastModified = getLastModified();
-        EntityTag eTag = getETag(entity.toString());
-        String entityResponse = entity.toString();
-        try {
-            eTag = getETag(mapper.writeValueAsString(entity));
-            entityResponse = mapper.writeValueAsString(entity);
-        } catch (JsonProcessingException ex) {
-            LOGGER.log(Level.WARNING, "Could not map entity:\n " + entity.toString(), ex);
-        }
-        Response.ResponseBuilder builder = request.evaluatePreconditions(lastModified, eTag);
+        Response.ResponseBuilder builder = request.evaluatePreconditions(lastModified, rendering.eTag);
         if (builder != null) {
             return builder.build();
         }
@@ -558,10 +1192,10 @@ public class Greeting {
         int maxAge = 60;
         cacheControl.setMaxAge(maxAge);
         return Response.ok()
-                .entity(entityResponse)
+                .entity(rendering.entity)
                 .type("application/hal+json;p=greeting;v=4")
                 .cacheControl(cacheControl)
-                .tag(eTag)
+                .tag(rendering.eTag)
                 .lastModified(lastModified)
                 .header("X-Log-Token", validateOrCreateToken(logToken))
                 .build();
@@ -570,56 +1204,27 @@ public class Greeting {
     private Response getGreetingG1V3(Request request, String accept, String acceptLanguage, String greeting, String logToken) {
         LOGGER.log(Level.INFO, "Greeting G1V3");
         String language = preferredLanguage(acceptLanguage);
-        GreetingRepresentation greetingEntity = representations.get(greeting + "_" + language);
-        if (greetingEntity == null) {
+        Rendering rendering = render(greeting + "_" + language, 3, entity -> rendering(entity.toHAL()));
+        if (rendering == null) {
             return getNoGreetingFound(logToken, greeting + "_" + language);
         }
-        return getResponse(request, logToken, greetingEntity.toHAL(), 3);
+        return getResponse(request, logToken, rendering, 3);
     }
 
     private Response getGreetingG1V2(Request request, String accept, String acceptLanguage, String greeting, String logToken) {
         LOGGER.log(Level.INFO, "Greeting G1V2");
         String language = preferredLanguage(acceptLanguage);
-        GreetingRepresentation greetingEntity = representations.get(greeting + "_" + language);
-        if (greetingEntity == null) {
-            String entity = "{"
-                    + "  \"message\": \"Sorry your representation does not exist yet!\","
-                    + "  \"_links\":{"
-                    + "      \"href\":\"/greetings\","
-                    + "      \"type\":\"application/hal+json\","
-                    + "      \"title\":\"List of exixting greetings\""
-                    + "      }"
-                    + "}";
-            return Response
-                    .status(404)
-                    .entity(entity)
-                    .type("application/hal+json")
-                    .header("X-Log-Token", validateOrCreateToken(logToken))
-                    .build();
+        Rendering rendering = render(greeting + "_" + language, 2, entity -> rendering(entity.toHATEOAS()));
+        if (rendering == null) {
+            logNotFound(logToken, greeting);
+            return NOT_FOUND_V2.build(validateOrCreateToken(logToken));
         }
-        return getResponse(request, logToken, greetingEntity.toHATEOAS(), 2);
+        return getResponse(request, logToken, rendering, 2);
     }
 
     private Response getGreetingMetadata(Request request, String accept, String acceptLanguage, String greeting, String logToken) {
         LOGGER.log(Level.INFO, "Greeting Metadata");
-        String entity = "{"
-                + "  \"metadata\":  {"
-                + "      \"versions\":\"....\","
-                + "      \"deprecations\":\"....\","
-                + "      \"relations\":\"....\","
-                + "      \"specifications\":\"....\","
-                + "      \"reports\":\"....\","
-                + "      \"issues\":\"....\","
-                + "      \"history\":\"....\","
-                + "      \"help\":\"....\""
-                + "      }"
-                + "}";
-        return Response
-                .status(200)
-                .entity(entity)
-                .type("application/hal+json;p=metadata")
-                .header("X-Log-Token", validateOrCreateToken(logToken))
-                .build();
+        return METADATA.build(validateOrCreateToken(logToken));
     }
 
     private Response.Status replaceGreeting(final String msg, String key, GreetingRepresentation receivedGreeting) {
@@ -633,7 +1238,10 @@ public class Greeting {
     private Response.Status createNewGreeting(GreetingRepresentation receivedGreeting, String resource, final String msg, String key, final String inconsistency) {
         LOGGER.log(Level.INFO, "Create new Greeting");
         Response.Status status;
-        if (isRessourceIdCorrect(receivedGreeting, resource)) {
+        if (RESERVED_NAMES.contains(getGreetingRef(receivedGreeting))) {
+            LOGGER.log(Level.INFO, "Greeting name is reserved for a sub-resource", msg);
+            status = Response.Status.BAD_REQUEST;
+        } else if (isRessourceIdCorrect(receivedGreeting, resource)) {
             LOGGER.log(Level.INFO, "Parsed New ", msg);
             GreetingRepresentation newGreeting = new GreetingRepresentation(receivedGreeting);
             status = Response.Status.CREATED;
@@ -646,7 +1254,6 @@ public class Greeting {
     }
 
     private Response getNoGreetingFound(String logToken, String key) {
-        LOGGER.log(Level.INFO, "No Greeting Found token: " + logToken +  " Greeeting: " + key);
         if ("hallihalleje_da".equals(key)) {
             return getMovedResponse(logToken);
         }
@@ -656,29 +1263,24 @@ public class Greeting {
         if ("rubbishcontent_da".equals(key)){
             return handle415Unsupported(logToken);
         }
-        String entity;
-        entity = "{"
-                + "\"message\":\"Sorry your representation does not exist yet!\","
-                + "\"_links\":{"
-                + "\"greetings\":{"
-                + "\"href\":\"/greetings\","
-                + "\"type\":\"application/hal+json\","
-                + "\"title\":\"List of existing greetings\""
-                + "}"
-                + "}"
-                + "}";
-        Response response = Response
-                .status(Response.Status.NOT_FOUND)
-                .entity(entity)
-                .type("application/hal+json")
-                .header("X-Log-Token", validateOrCreateToken(logToken))
-                .build();
-        return response;
+        logNotFound(logToken, key);
+        return NOT_FOUND.build(validateOrCreateToken(logToken));
     }
 
-    private Response getResponse(Request request, String logToken, String entity, int version) {
+    /**
+     * Logs the first miss and then every {@value #NOT_FOUND_LOG_INTERVAL}th, misses are common and mostly alike.
+     */
+    private static void logNotFound(String logToken, String key) {
+        long missed = notFound.incrementAndGet();
+        if (missed % NOT_FOUND_LOG_INTERVAL == 1 && LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "No Greeting Found token: {0} Greeting: {1} ({2} greetings not found so far)",
+                    new Object[]{logToken, key, missed});
+        }
+    }
+
+    private Response getResponse(Request request, String logToken, Rendering rendering, int version) {
         Date lastModified = getLastModified();
-        EntityTag eTag = getETag(entity);
+        EntityTag eTag = rendering.eTag;
         Response.ResponseBuilder builder = request.evaluatePreconditions(lastModified, eTag);
         if (builder != null) {
             LOGGER.info("* building * 301 * on basis of builder");
@@ -688,7 +1290,7 @@ public class Greeting {
         int maxAge = 60;
         cacheControl.setMaxAge(maxAge);
         return Response
-                .ok(entity)
+                .ok(rendering.entity)
                 .type("application/hal+json;p=greeting;v=" + version)
                 .cacheControl(cacheControl)
                 .tag(eTag)
@@ -697,6 +1299,97 @@ public class Greeting {
                 .build();
     }
 
+    /**
+     * Renders the stored greeting, concurrent requests for the same greeting and version share the rendering and
+     * the rendering is kept until the greeting changes.
+     *
+     * @return the rendering or null if no greeting is stored under the key
+     */
+    private Rendering render(String key, int version, GreetingRenderer renderer) {
+        GreetingRepresentation stored = representations.get(key);
+        if (stored == null) {
+            return null;
+        }
+        Rendering cached = rendered.get(key, version, stored);
+        if (cached != null) {
+            return cached;
+        }
+        return renderings.execute(key + ";v=" + version, () -> {
+            GreetingRepresentation entity = representations.get(key);
+            return entity == null ? null : rendered.put(key, version, entity, renderer.render(entity));
+        });
+    }
+
+    /**
+     * @return the entity tag of the greeting in its latest representation, the one its clients hold
+     */
+    private EntityTag eTagOf(String key, GreetingRepresentation stored) {
+        return halRendering(key, stored).eTag;
+    }
+
+    /**
+     * @return the greeting rendered in its latest representation
+     */
+    private static Rendering halRendering(String key, GreetingRepresentation stored) {
+        Rendering cached = rendered.get(key, 4, stored);
+        return cached != null ? cached : rendered.put(key, 4, stored, renderHAL(stored));
+    }
+
+    /**
+     * @return the greeting rendered in its latest representation, as sent in the events of the greetings
+     */
+    static byte[] halEntity(String key, GreetingRepresentation stored) {
+        return halRendering(key, stored).entity;
+    }
+
+    private static Rendering renderHAL(GreetingRepresentation entity) {
+        ObjectMapper mapper = new HALMapper();
+        try {
+            return rendering(mapper.writeValueAsString(entity));
+        } catch (JsonProcessingException ex) {
+            LOGGER.log(Level.WARNING, "Could not map entity:\n " + entity.toString(), ex);
+            return rendering(entity.toString());
+        }
+    }
+
+    private static Rendering rendering(String entity) {
+        return new Rendering(entity, getETag(entity));
+    }
+
+    /**
+     * Register the gauges of the renderings, unless they are registered already.
+     *
+     * @param metrics the application metrics registry
+     */
+    static void registerRenderMetrics(MetricRegistry metrics) {
+        synchronized (renderings) {
+            if (metrics.getGauges().containsKey("greetings.render.computed")) {
+                return;
+            }
+            metrics.register(new Metadata("greetings.render.computed", "Computed renderings",
+                            "the number of greeting renderings computed", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) renderings::getComputed);
+            metrics.register(new Metadata("greetings.render.coalesced", "Coalesced renderings",
+                            "the number of requests sharing a rendering computed concurrently for another request", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) renderings::getCoalesced);
+            metrics.register(new Metadata("greetings.render.coalescing-ratio", "Coalescing ratio",
+                            "the share of greeting requests served by a rendering computed for another request", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Double>) renderings::getCoalescingRatio);
+            metrics.register(new Metadata("greetings.render.cache-hits", "Cached renderings",
+                            "the number of greeting renderings served from the cache", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) rendered::getHits);
+            metrics.register(new Metadata("greetings.render.cache-misses", "Uncached renderings",
+                            "the number of greeting renderings not found in the cache", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) rendered::getMisses);
+            metrics.register(new Metadata("greetings.render.cache-invalidations", "Invalidated renderings",
+                            "the number of greetings whose cached renderings were dropped as the greeting changed", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) rendered::getInvalidations);
+            metrics.register(new Metadata("greetings.watch.waiting", "Waiting requests",
+                            "the number of requests waiting for a greeting to change", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Integer>) watched::getWaiting);
+        }
+    }
+
     private Response getPatchResponse(Response.Status status, String entity, String href, String logToken) {
         return Response
                 .status(status)
@@ -708,41 +1401,43 @@ public class Greeting {
 
     private Response getMovedResponse(String logToken) {
         LOGGER.info("Yeah - that was moved - redirecting to /greetings/hallo the default greeting");
-        String entity;
-        entity = "{"
-                + "\"message\":\"Sorry your representation does not exist yet!\","
-                + "\"_links\":{"
-                + "\"greetings\":{"
-                + "\"href\":\"/greetings\","
-                + "\"type\":\"application/hal+json\","
-                + "\"title\":\"List of existing greetings\""
-                + "}"
-                + "}"
-                + "}";
-        return Response
-                .status(Response.Status.MOVED_PERMANENTLY)
-                .entity(entity)
-                .type("application/hal+json")
-                .header("Location", "/greetings/hallo")
-                .header("X-Log-Token", validateOrCreateToken(logToken))
-                .build();
+        return MOVED.build(validateOrCreateToken(logToken));
     }
 
     private Response getProblemResponse(String logToken) {
         LOGGER.info("I see problems");
-        String entity;
-        entity = "{"
-                + "\"type\":\"non-existent greeting!\","
-                + "\"title\":\"Sorry your representation does not exist!\","
-                + "\"detail\":\"You can create one using POST at greetings or PUT at greetings/{greeting}\""
-                + "}";
-        return Response
-                .status(Response.Status.NOT_FOUND)
-                .entity(entity)
-                .type("application/problem+json")
-                .header("Location", "/greetings")
-                .header("X-Log-Token", validateOrCreateToken(logToken))
-                .build();
+        return PROBLEM.build(validateOrCreateToken(logToken));
+    }
+
+    private static String searchHref(String query, int offset, int limit) {
+        try {
+            return "/greetings/search?q=" + URLEncoder.encode(query, "UTF-8") + "&offset=" + offset + "&limit=" + limit;
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is always supported", e);
+        }
+    }
+
+    /**
+     * @return the seconds to wait for a change as preferred with {@code wait=N}, or 0 if no wait is preferred
+     */
+    private static long preferredWait(String prefer) {
+        if (prefer == null) {
+            return 0;
+        }
+        for (String preference : prefer.split("[,;]")) {
+            String[] token = preference.split("=", 2);
+            if (token.length == 2 && "wait".equalsIgnoreCase(token[0].trim())) {
+                return waitSeconds(token[1].trim().replace("\"", ""));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the seconds to wait for a change, or 0 if they are not a number of at most 9 digits
+     */
+    private static long waitSeconds(String seconds) {
+        return seconds.matches("[0-9]{1,9}") ? Long.parseLong(seconds) : 0;
     }
 
     private String preferredLanguage(String preferred) {
@@ -761,38 +1456,43 @@ public class Greeting {
         return Date.from(Instant.ofEpochMilli(1565074000000L)); // Tue, 06 Aug 2019 06:46:40 GMT
     }
 
-    private EntityTag getETag(String entity) {
+    private static EntityTag getETag(String entity) {
         if (entity == null) entity = representations.getChCode();
         return new EntityTag(Integer.toHexString(entity.hashCode()), false);
     }
 
     private String validateOrCreateToken(String token) {
-        if (token != null && !"".equals(token)) {
-            return token;
-        }
-        return UUID.randomUUID().toString();
+        return logTokens.validateOrCreate(token);
     }
 
     interface GreetingProducer {
         Response getResponse(Request request, String accept, String acceptLanguage, String greeting, String logToken);
     }
 
+    interface GreetingRenderer {
+        Rendering render(GreetingRepresentation entity);
+    }
+
+    /**
+     * A greeting rendered in a given representation together with its entity tag.
+     * <p>
+     * The rendering is kept encoded, so the response is sent straight from it as a single chunk of a known length.
+     */
+    private static final class Rendering {
+        private final byte[] entity;
+        private final EntityTag eTag;
+
+        private Rendering(String entity, EntityTag eTag) {
+            this.entity = entity.getBytes(StandardCharsets.UTF_8);
+            this.eTag = eTag;
+        }
+    }
+
     private Response handle406UnsupportedGreetings(Request request, String... params) {
-        String msg = Arrays.toString(params);
-        LOGGER.log(Level.INFO, "Attempted to get a list by an unsupported content type {0}", msg);
-        String entity;
-        entity = "{"
-                + "  \"message\":\"Sorry your representation of greetings does not exist!\","
-                + "  \"accepted\":{"
-                + "    \"application/json\", \"application/hal+json\", \"application/json;p=greeting\","
-                + "    \"application/json;p=greetings;v=2\", \"application/json;p=greetings;v=1\", "
-                + "    \"application/hal+json;p=metadata\""
-                + "  }"
-                + "}";
-        return Response
-                .status(Response.Status.NOT_ACCEPTABLE)
-                .entity(entity)
-                .build();
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Attempted to get a list by an unsupported content type {0}", Arrays.toString(params));
+        }
+        return NOT_ACCEPTABLE.builder().build();
     }
 
     private Response handle415Unsupported(String token) {
@@ -847,6 +1547,39 @@ public class Greeting {
         return result;
     }
 
+    private void parseBatchItem(ObjectMapper mapper, JsonNode node, String defaultLanguage, BatchItem item) {
+        try {
+            GreetingRepresentation greeting = new GreetingRepresentation(mapper.treeToValue(node, GreetingRepresentation.class));
+            item.error = GreetingCatalog.rejection(greeting);
+            if (item.error != null) {
+                return;
+            }
+            item.greeting = greeting;
+            item.key = GreetingCatalog.keyOf(greeting, defaultLanguage);
+            item.language = item.key.substring(item.key.lastIndexOf('_') + 1);
+            item.eTag = getETag(mapper.writeValueAsString(greeting));
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            LOGGER.log(Level.INFO, "Batch item " + item.index + " could not be parsed", ex);
+            item.error = "greeting could not be parsed";
+        }
+    }
+
+    /**
+     * The outcome of parsing a single greeting in a batch, either a key, representation and eTag or an error.
+     */
+    private static final class BatchItem {
+        private final int index;
+        private String key;
+        private String language;
+        private GreetingRepresentation greeting;
+        private EntityTag eTag;
+        private String error;
+
+        private BatchItem(int index) {
+            this.index = index;
+        }
+    }
+
     private boolean isRessourceIdCorrect(GreetingRepresentation greeting, String resource) {
         return greeting.getSelf().getHref().contains(resource);
     }
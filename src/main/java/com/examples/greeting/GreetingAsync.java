@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import com.examples.patch.JSONPatch;
+import io.swagger.annotations.ApiOperation;
+
+import javax.validation.constraints.Pattern;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The asynchronous variant of the greetings resource, addressed as {@code /greetings/async}.
+ * <p>
+ * Creating, listing, reading, replacing, deleting and JSON-patching a greeting mirror the synchronous endpoints
+ * in {@link Greeting}, but the work is handed to the {@link GreetingExecutor} and the request thread is released
+ * at once. Merge patches, batches, export, import, search, changes and events have no asynchronous variant.
+ */
+public class GreetingAsync {
+
+    private final Greeting greeting;
+    private final GreetingExecutor executor;
+
+    GreetingAsync(Greeting greeting, GreetingExecutor executor) {
+        this.greeting = greeting;
+        this.executor = executor;
+    }
+
+    /**
+     * Create a new representation asynchronously.
+     *
+     * @param request the actual request
+     * @param acceptLanguage the preferred language
+     * @param logToken a correlation id for a consumer
+     * @param idempotencyKey a consumer chosen key identifying the creation across retries
+     * @param body a json formatted input
+     * @return the response when the representation is created
+     * @see Greeting#createNewGreeting(Request, String, String, String, String)
+     */
+    @POST
+    @Produces({"application/hal+json"})
+    @Consumes({"application/json"})
+    @ApiOperation(value = "create a new representation asynchronously")
+    public CompletionStage<Response> createNewGreeting(
+            @Context Request request,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @HeaderParam("Idempotency-Key") @Pattern(regexp = "^[\\x21-\\x7e]{1,255}$") String idempotencyKey,
+            String body) {
+        return executor.submit(() -> greeting.createNewGreeting(request, acceptLanguage, logToken, idempotencyKey, body));
+    }
+
+    /**
+     * List all greetings asynchronously.
+     *
+     * @param request the actual request
+     * @param accept the accepted response format
+     * @param acceptLanguage the preferred language
+     * @param logToken a correlation id for a consumer
+     * @param eTag the concrete instance of the lists contents version seen temporally
+     * @return the response containing the list
+     * @see Greeting#getGreetingsList(Request, String, String, String, String)
+     */
+    @GET
+    @Produces({"application/hal+json", "application/json"})
+    @ApiOperation(value = "list all greetings asynchronously", response = GreetingsRepresentation.class)
+    public CompletionStage<Response> getGreetingsList(
+            @Context Request request,
+            @HeaderParam("Accept") String accept,
+            @HeaderParam("Accept-Language")
+            @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @HeaderParam("If-None-Match") String eTag) {
+        return executor.submit(() -> greeting.getGreetingsList(request, accept, acceptLanguage, logToken, eTag));
+    }
+
+    /**
+     * Create or replace a representation asynchronously.
+     *
+     * @param request the received request
+     * @param acceptLanguage the preferred language
+     * @param logToken a correlation id for a consumer
+     * @param eTag the actual instance content version for a given representation
+     * @param resource the concrete resource
+     * @param body a json formatted input
+     * @return the response when the representation is stored
+     * @see Greeting#replaceOrCreateGreeting(Request, String, String, String, String, String)
+     */
+    @PUT
+    @Path("{representation}")
+    @Produces({"application/hal+json"})
+    @Consumes({"application/json"})
+    @ApiOperation(value = "replace a representation asynchronously", response = GreetingRepresentation.class)
+    public CompletionStage<Response> replaceOrCreateGreeting(
+            @Context Request request,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @HeaderParam("If-None-Match") String eTag,
+            @PathParam("representation") @Pattern(regexp = "^[a-z0-9\\-]+$") String resource,
+            String body) {
+        return executor.submit(() -> greeting.replaceOrCreateGreeting(request, acceptLanguage, logToken, eTag, resource, body));
+    }
+
+    /**
+     * Delete a representation asynchronously.
+     *
+     * @param request the actual request received
+     * @param accept the chosen accepted content-type by consumer
+     * @param acceptLanguage client can set the preferred preferredLanguage(s) as in HTTP spec.
+     * @param logToken a correlation id for a consumer
+     * @param eTag the actual instance content version for a given representation
+     * @param resource the representation to delete.
+     * @return the response when the representation is deleted
+     * @see Greeting#deleteGreeting(Request, String, String, String, String, String)
+     */
+    @DELETE
+    @Path("{representation}")
+    @Consumes({"application/json"})
+    @ApiOperation(value = "delete a representation asynchronously")
+    public CompletionStage<Response> deleteGreeting(
+            @Context Request request,
+            @HeaderParam("Accept") String accept,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @HeaderParam("If-None-Match") String eTag,
+            @PathParam("representation") @Pattern(regexp = "[a-z]*") String resource) {
+        return executor.submit(() -> greeting.deleteGreeting(request, accept, acceptLanguage, logToken, eTag, resource));
+    }
+
+    /**
+     * Update a representation asynchronously.
+     *
+     * @param request the actual request
+     * @param accept the chosen accepted content-type by consumer
+     * @param acceptLanguage client can set the preferred preferredLanguage(s) as in HTTP spec.
+     * @param eTag the expected state for the representation to be updated
+     * @param logToken a correlation id for a consumer
+     * @param resource the representation to update.
+     * @param patch the patch that is used for updating the representation
+     * @return the response when the representation is updated
+     * @see Greeting#updateGreeting(Request, String, String, String, String, String, JSONPatch)
+     */
+    @PATCH
+    @Path("{representation}")
+    @Consumes({"application/patch+json", "application/json"})
+    @Produces({"application/json"})
+    @ApiOperation(value = "update a representation asynchronously")
+    public CompletionStage<Response> updateGreeting(
+            @Context Request request,
+            @HeaderParam("Accept") String accept,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("If-None-Match") String eTag,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @PathParam("representation") @Pattern(regexp = "[a-z]*") String resource,
+            JSONPatch patch) {
+        return executor.submit(() -> greeting.updateGreeting(request, accept, acceptLanguage, eTag, logToken, resource, patch));
+    }
+
+    /**
+     * Get a representation asynchronously.
+     *
+     * @param request the actual request
+     * @param uriInfo the URI information
+     * @param accept the chosen accepted content-type by consumer
+     * @param acceptLanguage client can set the preferred preferredLanguage(s) as in HTTP spec.
+     * @param logToken a correlation id for a consumer
+     * @param eTag the version of the list, it changes every time the list is changed
+     * @param resource the representation wanted by consumer
+     * @return the response containing the representation
+     * @see Greeting#getGreeting(Request, String, String, String, String)
+     */
+    @GET
+    @Path("{representation}")
+    @Produces({"application/json", "application/hal+json"})
+    @ApiOperation(value = "get a representation asynchronously", response = GreetingRepresentation.class)
+    public CompletionStage<Response> getGreeting(
+            @Context Request request, @Context UriInfo uriInfo,
+            @HeaderParam("Accept") String accept,
+            @HeaderParam("Accept-Language") @Pattern(regexp = "^((\\s*[a-z]{2},{0,1}(-{0,1}[a-z]{2}){0,1})+(;q=0\\.[1-9]){0,1},{0,1})+") String acceptLanguage,
+            @HeaderParam("X-Log-Token") @Pattern(regexp = "^[a-zA-Z0-9\\-]{36}$") String logToken,
+            @HeaderParam("If-None-Match") String eTag,
+            @PathParam("representation") @Pattern(regexp = "[a-z]*") String resource) {
+        return executor.submit(() -> greeting.getGreeting(request, accept, acceptLanguage, logToken, resource));
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import com.examples.RepresentationContainer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.openapitools.jackson.dataformat.hal.HALLink;
+import io.openapitools.jackson.dataformat.hal.HALMapper;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Export and import of the complete set of greetings as newline delimited json (application/x-ndjson).
+ * <p>
+ * Every line is a greeting in the same format as used for creating it, with the language of the greeting as the
+ * hreflang of its self link, so an export can be imported again or posted to {@code /greetings/batch}. A greeting
+ * whose self link is not a uri cannot be imported again and is left out of the export.
+ * Both directions stream, an export writes from a snapshot of the greetings and an import stores the greetings
+ * in chunks of a configurable size, so neither holds more than a chunk of greetings besides the greetings themselves.
+ * The snapshot holds a reference to every greeting, the greetings are serialized as they are written. Exports can
+ * instead be written to a file kept while the greetings do not change, trading a full write for every version of the
+ * greetings against sending repeated exports without serializing them again.
+ */
+@ApplicationScoped
+public class GreetingCatalog {
+
+    private static final Logger LOGGER = Logger.getLogger(GreetingCatalog.class.getName());
+    private static final long PROGRESS_INTERVAL = 100_000;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectMapper mapper;
+    private final int chunkSize;
+    private final boolean exportFileCached;
+
+    private final LongAdder exported = new LongAdder();
+    private ExportFile exportFile;
+    private ExportFile previousExportFile;
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Create the catalog from configuration and register its progress counters.
+     *
+     * @param chunkSize the number of imported greetings stored together
+     * @param exportFileCached whether exports are written to a file kept until the greetings change
+     * @param metrics the application metrics registry
+     */
+    @Inject
+    public GreetingCatalog(@ConfigProperty(name = "app.import.chunk-size", defaultValue = "1000") int chunkSize,
+                           @ConfigProperty(name = "app.export.cache-file", defaultValue = "false") boolean exportFileCached,
+                           MetricRegistry metrics) {
+        this(chunkSize, exportFileCached);
+        registerProgressMetrics(metrics);
+    }
+
+    GreetingCatalog(int chunkSize) {
+        this(chunkSize, false);
+    }
+
+    GreetingCatalog(int chunkSize, boolean exportFileCached) {
+        this.mapper = new HALMapper();
+        this.reader = mapper.readerFor(JsonNode.class);
+        this.writer = mapper.writerFor(GreetingRepresentation.class);
+        this.chunkSize = chunkSize;
+        this.exportFileCached = exportFileCached;
+    }
+
+    /**
+     * Write every greeting in the container as a line of json.
+     * <p>
+     * The greetings written are the ones in the container when the export starts, changes made while it is
+     * written are not part of it.
+     *
+     * @param greetings the greetings to export, keyed by {@code <greeting>_<language>}
+     * @param output where the lines are written
+     * @return the number of greetings written
+     * @throws IOException if the output cannot be written
+     */
+    public long export(RepresentationContainer<String, GreetingRepresentation> greetings, OutputStream output) throws IOException {
+        return export(greetings.snapshot(), output);
+    }
+
+    /**
+     * Write every greeting of a snapshot as a line of json, as they are serialized.
+     *
+     * @param snapshot the greetings to export, keyed by {@code <greeting>_<language>}
+     * @param output where the lines are written
+     * @return the number of greetings written
+     * @throws IOException if the output cannot be written
+     */
+    public long export(RepresentationContainer.Snapshot<String, GreetingRepresentation> snapshot, OutputStream output) throws IOException {
+        LOGGER.log(Level.INFO, "Exporting {0} Greetings at version {1}",
+                new Object[]{snapshot.size(), Integer.toHexString(snapshot.getVersion())});
+        OutputStream out = new BufferedOutputStream(output, OUTPUT_BUFFER_SIZE);
+        long written = 0;
+        for (Map.Entry<String, GreetingRepresentation> entry : snapshot.getEntries()) {
+            GreetingRepresentation greeting;
+            try {
+                greeting = withLanguage(entry.getValue(), languageOf(entry.getKey()));
+            } catch (IllegalArgumentException ex) {
+                LOGGER.log(Level.WARNING, "Greeting {0} is not exported, its self link is not a uri: {1}",
+                        new Object[]{entry.getKey(), ex.getMessage()});
+                continue;
+            }
+            out.write(writer.writeValueAsBytes(greeting));
+            out.write('\n');
+            exported.increment();
+            if (++written % PROGRESS_INTERVAL == 0) {
+                LOGGER.log(Level.INFO, "Exported {0} of {1} Greetings", new Object[]{written, snapshot.size()});
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * @return true if exports are written to a file kept for the following exports, false if they are streamed
+     */
+    public boolean isExportFileCached() {
+        return exportFileCached;
+    }
+
+    /**
+     * Write the greetings to a file, to be sent as it is.
+     * <p>
+     * The file is written once for every version of the greetings and kept while they do not change, so exports of
+     * the same greetings are sent from the same file without being written again. Exports of a new version are
+     * written in parallel, the first one written is kept and sent by all of them. When a file is kept for a new version, the file of the
+     * version before the previous one is deleted, a response may be about to open the previous one. A response keeps
+     * the file it sends open, so a file deleted while it is sent is still sent whole. The files left are deleted when
+     * the catalog is destroyed.
+     *
+     * @param greetings the greetings to export, keyed by {@code <greeting>_<language>}
+     * @return the file with a line of json for every greeting and the version of the greetings in it
+     * @throws IOException if the file cannot be written
+     */
+    public ExportFile exportFile(RepresentationContainer<String, GreetingRepresentation> greetings) throws IOException {
+        synchronized (this) {
+            if (exportFile != null && exportFile.version == greetings.getVersion() && Files.exists(exportFile.path)) {
+                return exportFile;
+            }
+        }
+        RepresentationContainer.Snapshot<String, GreetingRepresentation> snapshot = greetings.snapshot();
+        Path file = Files.createTempFile("greetings-" + Integer.toHexString(snapshot.getVersion()) + "-", ".ndjson");
+        try (OutputStream output = Files.newOutputStream(file)) {
+            export(snapshot, output);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+        ExportFile written = new ExportFile(snapshot.getVersion(), file);
+        synchronized (this) {
+            if (exportFile != null && exportFile.version - written.version >= 0) {
+                // a file of the same or a later version was kept while this one was written
+                delete(written);
+                return exportFile;
+            }
+            delete(previousExportFile);
+            previousExportFile = exportFile;
+            exportFile = written;
+            return written;
+        }
+    }
+
+    @PreDestroy
+    synchronized void deleteExportFiles() {
+        delete(previousExportFile);
+        delete(exportFile);
+        previousExportFile = null;
+        exportFile = null;
+    }
+
+    private static void delete(ExportFile export) {
+        if (export == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(export.path);
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Could not delete the export " + export.path, ex);
+        }
+    }
+
+    /**
+     * Read lines of json greetings and store them in the container a chunk at a time.
+     * <p>
+     * Greetings that cannot be mapped or has no valid self link are rejected and counted, the import continues
+     * with the next line. If the input itself is broken the import stops, the chunks stored until then are kept.
+     *
+     * @param input the lines of json greetings
+     * @param greetings the container storing the greetings
+     * @param defaultLanguage the language for greetings without a hreflang in their self link
+     * @return the outcome of the import
+     */
+    public ImportResult importFrom(InputStream input, RepresentationContainer<String, GreetingRepresentation> greetings,
+                                   String defaultLanguage) {
+        ImportResult result = new ImportResult();
+        Map<String, GreetingRepresentation> chunk = new HashMap<>();
+        try (MappingIterator<JsonNode> lines = reader.readValues(input)) {
+            while (lines.hasNextValue()) {
+                JsonNode line = lines.nextValue();
+                result.read++;
+                try {
+                    GreetingRepresentation greeting = mapper.treeToValue(line, GreetingRepresentation.class);
+                    String rejection = rejection(greeting);
+                    if (rejection != null) {
+                        reject(result, rejection);
+                        continue;
+                    }
+                    chunk.put(keyOf(greeting, defaultLanguage), greeting);
+                } catch (JsonProcessingException | IllegalArgumentException ex) {
+                    reject(result, "greeting could not be mapped: " + ex.getMessage());
+                    continue;
+                }
+                if (chunk.size() >= chunkSize) {
+                    store(chunk, greetings, result);
+                }
+                if (result.read % PROGRESS_INTERVAL == 0) {
+                    LOGGER.log(Level.INFO, "Imported {0} Greetings", result.read);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Sorry, the import stopped after " + result.read + " Greetings", ex);
+            result.error = "input could not be parsed after " + result.read + " greetings";
+        }
+        store(chunk, greetings, result);
+        LOGGER.log(Level.INFO, "Imported {0} Greetings, {1} rejected - in total ({2})",
+                new Object[]{result.stored, result.rejected, greetings.size()});
+        return result;
+    }
+
+    /**
+     * @return the number of greetings written by exports
+     */
+    public long getExported() {
+        return exported.sum();
+    }
+
+    /**
+     * @return the number of greetings stored by imports
+     */
+    public long getImported() {
+        return imported.sum();
+    }
+
+    /**
+     * @return the number of greetings rejected by imports
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @param greeting a received greeting
+     * @return why the greeting cannot be stored, or null if it can
+     */
+    static String rejection(GreetingRepresentation greeting) {
+        HALLink self = greeting.getSelf();
+        if (self == null || self.getHref() == null || !self.getHref().contains("greetings/")) {
+            return "greeting must have a self link to greetings/{greeting}";
+        }
+        String ref = refOf(greeting);
+        if (!ref.matches("^[a-z0-9\\-]+$")) {
+            return "greeting reference is not valid: " + ref;
+        }
+        if (Greeting.RESERVED_NAMES.contains(ref)) {
+            return "greeting reference is reserved: " + ref;
+        }
+        return null;
+    }
+
+    /**
+     * @param greeting a valid greeting
+     * @param defaultLanguage the language used if the self link of the greeting has no hreflang
+     * @return the key of the greeting in the form {@code <greeting>_<language>}
+     */
+    static String keyOf(GreetingRepresentation greeting, String defaultLanguage) {
+        String hreflang = greeting.getSelf().getHreflang();
+        return refOf(greeting) + "_" + (hreflang == null || hreflang.isEmpty() ? defaultLanguage : hreflang);
+    }
+
+    private static String refOf(GreetingRepresentation greeting) {
+        String href = greeting.getSelf().getHref();
+        return href.substring(href.indexOf("greetings/") + "greetings/".length()).toLowerCase();
+    }
+
+    private static String languageOf(String key) {
+        return key.substring(key.lastIndexOf('_') + 1);
+    }
+
+    /**
+     * @return the greeting with the language as the hreflang of its self link, every other member of the link kept
+     * @throws IllegalArgumentException if the self link of the greeting is not a uri
+     */
+    private static GreetingRepresentation withLanguage(GreetingRepresentation greeting, String language) {
+        HALLink self = greeting.getSelf();
+        if (self == null || language.equals(self.getHreflang())) {
+            return greeting;
+        }
+        HALLink.Builder link = Boolean.TRUE.equals(self.getTemplated())
+                ? new HALLink.Builder(self.getHref())
+                : new HALLink.Builder(URI.create(self.getHref()));
+        link.type(self.getType()).deprecation(self.getDeprecation()).name(self.getName()).profile(self.getProfile())
+                .title(self.getTitle()).hreflang(language);
+        if (self.getSeen() != null) {
+            link.seen(self.getSeen());
+        }
+        return new GreetingRepresentation(greeting.getGreeting(), greeting.getLanguage(), greeting.getCountry(),
+                greeting.getNative(), link.build());
+    }
+
+    private void reject(ImportResult result, String reason) {
+        result.rejected++;
+        rejected.increment();
+        if (result.rejected <= 10) {
+            LOGGER.log(Level.INFO, "Import rejected greeting {0}: {1}", new Object[]{result.read, reason});
+        }
+    }
+
+    private void store(Map<String, GreetingRepresentation> chunk, RepresentationContainer<String, GreetingRepresentation> greetings,
+                       ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        greetings.addAll(chunk);
+        result.stored += chunk.size();
+        imported.add(chunk.size());
+        chunk.clear();
+    }
+
+    private void registerProgressMetrics(MetricRegistry metrics) {
+        synchronized (GreetingCatalog.class) {
+            if (metrics.getGauges().containsKey("greetings.export.written")) {
+                return;
+            }
+            metrics.register(new Metadata("greetings.export.written", "Exported greetings",
+                            "the number of greetings written by exports", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getExported);
+            metrics.register(new Metadata("greetings.import.stored", "Imported greetings",
+                            "the number of greetings stored by imports", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getImported);
+            metrics.register(new Metadata("greetings.import.rejected", "Rejected greetings",
+                            "the number of greetings rejected by imports", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getRejected);
+        }
+    }
+
+    /**
+     * The counters of a single import.
+     */
+    public static final class ImportResult {
+        private long read;
+        private long stored;
+        private long rejected;
+        private String error;
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getStored() {
+            return stored;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return why the import stopped before the end of the input, or null if all of it was read
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * A file written by an export and the version of the greetings in it.
+     */
+    public static final class ExportFile {
+        private final int version;
+        private final Path path;
+
+        private ExportFile(int version, Path path) {
+            this.version = version;
+            this.path = path;
+        }
+
+        /**
+         * @return the version of the greetings exported
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the file with a line of json for every greeting
+         */
+        public Path getPath() {
+            return path;
+        }
+    }
+}
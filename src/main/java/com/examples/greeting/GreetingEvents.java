@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.examples.greeting;
+
+import com.examples.ChangeFeed;
+import com.examples.RepresentationContainer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.glassfish.jersey.server.ChunkedOutput;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The changes of the greetings streamed as server-sent events from {@code /greetings/events}.
+ * <p>
+ * Every change is an event with the version of the greetings as its id and the change as a JSON patch operation like
+ * those of {@code /greetings/changes} as its data, named {@code create}, {@code replace} or {@code delete}. A client
+ * reconnecting with the {@code Last-Event-ID} it got last is sent the changes it missed first, or a {@code resync}
+ * event followed by every greeting if they are no longer known.
+ * <p>
+ * The events are written by a few shared threads, each connection has a bounded queue of events and the connections
+ * falling behind are disconnected, see {@link ChangeFeed}. A write never waits for a client, a connection whose client
+ * does not read the events already sent fails the next write and is disconnected like a full queue. Idle connections
+ * get a comment now and then, so the connections closed by the clients are noticed and proxies do not time them out.
+ */
+@ApplicationScoped
+public class GreetingEvents {
+
+    private static final Logger LOGGER = Logger.getLogger(GreetingEvents.class.getName());
+    private static final JsonFactory EVENTS = new JsonFactory();
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final int queueSize;
+    private final long retryMillis;
+    private final ScheduledExecutorService writers;
+    private ChangeFeed<String, GreetingRepresentation> feed;
+
+    /**
+     * Create the events from configuration and register their gauges.
+     *
+     * @param queueSize the number of events queued for a connection at most
+     * @param writerThreads the number of threads writing the events
+     * @param heartbeatSeconds the time between comments sent to idle connections
+     * @param retryMillis the time clients are told to wait before reconnecting
+     * @param metrics the application metrics registry
+     */
+    @Inject
+    public GreetingEvents(@ConfigProperty(name = "app.events.queue-size", defaultValue = "256") int queueSize,
+                          @ConfigProperty(name = "app.events.writer-threads", defaultValue = "4") int writerThreads,
+                          @ConfigProperty(name = "app.events.heartbeat-seconds", defaultValue = "15") long heartbeatSeconds,
+                          @ConfigProperty(name = "app.events.retry-millis", defaultValue = "2000") long retryMillis,
+                          MetricRegistry metrics) {
+        this.queueSize = queueSize;
+        this.retryMillis = retryMillis;
+        this.writers = Executors.newScheduledThreadPool(writerThreads, new EventThreadFactory());
+        this.writers.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        registerMetrics(metrics);
+        LOGGER.log(Level.INFO, "Greeting events written by {0} threads with {1} queued events per connection",
+                new Object[]{writerThreads, queueSize});
+    }
+
+    /**
+     * Subscribe a new connection to the changes of the greetings.
+     *
+     * @param greetings the greetings whose changes are streamed
+     * @param lastEventId the id of the last event the client got, or null for the changes from now on
+     * @return the stream of events of the connection
+     */
+    public ChunkedOutput<byte[]> subscribe(RepresentationContainer<String, GreetingRepresentation> greetings, String lastEventId) {
+        ChunkedOutput<byte[]> output = new ChunkedOutput<>(byte[].class);
+        OutputSink sink = new OutputSink(output);
+        try {
+            // sent first so the response starts right away rather than with the first change
+            output.write(("retry: " + retryMillis + "\n\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ChangeFeed<String, GreetingRepresentation> changes = feed(greetings);
+        if (lastEventId == null) {
+            changes.subscribe(sink);
+        } else {
+            changes.subscribe(sink, versionOf(lastEventId));
+        }
+        return output;
+    }
+
+    /**
+     * @return the number of connections streaming events
+     */
+    public int getSubscribers() {
+        ChangeFeed<String, GreetingRepresentation> current = current();
+        return current == null ? 0 : current.getSubscribers();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ChangeFeed<String, GreetingRepresentation> current = current();
+        if (current != null) {
+            current.close();
+        }
+        writers.shutdown();
+    }
+
+    /**
+     * @return the version the event id tells, or a version no container has, which makes the client resync
+     */
+    static int versionOf(String eventId) {
+        try {
+            return Integer.parseUnsignedInt(eventId.trim(), 16);
+        } catch (NumberFormatException ex) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return the event telling a change of a greeting
+     */
+    static byte[] changeEvent(int version, String key, GreetingRepresentation previous, GreetingRepresentation current) {
+        StringWriter data = new StringWriter();
+        try (JsonGenerator json = EVENTS.createGenerator(data)) {
+            json.writeStartObject();
+            json.writeStringField("op", current == null ? "remove" : previous == null ? "add" : "replace");
+            json.writeStringField("path", "/" + key.replace("~", "~0").replace("/", "~1"));
+            if (current != null) {
+                json.writeFieldName("value");
+                json.writeRawValue(new String(Greeting.halEntity(key, current), StandardCharsets.UTF_8));
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String event = current == null ? "delete" : previous == null ? "create" : "replace";
+        return ("id: " + Integer.toHexString(version) + "\nevent: " + event + "\ndata: " + data + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the event telling the client to drop the greetings it has, every greeting is sent as created next
+     */
+    static byte[] resyncEvent(int version) {
+        String id = Integer.toHexString(version);
+        return ("id: " + id + "\nevent: resync\ndata: {\"version\":\"" + id + "\"}\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private synchronized ChangeFeed<String, GreetingRepresentation> feed(RepresentationContainer<String, GreetingRepresentation> greetings) {
+        if (feed == null) {
+            feed = new ChangeFeed<>(greetings, new ChangeFeed.Encoder<String, GreetingRepresentation>() {
+                @Override
+                public byte[] change(int version, String key, GreetingRepresentation previous, GreetingRepresentation current) {
+                    return changeEvent(version, key, previous, current);
+                }
+
+                @Override
+                public byte[] resync(int version) {
+                    return resyncEvent(version);
+                }
+            }, writers, queueSize);
+            feed.open();
+        }
+        return feed;
+    }
+
+    private synchronized ChangeFeed<String, GreetingRepresentation> current() {
+        return feed;
+    }
+
+    private void heartbeat() {
+        ChangeFeed<String, GreetingRepresentation> current = current();
+        if (current != null) {
+            current.heartbeat(HEARTBEAT);
+        }
+    }
+
+    private long getCoalesced() {
+        ChangeFeed<String, GreetingRepresentation> current = current();
+        return current == null ? 0 : current.getCoalesced();
+    }
+
+    private long getDisconnected() {
+        ChangeFeed<String, GreetingRepresentation> current = current();
+        return current == null ? 0 : current.getDisconnected();
+    }
+
+    private void registerMetrics(MetricRegistry metrics) {
+        synchronized (GreetingEvents.class) {
+            if (metrics.getGauges().containsKey("greetings.events.subscribers")) {
+                return;
+            }
+            metrics.register(new Metadata("greetings.events.subscribers", "Event subscribers",
+                            "the number of connections streaming the changes of the greetings", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Integer>) this::getSubscribers);
+            metrics.register(new Metadata("greetings.events.coalesced", "Coalesced events",
+                            "the number of queued changes merged as a connection fell behind", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getCoalesced);
+            metrics.register(new Metadata("greetings.events.disconnected", "Disconnected subscribers",
+                            "the number of connections closed as they fell too far behind", MetricType.GAUGE, MetricUnits.NONE),
+                    (Gauge<Long>) this::getDisconnected);
+        }
+    }
+
+    /**
+     * Sends the events of a connection to its chunked output.
+     */
+    private static final class OutputSink implements ChangeFeed.Sink {
+        private final ChunkedOutput<byte[]> output;
+
+        private OutputSink(ChunkedOutput<byte[]> output) {
+            this.output = output;
+        }
+
+        @Override
+        public void send(byte[] event) throws IOException {
+            output.write(event);
+        }
+
+        @Override
+        public void close() {
+            try {
+                output.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Could not close the events of a connection", e);
+            }
+        }
+    }
+
+    private static final class EventThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "greeting-events-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.examples.greeting;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.ServiceUnavailableException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded executor for the asynchronous greeting endpoints.
+ * <p>
+ * The work is kept away from the Netty event loops and the Jersey request threads, the pool size and the
+ * number of waiting tasks are both bounded, and work that cannot be queued is answered with
+ * {@code 503 Service Unavailable} instead of piling up.
+ */
+@ApplicationScoped
+public class GreetingExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(GreetingExecutor.class.getName());
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create the executor from configuration.
+     *
+     * @param poolSize the number of threads serving asynchronous requests
+     * @param queueSize the number of requests that may wait for a thread
+     */
+    @Inject
+    public GreetingExecutor(@ConfigProperty(name = "app.async.pool-size", defaultValue = "16") int poolSize,
+                            @ConfigProperty(name = "app.async.queue-size", defaultValue = "256") int queueSize) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new GreetingThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        LOGGER.log(Level.INFO, "Asynchronous greetings served by {0} threads with {1} queued requests",
+                new Object[]{poolSize, queueSize});
+    }
+
+    /**
+     * Run a task on the executor.
+     *
+     * @param task the work to be done
+     * @param <T> the type of the result
+     * @return the result when done, or a {@link ServiceUnavailableException} if the executor is saturated
+     */
+    public <T> CompletionStage<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException ree) {
+            LOGGER.log(Level.WARNING, "Asynchronous greetings saturated, active threads {0}", executor.getActiveCount());
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new ServiceUnavailableException(RETRY_AFTER_SECONDS, ree));
+            return rejected;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class GreetingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "greeting-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import com.examples.ExpiringCache;
+import com.examples.SingleFlight;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the outcome of requests sent with an {@code Idempotency-Key}, so a retried request gets the outcome of
+ * the first one instead of being carried out again.
+ * <p>
+ * Only successful creations are kept, a request that failed can be retried as it is. A retry is recognised by its
+ * key and the fingerprint of the request, a key used again for a different request is answered with
+ * {@code 422 Unprocessable Entity}. Retries arriving while the first request is still being carried out wait for it.
+ */
+@ApplicationScoped
+public class GreetingIdempotency {
+
+    private static final Logger LOGGER = Logger.getLogger(GreetingIdempotency.class.getName());
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
+    private final ExpiringCache<String, Outcome> outcomes;
+    private final SingleFlight<String, Outcome> inFlight = new SingleFlight<>();
+
+    /**
+     * Create the store of outcomes from configuration.
+     *
+     * @param maxEntries the maximum number of outcomes kept
+     * @param timeToLive the number of seconds an outcome is kept
+     */
+    @Inject
+    public GreetingIdempotency(@ConfigProperty(name = "app.idempotency.max-entries", defaultValue = "10000") int maxEntries,
+                               @ConfigProperty(name = "app.idempotency.ttl-seconds", defaultValue = "86400") long timeToLive) {
+        this.outcomes = new ExpiringCache<>(maxEntries, Duration.ofSeconds(timeToLive));
+    }
+
+    /**
+     * Carry out a request once for an idempotency key.
+     *
+     * @param key the idempotency key sent by the consumer
+     * @param fingerprint identifies the request, the same request gives the same fingerprint
+     * @param logToken the correlation id for the response
+     * @param request carries out the request
+     * @return the response of the request, or the replayed outcome of the first request with the same key
+     */
+    public Response execute(String key, String fingerprint, String logToken, Supplier<Response> request) {
+        Outcome stored = outcomes.get(key);
+        if (stored != null) {
+            return replay(key, stored, fingerprint, logToken);
+        }
+        AtomicReference<Response> carriedOut = new AtomicReference<>();
+        Outcome outcome = inFlight.execute(key, () -> {
+            Outcome previous = outcomes.get(key);
+            if (previous != null) {
+                return previous;
+            }
+            Response response = request.get();
+            carriedOut.set(response);
+            Outcome first = new Outcome(fingerprint, response);
+            if (response.getStatus() == Response.Status.CREATED.getStatusCode()) {
+                outcomes.put(key, first);
+            }
+            return first;
+        });
+        Response response = carriedOut.get();
+        return response != null ? response : replay(key, outcome, fingerprint, logToken);
+    }
+
+    /**
+     * The fingerprint of a request, the SHA-256 digest of its body in hex prefixed by its language, so different
+     * requests do not share a fingerprint by chance.
+     *
+     * @param language the preferred language of the request
+     * @param body the body of the request
+     * @return the fingerprint of the request
+     */
+    public static String fingerprint(String language, String body) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is available on every Java platform", e);
+        }
+        StringBuilder fingerprint = new StringBuilder(language.length() + 1 + digest.length * 2).append(language).append(':');
+        for (byte b : digest) {
+            fingerprint.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return fingerprint.toString();
+    }
+
+    private Response replay(String key, Outcome outcome, String fingerprint, String logToken) {
+        if (!outcome.fingerprint.equals(fingerprint)) {
+            LOGGER.log(Level.INFO, "Idempotency-Key {0} used again for a different request", key);
+            return Response.status(UNPROCESSABLE_ENTITY)
+                    .entity("{\"message\":\"Sorry, the Idempotency-Key was already used for a different request\"}")
+                    .type("application/json")
+                    .header("X-Log-Token", logToken)
+                    .build();
+        }
+        LOGGER.log(Level.INFO, "Replaying outcome for Idempotency-Key {0}", key);
+        return Response.status(outcome.status)
+                .tag(outcome.eTag)
+                .header("Location", outcome.location)
+                .header("Idempotent-Replayed", "true")
+                .header("X-Log-Token", logToken)
+                .build();
+    }
+
+    /**
+     * The parts of the first response that are replayed.
+     */
+    private static final class Outcome {
+        private final String fingerprint;
+        private final int status;
+        private final String location;
+        private final EntityTag eTag;
+
+        private Outcome(String fingerprint, Response response) {
+            this.fingerprint = fingerprint;
+            this.status = response.getStatus();
+            this.location = response.getHeaderString("Location");
+            this.eTag = response.getEntityTag();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import com.examples.RepresentationContainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory search index over the greetings, kept up to date by listening to the changes of the greetings.
+ * <p>
+ * The keys of the greetings ({@code <greeting>_<language>}) are kept sorted for prefix matching on the greeting
+ * reference, and the words of the greeting text, the title of the self link and the country are kept in an inverted
+ * index from word to keys. Only keys are kept, the greetings themselves stay in their container.
+ * <p>
+ * A search scores a greeting by how it matches: an exact reference scores highest, then a reference starting with
+ * the query, then the words found in the greeting text, the title and the country. Words match if a greeting has
+ * all the words of the query. At most {@value #MAX_CANDIDATES} candidates are considered for the reference prefix and
+ * for the words, which keeps very common words from scanning the whole index.
+ */
+public class GreetingIndex implements RepresentationContainer.Listener<String, GreetingRepresentation> {
+
+    static final int MAX_CANDIDATES = 10_000;
+
+    private static final int EXACT_REFERENCE = 16;
+    private static final int REFERENCE_PREFIX = 8;
+    private static final int IN_GREETING = 4;
+    private static final int IN_TITLE = 2;
+    private static final int IN_COUNTRY = 1;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableSet<String> keys = new TreeSet<>();
+    private final Map<String, TreeMap<String, Integer>> words = new HashMap<>();
+
+    @Override
+    public void changed(String key, GreetingRepresentation previous, GreetingRepresentation current) {
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                for (String word : weightedWords(previous).keySet()) {
+                    TreeMap<String, Integer> postings = words.get(word);
+                    if (postings != null) {
+                        postings.remove(key);
+                        if (postings.isEmpty()) {
+                            words.remove(word);
+                        }
+                    }
+                }
+            }
+            if (current == null) {
+                keys.remove(key);
+                return;
+            }
+            keys.add(key);
+            for (Map.Entry<String, Integer> word : weightedWords(current).entrySet()) {
+                words.computeIfAbsent(word.getKey(), w -> new TreeMap<>()).put(key, word.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the greetings matching a query.
+     *
+     * @param query a reference prefix or words to look for
+     * @param offset the number of best matches to skip
+     * @param limit the maximum number of matches returned
+     * @return the matches from offset in ranked order
+     */
+    public Result search(String query, int offset, int limit) {
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        Map<String, Integer> scores = new HashMap<>();
+        boolean truncated = false;
+        lock.readLock().lock();
+        try {
+            if (!normalized.isEmpty() && normalized.indexOf(' ') < 0) {
+                int candidates = 0;
+                for (String key : keys.tailSet(normalized, true)) {
+                    if (!key.startsWith(normalized)) {
+                        break;
+                    }
+                    if (++candidates > MAX_CANDIDATES) {
+                        truncated = true;
+                        break;
+                    }
+                    boolean exact = key.length() > normalized.length() && key.charAt(normalized.length()) == '_';
+                    scores.merge(key, exact ? EXACT_REFERENCE : REFERENCE_PREFIX, Integer::sum);
+                }
+            }
+            truncated |= matchWords(normalized, scores);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        List<Match> matches = new ArrayList<>();
+        for (int i = Math.max(0, offset); i < ranked.size() && matches.size() < limit; i++) {
+            matches.add(new Match(ranked.get(i).getKey(), ranked.get(i).getValue()));
+        }
+        return new Result(ranked.size(), truncated, matches);
+    }
+
+    /**
+     * Scores the greetings having all the words of the query, walking the keys of the rarest word and looking
+     * each of them up in the keys of the other words.
+     */
+    private boolean matchWords(String query, Map<String, Integer> scores) {
+        List<TreeMap<String, Integer>> postings = new ArrayList<>();
+        for (String word : new LinkedHashSet<>(tokenize(query))) {
+            TreeMap<String, Integer> keysWithWord = words.get(word);
+            if (keysWithWord == null) {
+                return false;
+            }
+            postings.add(keysWithWord);
+        }
+        if (postings.isEmpty()) {
+            return false;
+        }
+        postings.sort(Comparator.comparingInt(TreeMap::size));
+        TreeMap<String, Integer> rarest = postings.get(0);
+        int candidates = 0;
+        candidates:
+        for (Map.Entry<String, Integer> candidate : rarest.entrySet()) {
+            if (++candidates > MAX_CANDIDATES) {
+                return true;
+            }
+            int score = candidate.getValue();
+            for (int i = 1; i < postings.size(); i++) {
+                Integer weight = postings.get(i).get(candidate.getKey());
+                if (weight == null) {
+                    continue candidates;
+                }
+                score += weight;
+            }
+            scores.merge(candidate.getKey(), score, Integer::sum);
+        }
+        return false;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, Integer> weightedWords(GreetingRepresentation greeting) {
+        Map<String, Integer> weighted = new HashMap<>();
+        addWords(weighted, greeting.getGreeting(), IN_GREETING);
+        if (greeting.getSelf() != null) {
+            addWords(weighted, greeting.getSelf().getTitle(), IN_TITLE);
+        }
+        addWords(weighted, greeting.getCountry(), IN_COUNTRY);
+        return weighted;
+    }
+
+    private static void addWords(Map<String, Integer> weighted, String text, int weight) {
+        if (text == null) {
+            return;
+        }
+        for (String word : new HashSet<>(tokenize(text.toLowerCase(Locale.ROOT)))) {
+            weighted.merge(word, weight, Integer::sum);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : WORD_SEPARATOR.split(text)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * A greeting found by a search.
+     */
+    public static final class Match {
+        private final String key;
+        private final int score;
+
+        Match(String key, int score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        /**
+         * @return the key of the greeting in the form {@code <greeting>_<language>}
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * A page of ranked matches.
+     */
+    public static final class Result {
+        private final int total;
+        private final boolean truncated;
+        private final List<Match> matches;
+
+        Result(int total, boolean truncated, List<Match> matches) {
+            this.total = total;
+            this.truncated = truncated;
+            this.matches = Collections.unmodifiableList(matches);
+        }
+
+        /**
+         * @return the number of matches found
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return true if there were more candidates than considered, in which case the total is a lower bound
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public List<Match> getMatches() {
+            return matches;
+        }
+    }
+}
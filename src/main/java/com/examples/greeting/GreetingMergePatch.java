@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import com.examples.patch.JSONPatchException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.openapitools.jackson.dataformat.hal.HALLink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+
+/**
+ * Applies a json merge patch (RFC7396) to a greeting.
+ * <p>
+ * The patch is read token by token and merged straight into the values of the greeting, so no tree of the patch
+ * or of the greeting is built. A member with a value replaces the value of the greeting, a member set to null
+ * removes it and a member holding an object is merged into the object of the greeting. The greeting patched is left
+ * as it is, the outcome is a new greeting.
+ * <p>
+ * Only the members of a greeting can be patched, a member a greeting does not have fails the patch.
+ */
+final class GreetingMergePatch {
+
+    static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private GreetingMergePatch() {
+        // only static methods
+    }
+
+    /**
+     * @param target the greeting to patch
+     * @param patch the merge patch document
+     * @return the patched greeting
+     * @throws IOException if the patch is not json
+     * @throws JSONPatchException if the patch is not an object or has members a greeting does not have
+     */
+    static GreetingRepresentation apply(GreetingRepresentation target, InputStream patch) throws IOException, JSONPatchException {
+        try (JsonParser parser = JSON.createParser(patch)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JSONPatchException("merge patch must be an object");
+            }
+            String greeting = target.getGreeting();
+            String language = target.getLanguage();
+            String country = target.getCountry();
+            GreetingNativeRepresentation nativeInfo = target.getNative();
+            HALLink self = target.getSelf();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "greeting":
+                        greeting = text(parser);
+                        break;
+                    case "language":
+                        language = text(parser);
+                        break;
+                    case "country":
+                        country = text(parser);
+                        break;
+                    case "native":
+                        nativeInfo = mergeNative(parser, nativeInfo);
+                        break;
+                    case "_links":
+                        self = mergeLinks(parser, self);
+                        break;
+                    default:
+                        throw new JSONPatchException("a greeting has no member " + name);
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new JSONPatchException("merge patch must be a single object");
+            }
+            return new GreetingRepresentation(greeting, language, country, nativeInfo, self);
+        }
+    }
+
+    private static GreetingNativeRepresentation mergeNative(JsonParser parser, GreetingNativeRepresentation target)
+            throws IOException, JSONPatchException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectObject(parser, "native");
+        String language = target == null ? null : target.getLanguage();
+        String country = target == null ? null : target.getCountry();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("language".equals(name)) {
+                language = text(parser);
+            } else if ("country".equals(name)) {
+                country = text(parser);
+            } else {
+                throw new JSONPatchException("native has no member " + name);
+            }
+        }
+        return new GreetingNativeRepresentation(language, country);
+    }
+
+    private static HALLink mergeLinks(JsonParser parser, HALLink self) throws IOException, JSONPatchException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectObject(parser, "_links");
+        HALLink merged = self;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (!"self".equals(name)) {
+                throw new JSONPatchException("a greeting has no link " + name);
+            }
+            merged = parser.currentToken() == JsonToken.VALUE_NULL ? null : mergeLink(parser, self);
+        }
+        return merged;
+    }
+
+    private static HALLink mergeLink(JsonParser parser, HALLink target) throws IOException, JSONPatchException {
+        expectObject(parser, "self");
+        String href = target == null ? null : target.getHref();
+        Boolean templated = target == null ? null : target.getTemplated();
+        String type = target == null ? null : target.getType();
+        URL deprecation = target == null ? null : target.getDeprecation();
+        String name = target == null ? null : target.getName();
+        URI profile = target == null ? null : target.getProfile();
+        String title = target == null ? null : target.getTitle();
+        String hreflang = target == null ? null : target.getHreflang();
+        String seen = target == null ? null : target.getSeen();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            switch (member) {
+                case "href":
+                    href = text(parser);
+                    break;
+                case "templated":
+                    templated = parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsBoolean();
+                    break;
+                case "type":
+                    type = text(parser);
+                    break;
+                case "deprecation":
+                    String url = text(parser);
+                    try {
+                        deprecation = url == null ? null : new URL(url);
+                    } catch (MalformedURLException ex) {
+                        throw new JSONPatchException("deprecation must be a url: " + url);
+                    }
+                    break;
+                case "name":
+                    name = text(parser);
+                    break;
+                case "profile":
+                    String uri = text(parser);
+                    try {
+                        profile = uri == null ? null : URI.create(uri);
+                    } catch (IllegalArgumentException ex) {
+                        throw new JSONPatchException("profile must be a uri: " + uri);
+                    }
+                    break;
+                case "title":
+                    title = text(parser);
+                    break;
+                case "hreflang":
+                    hreflang = text(parser);
+                    break;
+                case "seen":
+                    seen = text(parser);
+                    break;
+                default:
+                    throw new JSONPatchException("a link has no member " + member);
+            }
+        }
+        if (href == null) {
+            return null;
+        }
+        HALLink.Builder link;
+        try {
+            link = Boolean.TRUE.equals(templated) ? new HALLink.Builder(href) : new HALLink.Builder(URI.create(href));
+        } catch (IllegalArgumentException ex) {
+            throw new JSONPatchException("href must be a uri: " + href);
+        }
+        link.type(type).deprecation(deprecation).name(name).profile(profile).title(title).hreflang(hreflang);
+        if (seen != null) {
+            link.seen(seen);
+        }
+        return link.build();
+    }
+
+    private static String text(JsonParser parser) throws IOException, JSONPatchException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JSONPatchException(parser.getCurrentName() + " must be a string or null");
+        }
+        return parser.getText();
+    }
+
+    private static void expectObject(JsonParser parser, String name) throws JSONPatchException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JSONPatchException(name + " must be an object or null");
+        }
+    }
+}
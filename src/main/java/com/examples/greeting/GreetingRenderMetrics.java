@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.examples.greeting;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+/**
+ * Registers the gauges of the greeting renderings once, when the application starts.
+ * <p>
+ * The renderings are shared by all requests while {@link Greeting} is created for every request, so the gauges are
+ * registered here rather than by the resource.
+ */
+@ApplicationScoped
+public class GreetingRenderMetrics {
+
+    /**
+     * Register the gauges of the renderings, their cache and the requests waiting for a change.
+     *
+     * @param started the application context being started
+     * @param metrics the application metrics registry
+     */
+    void register(@Observes @Initialized(ApplicationScoped.class) Object started, MetricRegistry metrics) {
+        Greeting.registerRenderMetrics(metrics);
+    }
+}
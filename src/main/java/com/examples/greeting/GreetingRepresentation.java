@@ -11,6 +11,8 @@ import java.util.Objects;
 
 /**
  * A Greeting Representation
+ * <p>
+ * A greeting has no setters and is never changed once created, a changed greeting is a new greeting.
  */
 @Resource
 @ApiModel(value = "Greeting", description = "A representation representation")
@@ -19,6 +21,7 @@ public class GreetingRepresentation {
     private String greeting;
     private String language;
     private String country;
+    @JsonProperty("native")
     private GreetingNativeRepresentation nativeInfo;
 
     @Link
@@ -76,11 +79,6 @@ public class GreetingRepresentation {
         return nativeInfo;
     }
 
-    @JsonProperty("native")
-    public void setNativeRepresentation(GreetingNativeRepresentation nativeInfo) {
-        this.nativeInfo = nativeInfo;
-    }
-
     public HALLink getSelf() {
         return self;
     }
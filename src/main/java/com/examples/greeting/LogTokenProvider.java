@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import com.examples.TokenGenerator;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provider for the X-Log-Token correlation ids.
+ * <p>
+ * The generator is chosen by configuration: {@code time-ordered} (the default) for fast time ordered ids,
+ * {@code secure} for random ids from the shared secure random number generator, or the class name of a
+ * {@link TokenGenerator} with a public no argument constructor.
+ */
+@ApplicationScoped
+public class LogTokenProvider {
+
+    private static final Logger LOGGER = Logger.getLogger(LogTokenProvider.class.getName());
+
+    private final TokenGenerator generator;
+
+    /**
+     * Create the provider, choosing the generator from configuration.
+     *
+     * @param generator the generator to use
+     */
+    @Inject
+    public LogTokenProvider(@ConfigProperty(name = "app.log-token.generator", defaultValue = "time-ordered") String generator) {
+        this.generator = create(generator);
+        LOGGER.log(Level.INFO, "X-Log-Token generated by {0}", generator);
+    }
+
+    /**
+     * @param token the token received from a consumer
+     * @return the received token, or a new one if none was received
+     */
+    String validateOrCreate(String token) {
+        if (token != null && !"".equals(token)) {
+            return token;
+        }
+        return generator.next();
+    }
+
+    static TokenGenerator create(String generator) {
+        if ("time-ordered".equals(generator)) {
+            return TokenGenerator.timeOrdered();
+        }
+        if ("secure".equals(generator)) {
+            return TokenGenerator.secure();
+        }
+        try {
+            return Class.forName(generator).asSubclass(TokenGenerator.class).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("app.log-token.generator must be time-ordered, secure or the name of a TokenGenerator class, was "
+                    + generator, e);
+        }
+    }
+}
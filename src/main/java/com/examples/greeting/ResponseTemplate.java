@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.greeting;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A response that is the same for every request apart from the headers added per request.
+ * <p>
+ * The entity is encoded once and the encoded bytes are shared by every response built from the template, they are
+ * never handed out for anything but writing the response.
+ */
+final class ResponseTemplate {
+
+    private final Response.Status status;
+    private final MediaType type;
+    private final byte[] entity;
+    private final String location;
+
+    private ResponseTemplate(Response.Status status, MediaType type, byte[] entity, String location) {
+        this.status = status;
+        this.type = type;
+        this.entity = entity;
+        this.location = location;
+    }
+
+    /**
+     * @param status the status of the response
+     * @param type the media type of the entity or null if it has none
+     * @param entity the json entity
+     * @return a template for the response
+     */
+    static ResponseTemplate of(Response.Status status, String type, String entity) {
+        return new ResponseTemplate(status, type == null ? null : MediaType.valueOf(type),
+                entity.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * @param location the location of the response
+     * @return a template for the same response with a location header
+     */
+    ResponseTemplate withLocation(String location) {
+        return new ResponseTemplate(status, type, entity, location);
+    }
+
+    /**
+     * @return a builder for a response from the template, to which the per request headers can be added
+     */
+    Response.ResponseBuilder builder() {
+        Response.ResponseBuilder builder = Response.status(status).entity(entity);
+        if (type != null) {
+            builder.type(type);
+        }
+        if (location != null) {
+            builder.header("Location", location);
+        }
+        return builder;
+    }
+
+    /**
+     * @param logToken the correlation id for the response
+     * @return a response from the template with the correlation id
+     */
+    Response build(String logToken) {
+        return builder().header("X-Log-Token", logToken).build();
+    }
+
+    @Override
+    public String toString() {
+        return status.getStatusCode() + " " + type + " " + new String(entity, StandardCharsets.UTF_8);
+    }
+}
@@ -52,6 +52,10 @@ public final class Service {
         System.out.println("http://localhost:" + server.port() + "/meet-representation/{representation} - sets a new default meet and greet representation");
         System.out.println("http://localhost:" + server.port() + "/greetings - a list of greetings and their origin");
         System.out.println("http://localhost:" + server.port() + "/greetings/{representation} - a concrete representation and origin information");
+        System.out.println("http://localhost:" + server.port() + "/greetings/async/{representation} - the same representation served asynchronously");
+        System.out.println("http://localhost:" + server.port() + "/greetings/batch - creates or replaces a batch of representations (POST)");
+        System.out.println("http://localhost:" + server.port() + "/greetings/export - all greetings as newline delimited json, /greetings/import reads them (POST)");
+        System.out.println("http://localhost:" + server.port() + "/greetings/search?q={query} - searches the greetings by reference prefix and words");
         System.out.println("**************************************************************************************************************");
     }
 
@@ -0,0 +1,326 @@
+package com.examples.patch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A JSON patch document as in RFC6902, a list of operations applied in order to a json document.
+ * <p>
+ * The operations add, remove, replace, move, copy and test are supported on objects and arrays, with paths as
+ * JSON pointers (RFC6901) including array indices and "-" for the end of an array. A path without a leading "/"
+ * is read as if it had one, as that is how patches for this service have been written.
+ * <p>
+ * A patch is applied to a copy of the document, the document itself is never changed. Either all operations are
+ * applied or the patch fails as a whole, and the operations after a failing test are not carried out. The pointers
+ * are parsed and validated once, when the patch is read, and the pointers parsed are shared by the patches.
+ */
+public final class JSONPatch {
+
+    private static final ObjectReader OPERATION = new ObjectMapper().readerFor(JSONPatchContainer.class);
+    private static final List<String> OPERATIONS = Arrays.asList("add", "remove", "replace", "move", "copy", "test");
+    private static final Pattern INDEX = Pattern.compile("0|[1-9][0-9]{0,8}");
+
+    /**
+     * The number of parsed pointers shared by the patches at most, patches of a service use a few paths.
+     */
+    private static final int MAX_POINTERS = 1024;
+    private static final Map<String, List<String>> POINTERS = new ConcurrentHashMap<>();
+
+    private final List<JSONPatchContainer> operations;
+    private final List<Operation> compiled;
+
+    /**
+     * @param operations the operations in the order they are applied
+     * @throws JSONPatchException if an operation is unknown, misses its path, from or value or has a pointer that is
+     *                            not valid
+     */
+    public JSONPatch(List<JSONPatchContainer> operations) throws JSONPatchException {
+        List<Operation> compiled = new ArrayList<>(operations.size());
+        for (JSONPatchContainer operation : operations) {
+            validate(operation);
+            compiled.add(new Operation(operation));
+        }
+        this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+        this.compiled = Collections.unmodifiableList(compiled);
+    }
+
+    /**
+     * Parse a patch document, either an array of operations or a single operation.
+     *
+     * @param patch the json patch document
+     * @return the parsed patch
+     * @throws IOException if the document is not json or not a list of operations
+     * @throws JSONPatchException if an operation is not valid
+     */
+    public static JSONPatch parse(String patch) throws IOException, JSONPatchException {
+        try (JsonParser parser = OPERATION.getFactory().createParser(patch)) {
+            return read(parser);
+        }
+    }
+
+    /**
+     * Read a patch document in a single pass, the first token tells whether it is an array of operations or a
+     * single operation.
+     *
+     * @param parser the parser positioned before the patch document
+     * @return the parsed patch
+     * @throws IOException if the document is not json or an operation cannot be mapped
+     * @throws JSONPatchException if the document is not made of operations or an operation is not valid
+     */
+    public static JSONPatch read(JsonParser parser) throws IOException, JSONPatchException {
+        List<JSONPatchContainer> operations = new ArrayList<>();
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.START_ARRAY) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                operations.add(OPERATION.readValue(parser));
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new JSONPatchException("patch operations must be objects");
+            }
+        } else if (first == JsonToken.START_OBJECT) {
+            operations.add(OPERATION.readValue(parser));
+        } else {
+            throw new JSONPatchException("patch must be an operation or an array of operations");
+        }
+        if (parser.nextToken() != null) {
+            throw new JSONPatchException("patch must be a single json document");
+        }
+        return new JSONPatch(operations);
+    }
+
+    public List<JSONPatchContainer> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Apply the patch to a copy of a document.
+     *
+     * @param document the document to patch, it is left as it is
+     * @return the patched copy of the document
+     * @throws JSONPatchException if an operation could not be applied or a test failed
+     */
+    public JsonNode apply(JsonNode document) throws JSONPatchException {
+        JsonNode patched = document.deepCopy();
+        for (Operation operation : compiled) {
+            patched = apply(operation, patched);
+        }
+        return patched;
+    }
+
+    private static JsonNode apply(Operation compiled, JsonNode document) throws JSONPatchException {
+        JSONPatchContainer operation = compiled.operation;
+        List<String> path = compiled.path;
+        switch (operation.getOperation()) {
+            case "add":
+                return add(document, path, operation.getValueNode().deepCopy());
+            case "remove":
+                remove(document, path);
+                return document;
+            case "replace":
+                get(document, path);
+                if (path.isEmpty()) {
+                    return operation.getValueNode().deepCopy();
+                }
+                remove(document, path);
+                return add(document, path, operation.getValueNode().deepCopy());
+            case "move": {
+                List<String> from = compiled.from;
+                if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+                    throw new JSONPatchException("path " + operation.getPath() + " cannot be moved into itself");
+                }
+                JsonNode value = get(document, from);
+                if (from.equals(path)) {
+                    return document;
+                }
+                remove(document, from);
+                return add(document, path, value);
+            }
+            case "copy":
+                return add(document, path, get(document, compiled.from).deepCopy());
+            case "test":
+                if (!get(document, path).equals(NumericEquality.INSTANCE, operation.getValueNode())) {
+                    throw new JSONPatchException("test of path " + operation.getPath() + " failed", true);
+                }
+                return document;
+            default:
+                throw new JSONPatchException("operation " + operation.getOperation() + " is not supported");
+        }
+    }
+
+    private static JsonNode add(JsonNode document, List<String> path, JsonNode value) throws JSONPatchException {
+        if (path.isEmpty()) {
+            return value;
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String name = path.get(path.size() - 1);
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(name, value);
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            if ("-".equals(name)) {
+                array.add(value);
+            } else {
+                array.insert(index(array, name, array.size()), value);
+            }
+        } else {
+            throw new JSONPatchException("path " + toPointer(path) + " does not exist");
+        }
+        return document;
+    }
+
+    private static void remove(JsonNode document, List<String> path) throws JSONPatchException {
+        if (path.isEmpty()) {
+            throw new JSONPatchException("the whole document cannot be removed");
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String name = path.get(path.size() - 1);
+        if (parent.isObject() && parent.has(name)) {
+            ((ObjectNode) parent).remove(name);
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            array.remove(index(array, name, array.size() - 1));
+        } else {
+            throw new JSONPatchException("path " + toPointer(path) + " does not exist");
+        }
+    }
+
+    private static JsonNode get(JsonNode document, List<String> path) throws JSONPatchException {
+        JsonNode node = document;
+        for (int i = 0; i < path.size(); i++) {
+            String name = path.get(i);
+            JsonNode child = null;
+            if (node.isObject()) {
+                child = node.get(name);
+            } else if (node.isArray() && !"-".equals(name)) {
+                child = node.get(index((ArrayNode) node, name, node.size() - 1));
+            }
+            if (child == null) {
+                throw new JSONPatchException("path " + toPointer(path.subList(0, i + 1)) + " does not exist");
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private static int index(ArrayNode array, String name, int max) throws JSONPatchException {
+        if (!INDEX.matcher(name).matches()) {
+            throw new JSONPatchException(name + " is not an array index");
+        }
+        int index = Integer.parseInt(name);
+        if (index > max) {
+            throw new JSONPatchException("array index " + index + " is out of bounds, the array has "
+                    + array.size() + " elements");
+        }
+        return index;
+    }
+
+    /**
+     * @param path a JSON pointer, with or without the leading "/"
+     * @return the unescaped reference tokens of the pointer, shared and not to be changed
+     * @throws JSONPatchException if the pointer has a "~" not escaping a "~" or a "/"
+     */
+    static List<String> pointer(String path) throws JSONPatchException {
+        List<String> tokens = POINTERS.get(path);
+        if (tokens == null) {
+            tokens = parsePointer(path);
+            if (POINTERS.size() < MAX_POINTERS) {
+                POINTERS.putIfAbsent(path, tokens);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> parsePointer(String path) throws JSONPatchException {
+        if (path.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] tokens = (path.startsWith("/") ? path.substring(1) : path).split("/", -1);
+        List<String> result = new ArrayList<>(tokens.length);
+        for (String token : tokens) {
+            if (token.replace("~0", "").replace("~1", "").indexOf('~') >= 0) {
+                throw new JSONPatchException("path " + path + " is not a json pointer, ~ must be followed by 0 or 1");
+            }
+            result.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static String toPointer(List<String> path) {
+        StringBuilder pointer = new StringBuilder();
+        for (String token : path) {
+            pointer.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+        }
+        return pointer.toString();
+    }
+
+    private static void validate(JSONPatchContainer operation) throws JSONPatchException {
+        if (operation.getOperation() == null || !OPERATIONS.contains(operation.getOperation())) {
+            throw new JSONPatchException("operation " + operation.getOperation() + " is not supported");
+        }
+        if (operation.getPath() == null) {
+            throw new JSONPatchException("operation " + operation.getOperation() + " must have a path");
+        }
+        switch (operation.getOperation()) {
+            case "add":
+            case "replace":
+            case "test":
+                if (operation.getValueNode() == null) {
+                    throw new JSONPatchException("operation " + operation.getOperation() + " must have a value");
+                }
+                break;
+            case "move":
+            case "copy":
+                if (operation.getFrom() == null) {
+                    throw new JSONPatchException("operation " + operation.getOperation() + " must have a from");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * An operation with its pointers parsed once, when the patch is read.
+     */
+    private static final class Operation {
+        private final JSONPatchContainer operation;
+        private final List<String> path;
+        private final List<String> from;
+
+        private Operation(JSONPatchContainer operation) throws JSONPatchException {
+            this.operation = operation;
+            this.path = pointer(operation.getPath());
+            this.from = operation.getFrom() == null ? null : pointer(operation.getFrom());
+        }
+    }
+
+    /**
+     * Compares json values as a test operation does, where numbers are equal if their values are equal.
+     */
+    private static final class NumericEquality implements Comparator<JsonNode> {
+        private static final NumericEquality INSTANCE = new NumericEquality();
+
+        @Override
+        public int compare(JsonNode left, JsonNode right) {
+            if (left.isNumber() && right.isNumber()) {
+                return left.decimalValue().compareTo(right.decimalValue());
+            }
+            return left.equals(right) ? 0 : 1;
+        }
+    }
+}
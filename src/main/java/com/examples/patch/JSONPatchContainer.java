@@ -1,7 +1,13 @@
 package com.examples.patch;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
@@ -11,24 +17,24 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
- * A very simple representation of a patch+json object.
+ * A single operation of a patch+json document (RFC6902).
  * 
- * The current implementation is a very simple edition of parts of the RFC6902.
- * Currently only supporting  replace and doing that for non-array objects. 
- * PATCH is usually only used for updating into humongous objects are and 
- * not for objects of the size used in the sample. 
- * There is still quite a lot of discussion around the actual path PATCH 
- * implementations should take. 
+ * The operation carries its value as json, so any value can be added, replaced or tested, and the
+ * operations are applied to a json document by {@link JSONPatch}. 
+ * The value of an operation can also be replaced directly into an object by {@link #replaceValue(Object)},
+ * which only handles replacing String fields of non-array objects and changes the object in place, it must not be
+ * used on objects that are shared, such as stored representations.
  * 
  * The content-type used here is ”application/patch+json” and not ”application/json-patch+json” 
- * as this is not strictly following or complete the RFC.
+ * as a path without a leading "/" is accepted besides the JSON pointers of the RFC.
  */
 public class JSONPatchContainer {
 
     private static final Logger LOGGER = Logger.getLogger(JSONPatchContainer.class.getName());
     private String operation;
     private String path;
-    private String value;
+    private String from;
+    private JsonNode value;
     private String[] pathElements;
 
     public JSONPatchContainer() {
@@ -36,8 +42,13 @@ public class JSONPatchContainer {
     }
 
     public JSONPatchContainer(String op, String path, String value) {
+        this(op, path, null, value == null ? null : TextNode.valueOf(value));
+    }
+
+    public JSONPatchContainer(String op, String path, String from, JsonNode value) {
         this.operation = op;
         this.path = path;
+        this.from = from;
         this.value = value;
     }
 
@@ -50,15 +61,63 @@ public class JSONPatchContainer {
         return path;
     }
 
+    /**
+     * @return the location the value is moved or copied from, or null for other operations
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the value as text, a value that is not a json string is given as json
+     */
+    @JsonIgnore
     public String getValue() {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        return value.isTextual() ? value.textValue() : value.toString();
+    }
+
+    /**
+     * @return the value as json, or null if the operation has no value
+     */
+    @JsonProperty("value")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public JsonNode getValueNode() {
         return value;
     }
 
+    @JsonProperty("value")
+    private void setValueNode(JsonNode value) {
+        this.value = value == null ? NullNode.getInstance() : value;
+    }
+
     @Override
     public String toString() {
-        return "{\"op\":\"" + operation + "\",\"path\":\"" + path + "\",\"value\":\"" + value + "\"}";
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("op", operation);
+        json.put("path", path);
+        if (from != null) {
+            json.put("from", from);
+        }
+        if (value != null) {
+            json.set("value", value);
+        }
+        return json.toString();
     }
 
+    /**
+     * Replace the value of the String field at the path in an object.
+     *
+     * @param o the object to replace the value in
+     * @return true if the value was replaced, false if the path does not end in a String field
+     * @throws IllegalArgumentException if the value could not be set
+     * @throws IllegalAccessException if a field of the path cannot be accessed
+     * @throws NoSuchFieldException if the path names a field that does not exist
+     * @see JSONPatch#apply for patching a copy instead of the object itself
+     */
     @JsonIgnore
     public boolean replaceValue(Object o) throws IllegalArgumentException, IllegalAccessException, NoSuchFieldException {
         Class c = o.getClass();
@@ -71,7 +130,7 @@ public class JSONPatchContainer {
             boolean access = f.isAccessible();
             f.setAccessible(true);
             if (f.getType().equals(String.class) && level == getPathElements().length - 1) {
-                f.set(o, value);
+                f.set(o, getValue());
                 if (!access) {
                     LOGGER.log(Level.WARNING,
                             "Patched private field immutabilty may be violated (Class::Name) ({0}::{1}) Object::{3}", new Object[]{c.getName(), f.getName(), o.toString()});
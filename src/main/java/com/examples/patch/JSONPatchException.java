@@ -0,0 +1,28 @@
+package com.examples.patch;
+
+/**
+ * A JSON patch that is not valid or cannot be applied to a document.
+ * <p>
+ * A patch whose {@code test} operation fails is not applied either, that is told apart by {@link #isTestFailure()},
+ * as the document was found in another state than expected rather than the patch being wrong.
+ */
+public class JSONPatchException extends Exception {
+
+    private final boolean testFailure;
+
+    public JSONPatchException(String message) {
+        this(message, false);
+    }
+
+    JSONPatchException(String message, boolean testFailure) {
+        super(message);
+        this.testFailure = testFailure;
+    }
+
+    /**
+     * @return true if a test operation of the patch did not find the expected value
+     */
+    public boolean isTestFailure() {
+        return testFailure;
+    }
+}
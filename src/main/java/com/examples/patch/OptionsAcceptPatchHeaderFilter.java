@@ -9,10 +9,13 @@ import java.io.IOException;
 
 /**
  * A JAX-RS container response filter that applies {@code Accept-Patch} header to 
- * any response to an {@code OPTIONS} request. Filter origins from the Jersey Sample on Patch.
+ * any response to an {@code OPTIONS} request, advertising json patch and json merge patch.
+ * Filter origins from the Jersey Sample on Patch.
  */
 public class OptionsAcceptPatchHeaderFilter implements ContainerResponseFilter {
 
+    static final String ACCEPT_PATCH = "application/patch+json, application/merge-patch+json";
+
     @Override
     public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext)
             throws IOException {
@@ -20,7 +23,7 @@ public class OptionsAcceptPatchHeaderFilter implements ContainerResponseFilter {
         if (HttpMethod.OPTIONS.equals(requestContext.getMethod())) {
             final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
             if (!headers.containsKey("Accept-Patch")) {
-                headers.putSingle("Accept-Patch", "application/patch+json");
+                headers.putSingle("Accept-Patch", ACCEPT_PATCH);
             }
         }
     }
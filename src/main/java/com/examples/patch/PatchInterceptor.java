@@ -1,70 +1,94 @@
 package com.examples.patch;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
 import javax.annotation.Priority;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Priorities;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 import javax.ws.rs.ext.ReaderInterceptor;
 import javax.ws.rs.ext.ReaderInterceptorContext;
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
-import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
- * JAX-RS reader interceptor supporting simple PATCH .
+ * JAX-RS reader interceptor reading json patch documents.
+ * <p>
+ * An entity of type patch+json or json read as a {@link JSONPatch} is parsed straight from the request in a single
+ * pass, the first token tells whether the document is an array of operations or a single operation. Every other
+ * entity is read as usual.
+ * A patch that cannot be parsed is answered with {@code 400 Bad Request}.
  */
 @Provider
 @Priority(Priorities.ENTITY_CODER)
 public class PatchInterceptor implements ReaderInterceptor {
 
-    private static final Charset CHARSET = Charset.forName("UTF-8");
     private static final Logger LOGGER = Logger.getLogger(PatchInterceptor.class.getName());
+    private static final JsonFactory JSON = new ObjectMapper().getFactory();
 
-    @SuppressWarnings("unchecked")
     @Override
     public Object aroundReadFrom(ReaderInterceptorContext readerInterceptorContext) throws IOException {
-        LOGGER.log(Level.INFO, "!-------------- PATCH Object Interceptor around readFrom()");
-        if (!"application/patch+json".equals(readerInterceptorContext.getMediaType().toString())) {
+        if (!JSONPatch.class.equals(readerInterceptorContext.getType()) || !isPatch(readerInterceptorContext.getMediaType())) {
             return readerInterceptorContext.proceed();
         }
-        String body = "{\"error\":\"input could not be parsed\"}";
         try {
-            body = getString(readerInterceptorContext.getInputStream());
-            String input = convertInput(body);
-            readerInterceptorContext.setInputStream(new ByteArrayInputStream(input.getBytes(CHARSET)));
-        } catch (JsonMappingException ex) {
-            LOGGER.log(Level.WARNING, "Unable to parse input from stream into a PATCH Object", ex);
-            readerInterceptorContext.setInputStream(new ByteArrayInputStream(body.getBytes(CHARSET)));
+            return read(readerInterceptorContext.getInputStream(), readerInterceptorContext.getMediaType());
+        } catch (JSONPatchException ex) {
+            LOGGER.log(Level.WARNING, "Unable to read PATCH operations: {0}", ex.getMessage());
+            throw badRequest(ex.getMessage());
         } catch (IOException ex) {
-            LOGGER.log(Level.WARNING, "Unable to read input from stream", ex);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Unable to parse ", e);
+            LOGGER.log(Level.WARNING, "Unable to parse input from stream into PATCH operations: {0}", ex.getMessage());
+            throw badRequest("input could not be parsed");
         }
-        return readerInterceptorContext.proceed();
     }
 
-    String convertInput(String body) throws IOException, JsonProcessingException {
-        LOGGER.log(Level.INFO, "!-------------- PATCH Object Interceptor convertInput()");
-        ObjectMapper mapper = new ObjectMapper();
+    /**
+     * @param mediaType the media type of an entity
+     * @return true if the entity can be a patch document, that is patch+json or json whatever the parameters
+     */
+    static boolean isPatch(MediaType mediaType) {
+        return mediaType != null
+                && "application".equalsIgnoreCase(mediaType.getType())
+                && ("patch+json".equalsIgnoreCase(mediaType.getSubtype()) || "json".equalsIgnoreCase(mediaType.getSubtype()));
+    }
+
+    /**
+     * Parse the operations of a patch document in the charset of its media type, or as detected from the document.
+     *
+     * @param input the patch document
+     * @param mediaType the media type of the document
+     * @return the patch
+     * @throws IOException if the document is not json or an operation cannot be mapped
+     * @throws JSONPatchException if the document is not made of operations or an operation is not valid
+     */
+    JSONPatch read(InputStream input, MediaType mediaType) throws IOException, JSONPatchException {
+        String name = mediaType == null ? null : mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+        Charset charset;
         try {
-            JSONPatchContainer[] json = mapper.readValue(body, JSONPatchContainer[].class);
-            return mapper.writeValueAsString(Arrays.toString(json));
-        } catch (JsonProcessingException jpe) {
-            JSONPatchContainer json = mapper.readValue(body, JSONPatchContainer.class);
-            return mapper.writeValueAsString(json);
+            charset = name == null ? null : Charset.forName(name);
+        } catch (IllegalArgumentException ex) {
+            throw new JSONPatchException("charset " + name + " is not supported");
+        }
+        try (JsonParser parser = charset == null
+                ? JSON.createParser(input)
+                : JSON.createParser(new InputStreamReader(input, charset))) {
+            return JSONPatch.read(parser);
         }
     }
 
-    String getString(InputStream input) throws IOException {
-        LOGGER.log(Level.INFO, "!-------------- PATCH Object Interceptor getString()");
-        try (BufferedReader buffer = new BufferedReader(new InputStreamReader(input, CHARSET))) {
-            return buffer.lines().collect(Collectors.joining());
-        } 
+    private static BadRequestException badRequest(String error) {
+        return new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(JsonNodeFactory.instance.objectNode().put("error", error).toString())
+                .build());
     }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.helidon.webserver.jersey;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.helidon.common.http.DataChunk;
+
+/**
+ * A pool of buffers the response chunks are copied into.
+ * <p>
+ * Jersey reuses the array it writes the response from, so every chunk must be copied before the write returns. The
+ * chunk is copied once into a pooled buffer, which goes back to the pool when the chunk is released after Netty has
+ * written it. The buffers come in sizes from {@value #MIN_SIZE} to {@value #MAX_SIZE} bytes doubling in between, a
+ * chunk gets the smallest buffer it fits in. Larger chunks are written in pieces of at most {@value #MAX_SIZE} bytes.
+ * <p>
+ * The pool only keeps buffers up to a number of bytes in total, buffers released beyond that are left to the garbage
+ * collector, as are buffers of chunks that are never released because the connection was closed.
+ */
+final class BufferPool {
+
+    static final int MIN_SIZE = 4096;
+    static final int MAX_SIZE = 65536;
+
+    private static final int SIZES = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+
+    private final Queue<ByteBuffer>[] pooled;
+    private final long maxPooledBytes;
+    private final boolean direct;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    /**
+     * @param maxPooledBytes the number of bytes kept in the pool at most
+     * @param direct true to pool direct buffers, false for heap buffers
+     */
+    @SuppressWarnings("unchecked")
+    BufferPool(long maxPooledBytes, boolean direct) {
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("the pool cannot keep a negative number of bytes");
+        }
+        this.maxPooledBytes = maxPooledBytes;
+        this.direct = direct;
+        this.pooled = new Queue[SIZES];
+        for (int i = 0; i < SIZES; i++) {
+            pooled[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * @return the pool shared by the responses, configured by {@code app.response.pooled-bytes} and
+     * {@code app.response.direct-buffers}
+     */
+    static BufferPool shared() {
+        return Shared.POOL;
+    }
+
+    /**
+     * Copy a chunk into a pooled buffer.
+     *
+     * @param flush whether the chunk is flushed when written
+     * @param data the chunk, at most {@value #MAX_SIZE} bytes
+     * @return the chunk handing its buffer back to the pool once released
+     */
+    DataChunk copy(boolean flush, ByteBuffer data) {
+        return copy(flush, data, () -> { });
+    }
+
+    /**
+     * Copy a chunk into a pooled buffer, telling when it is released.
+     *
+     * @param flush whether the chunk is flushed when written
+     * @param data the chunk, at most {@value #MAX_SIZE} bytes
+     * @param onRelease run once when the chunk is released, after its buffer is handed back
+     * @return the chunk handing its buffer back to the pool once released
+     */
+    DataChunk copy(boolean flush, ByteBuffer data, Runnable onRelease) {
+        ByteBuffer buffer = acquire(data.remaining());
+        buffer.put(data).flip();
+        AtomicBoolean released = new AtomicBoolean();
+        return DataChunk.create(flush, buffer, () -> {
+            if (released.compareAndSet(false, true)) {
+                release(buffer);
+                onRelease.run();
+            }
+        });
+    }
+
+    /**
+     * @param size the number of bytes needed, at most {@value #MAX_SIZE}
+     * @return a cleared buffer of at least the size, limited to the size
+     */
+    ByteBuffer acquire(int size) {
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("a pooled buffer holds at most " + MAX_SIZE + " bytes");
+        }
+        int index = indexOf(size);
+        ByteBuffer buffer = pooled[index].poll();
+        if (buffer == null) {
+            allocated.increment();
+            int capacity = MIN_SIZE << index;
+            buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        } else {
+            reused.increment();
+            pooledBytes.addAndGet(-buffer.capacity());
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Hand a buffer back to the pool, it must not be used afterwards.
+     *
+     * @param buffer a buffer acquired from this pool
+     */
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        pooled[indexOf(capacity)].offer(buffer);
+    }
+
+    /**
+     * @return the number of buffers allocated because none was pooled
+     */
+    long getAllocated() {
+        return allocated.sum();
+    }
+
+    /**
+     * @return the number of buffers taken from the pool
+     */
+    long getReused() {
+        return reused.sum();
+    }
+
+    /**
+     * @return the number of bytes kept in the pool
+     */
+    long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private static int indexOf(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    private static final class Shared {
+        private static final BufferPool POOL = create();
+
+        private static BufferPool create() {
+            return new BufferPool(ResponseConfig.get("app.response.pooled-bytes", Long.class, 16L * 1024 * 1024),
+                    ResponseConfig.get("app.response.direct-buffers", Boolean.class, false));
+        }
+    }
+}
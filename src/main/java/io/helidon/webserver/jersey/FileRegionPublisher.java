@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.helidon.webserver.jersey;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.helidon.common.http.DataChunk;
+import io.helidon.common.reactive.Flow;
+
+/**
+ * Publishes a file as chunks of memory mapped regions of it.
+ * <p>
+ * The regions are handed to Netty as they are, so the bytes of the file go from the page cache to the socket without
+ * being read onto the heap or copied. The server asks for all the chunks at once, so the regions are mapped as the
+ * previous ones are sent: no more than a number of bytes is in flight, and the next regions are published from the
+ * release of a region sent, without any thread waiting in between.
+ * <p>
+ * The file is opened by the caller, who reads its size for the response headers, so the file is published as it was
+ * then even if it is deleted before its first region is requested. The publisher closes the channel once done.
+ */
+final class FileRegionPublisher implements Flow.Publisher<DataChunk> {
+
+    private static final Logger LOGGER = Logger.getLogger(FileRegionPublisher.class.getName());
+
+    private final FileChannel channel;
+    private final long size;
+    private final int regionSize;
+    private final long maxInFlight;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicInteger draining = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private volatile Flow.Subscriber<? super DataChunk> subscriber;
+    private long position;
+    private boolean done;
+
+    /**
+     * @param channel the open file to publish, closed by the publisher
+     * @param size the bytes of the file published, as sent in the response headers
+     * @param regionSize the bytes of the file mapped into a chunk at most
+     * @param maxInFlight the bytes published and not yet sent before the next region is mapped, at least one region
+     */
+    FileRegionPublisher(FileChannel channel, long size, int regionSize, long maxInFlight) {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("the regions of the file must have a positive size");
+        }
+        this.channel = channel;
+        this.size = size;
+        this.regionSize = regionSize;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DataChunk> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The file can only be published once."));
+            return;
+        }
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("The number of chunks requested must be positive.");
+                } else {
+                    requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                drain();
+            }
+        });
+    }
+
+    /**
+     * Publishes as many regions as requested and allowed in flight, one thread at a time: a thread finding another
+     * one publishing leaves it to publish once more.
+     */
+    private void drain() {
+        if (draining.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            publishRegions();
+        } while (draining.decrementAndGet() != 0);
+    }
+
+    private void publishRegions() {
+        while (!done) {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (failure != null) {
+                finish();
+                subscriber.onError(failure);
+                return;
+            }
+            try {
+                if (position >= size) {
+                    finish();
+                    subscriber.onComplete();
+                    return;
+                }
+                if (requested.get() == 0 || inFlight.get() >= maxInFlight) {
+                    return;
+                }
+                int length = (int) Math.min(regionSize, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                position += length;
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+                inFlight.addAndGet(length);
+                AtomicBoolean released = new AtomicBoolean();
+                // flushed as the next region is only mapped once this one is sent
+                subscriber.onNext(DataChunk.create(true, region, () -> {
+                    if (released.compareAndSet(false, true)) {
+                        inFlight.addAndGet(-length);
+                        drain();
+                    }
+                }));
+            } catch (IOException e) {
+                finish();
+                subscriber.onError(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes the file, the regions mapped stay valid until they are collected.
+     */
+    private void finish() {
+        done = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Cannot close the file published", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.helidon.webserver.jersey;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * The configuration of how responses are written, read from the microprofile configuration when there is one.
+ */
+final class ResponseConfig {
+
+    private static final Logger LOGGER = Logger.getLogger(ResponseConfig.class.getName());
+
+    private ResponseConfig() {
+        // only static methods
+    }
+
+    /**
+     * @param name the name of the property
+     * @param type the type of the property
+     * @param defaultValue the value used if the property is not configured or there is no configuration
+     * @param <T> the type of the property
+     * @return the configured value or the default value
+     */
+    static <T> T get(String name, Class<T> type, T defaultValue) {
+        try {
+            return ConfigProvider.getConfig().getOptionalValue(name, type).orElse(defaultValue);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, e, () -> "No configuration of " + name + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
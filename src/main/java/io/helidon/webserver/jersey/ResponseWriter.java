@@ -16,18 +16,19 @@
 
 package io.helidon.webserver.jersey;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.WritableByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.MediaType;
 
 import io.helidon.common.http.DataChunk;
@@ -37,10 +38,13 @@ import io.helidon.common.reactive.ReactiveStreamsAdapter;
 import io.helidon.webserver.ConnectionClosedException;
 import io.helidon.webserver.ServerRequest;
 import io.helidon.webserver.ServerResponse;
+import io.netty.util.Timeout;
 
 import org.glassfish.jersey.server.ContainerException;
+import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.spi.ContainerResponseWriter;
+import org.glassfish.jersey.uri.UriTemplate;
 
 /**
  * The ResponseWriter.
@@ -49,56 +53,168 @@ class ResponseWriter implements ContainerResponseWriter {
 
     private static final Logger LOGGER = Logger.getLogger(ResponseWriter.class.getName());
 
-    private final OutputStreamPublisher publisher = new OutputStreamPublisher() {
+    /**
+     * The size of the chunks small writes are merged into, configured by {@code app.response.chunk-size}.
+     */
+    private static final int CHUNK_SIZE = Math.max(1, Math.min(BufferPool.MAX_SIZE,
+            ResponseConfig.get("app.response.chunk-size", Integer.class, 8192)));
+
+    /**
+     * The size of the memory mapped regions files are sent in, configured by {@code app.response.file-region-size}.
+     */
+    private static final int FILE_REGION_SIZE = Math.max(BufferPool.MIN_SIZE,
+            ResponseConfig.get("app.response.file-region-size", Integer.class, 1024 * 1024));
+
+    /**
+     * Merges the writes into chunks of up to a size, Jersey and Jackson write many small
+     * fragments and every chunk published is a Netty write and a chunk header. The merged bytes are published when
+     * the next write does not fit, on flush and on close. Writes of a chunk or more are published as they are, and
+     * so are all writes when every chunk is to be flushed, as for server sent events. Before publishing, the writes
+     * wait while too many bytes are in flight as told by the write window, or fail if they must not wait.
+     */
+    static final class CoalescingPublisher extends OutputStreamPublisher {
+
+        private final int chunkSize;
+        private final WriteWindow window;
+        private byte[] pending;
+        private int pendingLength;
+        private volatile boolean coalesce = true;
+        private volatile boolean waitForWindow = true;
+        private boolean flushing;
+
+        /**
+         * @param chunkSize the size of the chunks the writes are merged into, at most {@value BufferPool#MAX_SIZE}
+         */
+        CoalescingPublisher(int chunkSize) {
+            this(chunkSize, new WriteWindow(Long.MAX_VALUE, Long.MAX_VALUE));
+        }
+
+        /**
+         * @param chunkSize the size of the chunks the writes are merged into, at most {@value BufferPool#MAX_SIZE}
+         * @param window the window the bytes published are reserved in, they are released when sent
+         */
+        CoalescingPublisher(int chunkSize, WriteWindow window) {
+            this.chunkSize = chunkSize;
+            this.window = window;
+        }
+
         @Override
-        public void write(byte[] b) throws IOException {
-            try {
-                super.write(b);
-            } catch (ConnectionClosedException e) {
-                throw new IOException("Cannot publish more bytes due to a connection close.", e);
-            }
+        public synchronized void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
         }
 
         @Override
-        public void write(byte[] b, int off, int len) throws IOException {
-            try {
-                super.write(b, off, len);
-            } catch (ConnectionClosedException e) {
-                throw new IOException("Cannot publish more bytes due to a connection close.", e);
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (coalesce && len < chunkSize) {
+                if (pendingLength + len > chunkSize) {
+                    publishPending();
+                }
+                if (pending == null) {
+                    pending = new byte[chunkSize];
+                }
+                System.arraycopy(b, off, pending, pendingLength, len);
+                pendingLength += len;
+                return;
             }
+            publishPending();
+            publish(b, off, len);
         }
 
         @Override
-        public void write(int b) throws IOException {
-            try {
-                super.write(b);
-            } catch (ConnectionClosedException e) {
-                throw new IOException("Cannot publish more bytes due to a connection close.", e);
-            }
+        public synchronized void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
         }
 
         @Override
-        public void close() throws IOException {
+        public synchronized void close() throws IOException {
             try {
-                super.close();
-            } catch (ConnectionClosedException e) {
-                throw new IOException("Cannot close the connection because it's already closed.", e);
+                publishPending();
+            } finally {
+                try {
+                    super.close();
+                } catch (ConnectionClosedException e) {
+                    throw new IOException("Cannot close the connection because it's already closed.", e);
+                }
             }
         }
 
         @Override
-        public void flush() throws IOException {
+        public synchronized void flush() throws IOException {
+            flushing = true;
             try {
+                publishPending();
                 super.flush();
             } catch (ConnectionClosedException e) {
                 throw new IOException("Cannot flush on the connection because it's closed.", e);
+            } finally {
+                flushing = false;
             }
         }
-    };
 
+        /**
+         * @param coalesce false to publish every write as it is
+         */
+        void coalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+        }
+
+        /**
+         * @param waitForWindow false to fail the writes with an {@link IOException} rather than wait while the write
+         *                      window is full
+         */
+        void waitForWindow(boolean waitForWindow) {
+            this.waitForWindow = waitForWindow;
+        }
+
+        /**
+         * @return true while publishing the merged bytes on an explicit flush, or a chunk filling the write window
+         */
+        boolean isFlushing() {
+            return flushing;
+        }
+
+        private void publishPending() throws IOException {
+            if (pendingLength > 0) {
+                int length = pendingLength;
+                pendingLength = 0;
+                publish(pending, 0, length);
+            }
+        }
+
+        private void publish(byte[] b, int off, int len) throws IOException {
+            try {
+                // every chunk is copied into a pooled buffer, so larger writes go in pieces fitting one
+                for (int written = 0; written < len; written += BufferPool.MAX_SIZE) {
+                    int piece = Math.min(BufferPool.MAX_SIZE, len - written);
+                    boolean wasFlushing = flushing;
+                    // a chunk filling the window is flushed, the chunks are only sent and released once flushed
+                    flushing = (waitForWindow ? window.reserve(piece) : window.reserveNow(piece)) || wasFlushing;
+                    try {
+                        super.write(b, off + written, piece);
+                    } finally {
+                        flushing = wasFlushing;
+                    }
+                }
+            } catch (ConnectionClosedException e) {
+                throw new IOException("Cannot publish more bytes due to a connection close.", e);
+            }
+        }
+    }
+
+    private final WriteWindow window = WriteWindow.create();
+    private final CoalescingPublisher publisher = new CoalescingPublisher(CHUNK_SIZE, window);
+    private final BufferPool buffers = BufferPool.shared();
+    private final Object suspension = new Object();
     private final ServerResponse res;
     private final ServerRequest req;
     private final CompletableFuture<Void> whenHandleFinishes;
+    private volatile boolean published;
+    private volatile boolean sentWhole;
+    private volatile EntityStream entityStream;
+    private volatile String endpoint;
+    private TimeoutHandler timeoutHandler;
+    private Timeout suspendTimeout;
+    private boolean completed;
 
     ResponseWriter(ServerResponse res, ServerRequest req, CompletableFuture<Void> whenHandleFinishes) {
         this.res = res;
@@ -111,22 +227,110 @@ class ResponseWriter implements ContainerResponseWriter {
             throws ContainerException {
 
         res.status(Http.ResponseStatus.create(context.getStatus(), context.getStatusInfo().getReasonPhrase()));
+        endpoint = endpointOf(context.getRequestContext());
+
+        // in case of SSE every response chunk needs to be flushed, the events are written by threads shared by all the
+        // streams, which must not wait for a client not reading, the stream fails and the client reconnects instead
+        boolean doFlush = MediaType.SERVER_SENT_EVENTS_TYPE.isCompatible(context.getMediaType());
+        publisher.coalesce(!doFlush);
+        publisher.waitForWindow(!doFlush);
+
+        Object entity = context.getEntity();
+        if (!doFlush && entity instanceof Path && !HttpMethod.HEAD.equals(context.getRequestContext().getMethod())) {
+            return sendFile((Path) entity, context);
+        }
+
+        // an entity array is complete, its length is known even if Jersey does not tell it without buffering
+        boolean whole = !doFlush && entity instanceof byte[] && ((byte[]) entity).length > 0
+                && (contentLength < 0 || contentLength == ((byte[]) entity).length);
+        if (!whole) {
+            length(contentLength, context.getStatus());
+        }
+
+        for (Map.Entry<String, List<String>> entry : context.getStringHeaders().entrySet()) {
+            res.headers().put(entry.getKey(), entry.getValue());
+        }
+
+        if (whole) {
+            entityStream = new EntityStream((byte[]) entity, contentLength, context.getStatus());
+            return entityStream;
+        }
+        publish(doFlush);
+        return publisher;
+    }
+
+    /**
+     * Sends a file as memory mapped regions, the {@link FileEntityWriter} writes nothing of it.
+     */
+    private OutputStream sendFile(Path file, ContainerResponse context) {
+        // opened before the length is sent, so the file sent is the one measured even if it is deleted meanwhile
+        FileChannel channel;
+        long size;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new ContainerException("Cannot send the file " + file, e);
+        }
+        try {
+            size = channel.size();
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new ContainerException("Cannot send the file " + file, e);
+        }
+        length(size, context.getStatus());
+        for (Map.Entry<String, List<String>> entry : context.getStringHeaders().entrySet()) {
+            res.headers().put(entry.getKey(), entry.getValue());
+        }
+        sentWhole = true;
+        res.send(new FileRegionPublisher(channel, size, FILE_REGION_SIZE, WriteWindow.highWatermark()));
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("The file " + file + " is sent as it is.");
+            }
+        };
+    }
 
+    private void length(long contentLength, int status) {
         if (contentLength >= 0) {
             res.headers().put(Http.Header.CONTENT_LENGTH, String.valueOf(contentLength));
         } else {
-            if (400 != context.getStatus()) {
+            if (400 != status) {
                 res.headers().put(Http.Header.TRANSFER_ENCODING, "chunked");
             }
         }
+    }
 
-        for (Map.Entry<String, List<String>> entry : context.getStringHeaders().entrySet()) {
-            res.headers().put(entry.getKey(), entry.getValue());
+    /**
+     * @return the method and the path template of the resource method matched, or of the path for none matched
+     */
+    private static String endpointOf(ContainerRequest request) {
+        List<UriTemplate> templates = request.getUriInfo().getMatchedTemplates();
+        if (templates.isEmpty()) {
+            return request.getMethod() + " unmatched";
         }
+        StringBuilder path = new StringBuilder();
+        // the templates are matched from the resource method up to the application
+        for (int i = templates.size() - 1; i >= 0; i--) {
+            String template = templates.get(i).getTemplate();
+            if (!template.isEmpty() && !template.equals("/")) {
+                if (template.charAt(0) != '/') {
+                    path.append('/');
+                }
+                path.append(template.endsWith("/") ? template.substring(0, template.length() - 1) : template);
+            }
+        }
+        return request.getMethod() + " " + (path.length() == 0 ? "/" : path.toString());
+    }
 
-        // in case of SSE every response chunk needs to be flushed
-        boolean doFlush = MediaType.SERVER_SENT_EVENTS_TYPE.isCompatible(context.getMediaType());
-
+    private void publish(boolean doFlush) {
+        published = true;
+        // a closed connection never lets the bytes in flight go down, the writes stop waiting once the response is done
+        res.whenSent().whenComplete((r, t) -> window.close());
         res.send(
                 ReactiveStreamsAdapter.publisherToFlow(
                         ReactiveStreamsAdapter.publisherFromFlow(publisher)
@@ -138,36 +342,161 @@ class ResponseWriter implements ContainerResponseWriter {
 
                                 Following fails when writing large amount of data to the response:
                                 .map(byteBuffer -> new ResponseChunk(false, byteBuffer))));
+
+                                The array is copied once into a pooled buffer, which is handed back to the
+                                pool when the chunk is released after being written, and its bytes leave
+                                the write window then.
                                  */
                                 .map(byteBuffer -> {
-                                    try {
-                                        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                                        WritableByteChannel ch = Channels.newChannel(stream);
-                                        ch.write(byteBuffer);
-                                        return DataChunk.create(doFlush, ByteBuffer.wrap(stream.toByteArray()));
-                                    } catch (IOException e) {
-                                        throw new IllegalStateException("this never happens", e);
-                                    }
+                                    int size = byteBuffer.remaining();
+                                    return buffers.copy(doFlush || publisher.isFlushing(), byteBuffer,
+                                            () -> window.released(size));
                                 })));
+    }
 
-        return publisher;
+    /**
+     * The stream for an entity that is a complete array of a known length, as for cached representations.
+     * <p>
+     * When Jersey writes the entity array as a whole, it is sent as it is as a single chunk with its length, without
+     * copying it and without the publisher and its adapters. Jersey does not reuse the entity array as it does its
+     * own buffers. If anything else is written, such as the output of a writer interceptor, the writes go through the
+     * publisher as for any other response. If nothing is written, as for a HEAD request, the length of the entity is
+     * told.
+     */
+    private final class EntityStream extends OutputStream {
+
+        private final byte[] entity;
+        private final long contentLength;
+        private final int status;
+
+        private EntityStream(byte[] entity, long contentLength, int status) {
+            this.entity = entity;
+            this.contentLength = contentLength;
+            this.status = status;
+        }
+
+        /**
+         * Sends the headers and starts publishing the writes, unless the entity was sent as a whole.
+         */
+        private void publishWrites() {
+            if (!published) {
+                length(contentLength, status);
+                publish(false);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (sentWhole) {
+                throw new IOException("The entity of " + entity.length + " bytes has already been sent.");
+            }
+            if (!published && b == entity && off == 0 && len == entity.length) {
+                sentWhole = true;
+                length(entity.length, status);
+                res.send(new SingleChunkPublisher(DataChunk.create(false, ByteBuffer.wrap(entity))));
+                return;
+            }
+            publishWrites();
+            publisher.write(b, off, len);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (published) {
+                publisher.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (published) {
+                publisher.close();
+            }
+        }
     }
 
     @Override
     public boolean suspend(long timeOut, TimeUnit timeUnit, TimeoutHandler timeoutHandler) {
-        if (timeOut != 0) {
-            throw new UnsupportedOperationException("Currently, time limited suspension is not supported!");
+        synchronized (suspension) {
+            if (completed) {
+                return false;
+            }
+            this.timeoutHandler = timeoutHandler;
+            schedule(timeOut, timeUnit);
+            return true;
         }
-        return true;
     }
 
     @Override
     public void setSuspendTimeout(long timeOut, TimeUnit timeUnit) throws IllegalStateException {
-        throw new UnsupportedOperationException("Currently, extending the suspension time is not supported!");
+        synchronized (suspension) {
+            if (timeoutHandler == null) {
+                throw new IllegalStateException("The response has not been suspended.");
+            }
+            if (!completed) {
+                schedule(timeOut, timeUnit);
+            }
+        }
+    }
+
+    /**
+     * Replaces the timeout of the suspension, the time counts from now. Must be called holding the suspension lock.
+     */
+    private void schedule(long timeOut, TimeUnit timeUnit) {
+        if (suspendTimeout != null) {
+            suspendTimeout.cancel();
+            suspendTimeout = null;
+        }
+        if (timeOut > 0) {
+            suspendTimeout = SuspendTimer.schedule(this::timeOut, timeOut, timeUnit);
+        }
+    }
+
+    private void timeOut() {
+        TimeoutHandler handler;
+        synchronized (suspension) {
+            if (completed || suspendTimeout == null || !suspendTimeout.isExpired()) {
+                // completed or rescheduled in the meantime
+                return;
+            }
+            suspendTimeout = null;
+            handler = timeoutHandler;
+        }
+        // Jersey resumes the response with the timeout response and writes it, which is not done on the timer thread
+        CompletableFuture.runAsync(() -> handler.onTimeout(this));
+    }
+
+    /**
+     * Cancels the timeout of the suspension once the response is done.
+     */
+    private void complete() {
+        synchronized (suspension) {
+            completed = true;
+            if (suspendTimeout != null) {
+                suspendTimeout.cancel();
+                suspendTimeout = null;
+            }
+        }
     }
 
     @Override
     public void commit() {
+        complete();
+        if (sentWhole) {
+            recordSocketWait();
+            return;
+        }
+        EntityStream unwritten = entityStream;
+        if (!published && unwritten != null) {
+            // the entity array was not written, as for a HEAD request
+            length(unwritten.entity.length, unwritten.status);
+            publish(false);
+        }
         try {
             // Jersey doesn't close the OutputStream when there is no entity
             // as such the publisher needs to be closed from here ...
@@ -177,11 +506,22 @@ class ResponseWriter implements ContainerResponseWriter {
             // based on implementation of 'close', this never happens
             throw new IllegalStateException("Unexpected IO Exception received!", e);
         }
+        recordSocketWait();
+    }
+
+    private void recordSocketWait() {
+        window.close();
+        String matched = endpoint;
+        if (matched != null) {
+            SocketWaitMetrics.record(matched, window.getWaitedNanos());
+        }
     }
 
     @Override
     public void failure(Throwable error) {
         LOGGER.finer(() -> "Jersey handling finished with an exception; message: " + error.getMessage());
+        complete();
+        window.close();
 
         req.next(error);
     }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.helidon.webserver.jersey;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.helidon.metrics.RegistryFactory;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+/**
+ * The time responses waited for the client to read them, by endpoint.
+ * <p>
+ * Every response records the time its writing thread waited for the socket in an application timer named
+ * {@code response.socket-wait.<method> <path template>}, so the count is the number of responses and the statistics
+ * tell how much slow clients hold up the threads of an endpoint.
+ */
+final class SocketWaitMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(SocketWaitMetrics.class.getName());
+    private static final String PREFIX = "response.socket-wait.";
+
+    private static final Map<String, Metadata> METADATA = new ConcurrentHashMap<>();
+
+    private SocketWaitMetrics() {
+        // only static methods
+    }
+
+    /**
+     * @param endpoint the method and path template of the endpoint
+     * @param waitedNanos the time the response waited in nanoseconds
+     */
+    static void record(String endpoint, long waitedNanos) {
+        Metadata metadata = METADATA.computeIfAbsent(endpoint, e -> new Metadata(PREFIX + e, "Socket wait of " + e,
+                "the time responses of " + e + " waited for the client to read them",
+                MetricType.TIMER, MetricUnits.NANOSECONDS));
+        try {
+            // the timer is looked up every time, the registry is cleared when the application is stopped
+            RegistryFactory.getRegistryFactory().get().getRegistry(MetricRegistry.Type.APPLICATION)
+                    .timer(metadata)
+                    .update(waitedNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, e, () -> "No metrics of the socket waits of " + endpoint);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.helidon.webserver.jersey;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+
+/**
+ * The timer of the time limited suspensions of the responses.
+ * <p>
+ * A suspended request waits for an event that may never come, so it is timed out after a while. All the responses
+ * share a single hashed wheel timer, scheduling and cancelling a timeout is a constant time operation on one of its
+ * buckets instead of a task on a scheduled executor, and nearly all of them are cancelled when the response
+ * completes before its time. The timeouts are checked once per tick of {@code app.response.suspend-tick-millis},
+ * so a timeout happens up to one tick late.
+ */
+final class SuspendTimer {
+
+    private static final HashedWheelTimer TIMER = create();
+
+    private SuspendTimer() {
+        // only static methods
+    }
+
+    /**
+     * Schedules a task on the shared timer. The task runs on the thread of the timer, it must hand anything that takes
+     * time, such as writing a response, over to another thread.
+     *
+     * @param task the task run when the time is up
+     * @param delay the time to wait
+     * @param unit the unit of the time
+     * @return the timeout to cancel the task with
+     */
+    static Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return TIMER.newTimeout(timeout -> task.run(), delay, unit);
+    }
+
+    private static HashedWheelTimer create() {
+        ThreadFactory threads = task -> {
+            Thread thread = new Thread(task, "jersey-suspend-timer");
+            thread.setDaemon(true);
+            return thread;
+        };
+        long tick = Math.max(1, ResponseConfig.get("app.response.suspend-tick-millis", Long.class, 100L));
+        return new HashedWheelTimer(threads, tick, TimeUnit.MILLISECONDS, 512);
+    }
+}
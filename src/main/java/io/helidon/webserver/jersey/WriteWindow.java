@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.helidon.webserver.jersey;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the bytes of a response written but not yet sent to the client.
+ * <p>
+ * The server asks for all the chunks of a response at once and queues them for Netty, so without a bound a slow client
+ * lets a large response pile up in memory. Every chunk is counted from being published until it is released after
+ * Netty has written it. When the bytes in flight reach the high watermark, the writing thread waits until they drop
+ * to the low watermark, so it writes again in batches rather than for every chunk sent. Netty only sends and releases
+ * chunks once they are flushed, so the chunk reaching the high watermark must be flushed. The time spent waiting is
+ * the time the response waited for the socket.
+ * <p>
+ * A client that stops reading would keep the writing thread waiting for good, so with a write timeout the write fails
+ * once the bytes in flight did not drop for that long. Writers that must never wait, such as the few threads shared by
+ * all the server-sent event streams, fail at once instead.
+ */
+final class WriteWindow {
+
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final long timeoutNanos;
+    private long inFlight;
+    private boolean blocked;
+    private boolean closed;
+    private long waitedNanos;
+
+    /**
+     * @param highWatermark the bytes in flight at which the writes wait
+     * @param lowWatermark the bytes in flight at which the writes go on, at most the high watermark
+     */
+    WriteWindow(long highWatermark, long lowWatermark) {
+        this(highWatermark, lowWatermark, 0);
+    }
+
+    /**
+     * @param highWatermark the bytes in flight at which the writes wait
+     * @param lowWatermark the bytes in flight at which the writes go on, at most the high watermark
+     * @param timeoutMillis the time a write waits at most in milliseconds, 0 to wait as long as it takes
+     */
+    WriteWindow(long highWatermark, long lowWatermark, long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("the write timeout cannot be negative");
+        }
+        if (highWatermark <= 0 || lowWatermark < 0 || lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("the watermarks must be positive with the low one not above the high one");
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * @return a window with the watermarks configured by {@code app.response.high-watermark} and
+     * {@code app.response.low-watermark} and the timeout by {@code app.response.write-timeout-millis}
+     */
+    static WriteWindow create() {
+        return new WriteWindow(Watermarks.HIGH, Watermarks.LOW, Watermarks.TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return the configured high watermark
+     */
+    static long highWatermark() {
+        return Watermarks.HIGH;
+    }
+
+    /**
+     * Counts bytes about to be published, waiting first while too many are in flight.
+     *
+     * @param bytes the number of bytes
+     * @return true if the bytes reach the high watermark, the chunk must be flushed for the writes to go on
+     * @throws InterruptedIOException if the thread is interrupted while waiting, or a
+     * {@link SocketTimeoutException} if the write timed out
+     */
+    synchronized boolean reserve(int bytes) throws InterruptedIOException {
+        if (inFlight >= highWatermark) {
+            blocked = true;
+        }
+        if (blocked && !closed) {
+            long start = System.nanoTime();
+            try {
+                while (blocked && !closed) {
+                    if (timeoutNanos == 0) {
+                        wait();
+                        continue;
+                    }
+                    long remaining = timeoutNanos - (System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("The client did not read the response for "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms.");
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the client to read the response.");
+            } finally {
+                waitedNanos += System.nanoTime() - start;
+            }
+        }
+        inFlight += bytes;
+        return inFlight >= highWatermark;
+    }
+
+    /**
+     * Counts bytes about to be published without waiting.
+     *
+     * @param bytes the number of bytes
+     * @return true if the bytes reach the high watermark, the chunk must be flushed for the writes to go on
+     * @throws IOException if the writes would have to wait, the client is not reading the response fast enough
+     */
+    synchronized boolean reserveNow(int bytes) throws IOException {
+        if (inFlight >= highWatermark) {
+            blocked = true;
+        }
+        if (blocked && !closed) {
+            throw new IOException("The client did not read the " + inFlight + " bytes of the response in flight.");
+        }
+        inFlight += bytes;
+        return inFlight >= highWatermark;
+    }
+
+    /**
+     * Counts bytes sent, letting the writes go on once the low watermark is reached.
+     *
+     * @param bytes the number of bytes reserved before
+     */
+    synchronized void released(int bytes) {
+        inFlight -= bytes;
+        if (blocked && inFlight <= lowWatermark) {
+            blocked = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Stops waiting for good, as when the response is completed or the connection closed.
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return the number of bytes published and not yet sent
+     */
+    synchronized long getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the time spent waiting for bytes to be sent in nanoseconds
+     */
+    synchronized long getWaitedNanos() {
+        return waitedNanos;
+    }
+
+    private static final class Watermarks {
+        private static final long HIGH = Math.max(1, ResponseConfig.get("app.response.high-watermark", Long.class,
+                1024L * 1024));
+        private static final long LOW = Math.max(0, Math.min(HIGH, ResponseConfig.get("app.response.low-watermark",
+                Long.class, 256L * 1024)));
+        private static final long TIMEOUT_MILLIS = Math.max(0, ResponseConfig.get("app.response.write-timeout-millis",
+                Long.class, 30000L));
+    }
+}
@@ -0,0 +1,198 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+
+    private static final ChangeFeed.Encoder<String, String> ENCODER = new ChangeFeed.Encoder<String, String>() {
+        @Override
+        public byte[] change(int version, String key, String previous, String current) {
+            return (version + " " + key + " " + previous + ">" + current).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] resync(int version) {
+            return (version + " resync").getBytes(StandardCharsets.UTF_8);
+        }
+    };
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Test
+    public void testEventEncodedOnceAndSharedBySubscribers() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        ChangeFeed<String, String> feed = open(container, 8);
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        feed.subscribe(first);
+        feed.subscribe(second);
+
+        container.add("hallo_da", "Hallo");
+        container.replace("hallo_da", "Hallo", "Hallo!");
+        runTasks();
+
+        assertEquals(List.of("112 hallo_da null>Hallo", "113 hallo_da Hallo>Hallo!"), first.events());
+        assertEquals(first.events(), second.events());
+        assertSame(first.sent.get(0), second.sent.get(0));
+        assertEquals(2, feed.getEncoded());
+        assertEquals(2, feed.getSubscribers());
+    }
+
+    @Test
+    public void testSlowSubscriberCoalescedThenDisconnected() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        ChangeFeed<String, String> feed = open(container, 3);
+        RecordingSink slow = new RecordingSink();
+        ChangeFeed<String, String>.Subscription subscription = feed.subscribe(slow);
+
+        container.add("hallo_da", "Hallo");
+        container.replace("hallo_da", "Hallo", "Hallo!");
+        container.add("hej_da", "Hej");
+        container.add("hej_da", "Hej!");
+        container.add("moin_de", "Moin");
+        container.remove("moin_de");
+        assertEquals(2, subscription.getQueued());
+        assertEquals(4, feed.getCoalesced());
+        runTasks();
+        assertEquals(List.of("113 hallo_da null>Hallo!", "115 hej_da null>Hej!"), slow.events());
+
+        tasks.clear();
+        container.add("a_da", "A");
+        container.add("b_da", "B");
+        container.add("c_da", "C");
+        container.add("d_da", "D");
+        assertEquals(1, feed.getDisconnected());
+        assertEquals(0, subscription.getQueued());
+        runTasks();
+        assertTrue(slow.closed);
+        assertEquals(2, slow.events().size());
+        assertEquals(0, feed.getSubscribers());
+    }
+
+    @Test
+    public void testResumeSendsChangesSinceThenLiveChanges() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>(2);
+        container.add("hallo_da", "Hallo");
+        container.add("hej_da", "Hej");
+        ChangeFeed<String, String> feed = open(container, 8);
+        int seen = container.getVersion();
+        container.add("moin_de", "Moin");
+
+        RecordingSink resumed = new RecordingSink();
+        feed.subscribe(resumed, seen);
+        container.remove("hallo_da");
+        runTasks();
+        assertEquals(List.of("114 moin_de null>Moin", "115 hallo_da Hallo>null"), resumed.events());
+
+        RecordingSink stale = new RecordingSink();
+        feed.subscribe(stale, 112);
+        runTasks();
+        assertEquals("115 resync", stale.events().get(0));
+        assertEquals(3, stale.events().size());
+        assertTrue(stale.events().contains("115 hej_da null>Hej"));
+    }
+
+    @Test
+    public void testReplayedChangesEncodedOnceAndShared() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>(2);
+        container.add("hallo_da", "Hallo");
+        ChangeFeed<String, String> feed = open(container, 8);
+        RecordingSink live = new RecordingSink();
+        feed.subscribe(live);
+        int seen = container.getVersion();
+        container.add("hej_da", "Hej");
+        runTasks();
+
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        feed.subscribe(first, seen);
+        feed.subscribe(second, seen);
+        runTasks();
+        assertEquals(List.of("113 hej_da null>Hej"), first.events());
+        assertSame(live.sent.get(0), first.sent.get(0));
+        assertSame(first.sent.get(0), second.sent.get(0));
+        assertEquals(1, feed.getEncoded());
+
+        RecordingSink stale = new RecordingSink();
+        RecordingSink staler = new RecordingSink();
+        feed.subscribe(stale, 100);
+        feed.subscribe(staler, 101);
+        runTasks();
+        assertEquals(3, stale.events().size());
+        assertEquals(stale.events(), staler.events());
+        for (int i = 0; i < stale.sent.size(); i++) {
+            assertSame(stale.sent.get(i), staler.sent.get(i));
+        }
+        // hej_da was added in the version resynced from, its event is the one sent live
+        assertEquals(2, feed.getEncoded());
+    }
+
+    @Test
+    public void testHeartbeatToIdleSubscribersAndFailedSendDisconnects() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        ChangeFeed<String, String> feed = open(container, 8);
+        RecordingSink idle = new RecordingSink();
+        RecordingSink gone = new RecordingSink();
+        gone.failing = true;
+        feed.subscribe(idle);
+        feed.subscribe(gone);
+
+        feed.heartbeat(":".getBytes(StandardCharsets.UTF_8));
+        runTasks();
+        assertEquals(List.of(":"), idle.events());
+        assertTrue(gone.closed);
+        assertEquals(1, feed.getSubscribers());
+        assertEquals(0, feed.getDisconnected());
+
+        feed.close();
+        runTasks();
+        assertTrue(idle.closed);
+        assertEquals(0, feed.getSubscribers());
+    }
+
+    private ChangeFeed<String, String> open(RepresentationContainer<String, String> container, int queueSize) {
+        ChangeFeed<String, String> feed = new ChangeFeed<>(container, ENCODER, tasks::add, queueSize);
+        feed.open();
+        return feed;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static final class RecordingSink implements ChangeFeed.Sink {
+        private final List<byte[]> sent = new ArrayList<>();
+        private boolean failing;
+        private boolean closed;
+
+        @Override
+        public void send(byte[] event) throws IOException {
+            if (failing) {
+                throw new IOException("connection closed");
+            }
+            sent.add(event);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private List<String> events() {
+            List<String> events = new ArrayList<>();
+            for (byte[] event : sent) {
+                events.add(new String(event, StandardCharsets.UTF_8));
+            }
+            return events;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeWatchTest {
+
+    @Test
+    public void testWaitersToldAboutChangeOfTheirKeyOnly() throws Exception {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        ChangeWatch<String, String> watch = new ChangeWatch<>(container);
+        container.addListener(watch);
+        container.add("hallo_da", "Hallo");
+        container.add("hej_da", "Hej");
+
+        CompletableFuture<String> first = watch.next("hallo_da", "Hallo");
+        CompletableFuture<String> second = watch.next("hallo_da", "Hallo");
+        CompletableFuture<String> other = watch.next("hej_da", "Hej");
+        assertEquals(3, watch.getWaiting());
+        container.add("hallo_da", new String("Hallo"));
+        assertFalse(first.isDone());
+
+        container.add("hallo_da", "Hallo!");
+        assertEquals("Hallo!", first.get(5, TimeUnit.SECONDS));
+        assertEquals("Hallo!", second.get(5, TimeUnit.SECONDS));
+        assertFalse(other.isDone());
+
+        container.remove("hej_da");
+        assertNull(other.get(5, TimeUnit.SECONDS));
+        assertEquals(3, watch.getChanged());
+        assertEquals(0, watch.getWaiting());
+    }
+
+    @Test
+    public void testStaleOrCancelledWatchNeverWaits() throws Exception {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        ChangeWatch<String, String> watch = new ChangeWatch<>(container);
+        container.addListener(watch);
+        container.add("hallo_da", "Hallo!");
+
+        assertEquals("Hallo!", watch.next("hallo_da", "Hallo").get(5, TimeUnit.SECONDS));
+        assertEquals("Hallo!", watch.next("hallo_da", null).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> abandoned = watch.next("hallo_da", "Hallo!");
+        assertEquals(1, watch.getWaiting());
+        abandoned.cancel(false);
+        assertEquals(0, watch.getWaiting());
+        container.remove("hallo_da");
+        assertEquals(0, watch.getChanged());
+    }
+}
@@ -0,0 +1,60 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringCacheTest {
+
+    @Test
+    public void testValuesExpire() {
+        AtomicLong clock = new AtomicLong();
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, Duration.ofNanos(100), clock::get);
+        cache.put("a", "1");
+        clock.set(50);
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        clock.set(100);
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        cache.put("b", "3");
+        clock.set(160);
+        assertEquals("3", cache.get("b"));
+        clock.set(200);
+        assertNull(cache.get("b"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testOldestIsEvictedWhenFull() {
+        AtomicLong clock = new AtomicLong();
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, Duration.ofSeconds(60), clock::get);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("a", "3");
+        cache.put("c", "4");
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("a"));
+        assertEquals("4", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testManyValuesStayBounded() {
+        AtomicLong clock = new AtomicLong();
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(1000, Duration.ofNanos(10_000), clock::get);
+        for (int i = 0; i < 1_000_000; i++) {
+            clock.incrementAndGet();
+            cache.put(i, i);
+            assertTrue(cache.size() <= 1000);
+        }
+        assertEquals(999_999, (int) cache.get(999_999));
+        assertNull(cache.get(998_999));
+        assertEquals(999_000, cache.getEvictions());
+    }
+}
@@ -0,0 +1,51 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderCacheTest {
+
+    @Test
+    public void testRenderingKeptUntilRepresentationChanges() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        RenderCache<String, String, String> cache = new RenderCache<>();
+        container.addListener(cache);
+        String hallo = new String("Hallo");
+        container.add("hallo_da", hallo);
+
+        assertNull(cache.get("hallo_da", 4, hallo));
+        cache.put("hallo_da", 4, hallo, "rendered Hallo v4");
+        cache.put("hallo_da", 3, hallo, "rendered Hallo v3");
+        assertEquals("rendered Hallo v4", cache.get("hallo_da", 4, hallo));
+        assertEquals("rendered Hallo v3", cache.get("hallo_da", 3, hallo));
+        assertNull(cache.get("hallo_da", 2, hallo));
+
+        String changed = new String("Hallo!");
+        assertTrue(container.replace("hallo_da", hallo, changed));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("hallo_da", 4, changed));
+        assertEquals(1, cache.getInvalidations());
+
+        cache.put("hallo_da", 4, changed, "rendered Hallo! v4");
+        container.remove("hallo_da");
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getInvalidations());
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testRenderingOfAnotherRepresentationIsNeverServed() {
+        RenderCache<String, String, String> cache = new RenderCache<>();
+        String stale = new String("Hallo");
+        String current = new String("Hallo");
+        cache.put("hallo_da", 4, stale, "rendered stale");
+        assertNull(cache.get("hallo_da", 4, current));
+
+        cache.put("hallo_da", 4, current, "rendered current");
+        assertEquals("rendered current", cache.get("hallo_da", 4, current));
+        assertNull(cache.get("hallo_da", 4, stale));
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,187 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepresentationContainerTest {
+
+    @Test
+    public void testAddAllIsOneChange() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        container.add("hallo_da", "Hallo!");
+        String version = container.getChCode();
+
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("hallo_da", "Hej!");
+        batch.put("hello_en", "Hello!");
+        batch.put("hola_es", "Hola!");
+        Map<String, String> replaced = container.addAll(batch);
+
+        assertEquals(1, replaced.size());
+        assertEquals("Hallo!", replaced.get("hallo_da"));
+        assertEquals(3, container.size());
+        assertEquals("Hej!", container.get("hallo_da"));
+        assertEquals(Integer.toHexString(Integer.parseInt(version, 16) + 1), container.getChCode());
+    }
+
+    @Test
+    public void testAddAllTellsListenersOnceTheBatchIsApplied() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        List<String> told = new ArrayList<>();
+        container.addListener(new RepresentationContainer.Listener<String, String>() {
+            @Override
+            public void changed(String key, String previous, String current) {
+                fail("the version of the change is told");
+            }
+
+            @Override
+            public void changed(int version, String key, String previous, String current) {
+                assertEquals(container.getVersion(), version);
+                assertEquals(2, container.size());
+                assertEquals(version, container.changesSince(version - 1).getVersion());
+                assertEquals(2, container.changesSince(version - 1).getChanges().size());
+                told.add(key);
+            }
+        });
+
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("hallo_da", "Hallo!");
+        batch.put("hello_en", "Hello!");
+        container.addAll(batch);
+        assertEquals(List.of("hallo_da", "hello_en"), told);
+    }
+
+    @Test
+    public void testAddAllWithoutChangesKeepsVersion() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        container.add("hallo_da", "Hallo!");
+        String version = container.getChCode();
+
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("hallo_da", "Hallo!");
+        assertEquals(1, container.addAll(batch).size());
+        assertEquals(version, container.getChCode());
+        assertTrue(container.addAll(new LinkedHashMap<>()).isEmpty());
+        assertEquals(version, container.getChCode());
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterChanges() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        container.add("hallo_da", "Hallo!");
+        container.add("hello_en", "Hello!");
+        RepresentationContainer.Snapshot<String, String> snapshot = container.snapshot();
+        int version = container.getVersion();
+
+        container.add("hola_es", "Hola!");
+        container.add("hallo_da", "Hej!");
+        container.remove("hello_en");
+
+        assertEquals(2, snapshot.size());
+        assertEquals(version, snapshot.getVersion());
+        Map<String, String> values = new HashMap<>();
+        snapshot.getEntries().forEach(entry -> values.put(entry.getKey(), entry.getValue()));
+        assertEquals("Hallo!", values.get("hallo_da"));
+        assertEquals("Hello!", values.get("hello_en"));
+    }
+
+    @Test
+    public void testListenersFollowChanges() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        container.add("hallo_da", "Hallo!");
+        List<String> changes = new ArrayList<>();
+        container.addListener((key, previous, current) -> changes.add(key + ":" + previous + "->" + current));
+
+        container.add("hallo_da", "Hallo!");
+        container.add("hallo_da", "Hej!");
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("hello_en", "Hello!");
+        container.addAll(batch);
+        container.remove("hallo_da");
+        container.remove("nothing_da");
+
+        assertEquals(List.of("hallo_da:null->Hallo!", "hallo_da:Hallo!->Hej!", "hello_en:null->Hello!", "hallo_da:Hej!->null"), changes);
+    }
+
+    @Test
+    public void testReplaceOnlyFromTheStoredVersion() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        String read = new String("Hallo!");
+        container.add("hallo_da", read);
+        String version = container.getChCode();
+
+        assertFalse(container.replace("hallo_da", new String("Hallo!"), "Hej!"));
+        assertFalse(container.replace("hello_en", read, "Hello!"));
+        assertEquals(version, container.getChCode());
+
+        assertTrue(container.replace("hallo_da", read, "Hej!"));
+        assertEquals("Hej!", container.get("hallo_da"));
+        assertNotEquals(version, container.getChCode());
+        assertFalse(container.replace("hallo_da", read, "Davs!"));
+        assertEquals("Hej!", container.get("hallo_da"));
+        assertNull(container.get("hello_en"));
+    }
+
+    @Test
+    public void testChangesSinceAVersion() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>();
+        container.add("hallo_da", "Hallo!");
+        container.add("hej_da", "Hej!");
+        int since = container.getVersion();
+
+        container.add("hallo_da", "Halløj!");
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("hello_en", "Hello!");
+        batch.put("hola_es", "Hola!");
+        container.addAll(batch);
+        container.remove("hej_da");
+        container.add("hallo_da", "Hallo!!");
+        container.add("hola_es", "Hola!!");
+        container.remove("hola_es");
+
+        RepresentationContainer.Changes<String, String> changes = container.changesSince(since);
+        assertFalse(changes.isResync());
+        assertEquals(since, changes.getSince());
+        assertEquals(container.getVersion(), changes.getVersion());
+        assertEquals(List.of("hello_en:null->Hello!", "hej_da:Hej!->null", "hallo_da:Hallo!->Hallo!!"), describe(changes));
+
+        assertTrue(container.changesSince(container.getVersion()).getChanges().isEmpty());
+        container.add("hallo_da", "Hallo!");
+        assertTrue(container.changesSince(since).getChanges().stream().noneMatch(change -> "hallo_da".equals(change.getKey())));
+    }
+
+    @Test
+    public void testChangesSinceAVersionNoLongerLoggedIsAResync() {
+        RepresentationContainer<String, String> container = new RepresentationContainer<>(2);
+        int first = container.getVersion();
+        container.add("hallo_da", "Hallo!");
+        int second = container.getVersion();
+        container.add("hej_da", "Hej!");
+        container.add("hello_en", "Hello!");
+
+        assertFalse(container.changesSince(second).isResync());
+        assertEquals(List.of("hej_da:null->Hej!", "hello_en:null->Hello!"), describe(container.changesSince(second)));
+
+        RepresentationContainer.Changes<String, String> resync = container.changesSince(first);
+        assertTrue(resync.isResync());
+        assertEquals(3, resync.getChanges().size());
+        assertTrue(resync.getChanges().stream().allMatch(change -> change.getPrevious() == null));
+        assertTrue(container.changesSince(container.getVersion() + 1).isResync());
+        assertThrows(IllegalArgumentException.class, () -> new RepresentationContainer<String, String>(0));
+    }
+
+    private static List<String> describe(RepresentationContainer.Changes<String, String> changes) {
+        List<String> described = new ArrayList<>();
+        for (RepresentationContainer.Change<String, String> change : changes.getChanges()) {
+            described.add(change.getKey() + ":" + change.getPrevious() + "->" + change.getCurrent());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,100 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(pool.submit(() -> flight.execute("hallo_da;v=4", () -> {
+            computing.countDown();
+            await(release);
+            return "rendered-" + computations.incrementAndGet();
+        })));
+        assertTrue(computing.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < callers; i++) {
+            results.add(pool.submit(() -> flight.execute("hallo_da;v=4", () -> "rendered-" + computations.incrementAndGet())));
+        }
+        while (flight.getCoalesced() < callers - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("rendered-1", result.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(1, computations.get());
+        assertEquals(1, flight.getComputed());
+        assertEquals(callers - 1, flight.getCoalesced());
+        assertEquals((double) (callers - 1) / callers, flight.getCoalescingRatio(), 0.0001);
+    }
+
+    @Test
+    public void testSequentialCallersComputeAgain() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        assertEquals(0.0, flight.getCoalescingRatio());
+        assertEquals("1", flight.execute("hello_en;v=3", () -> String.valueOf(computations.incrementAndGet())));
+        assertEquals("2", flight.execute("hello_en;v=3", () -> String.valueOf(computations.incrementAndGet())));
+        assertEquals("3", flight.execute("hello_en;v=2", () -> String.valueOf(computations.incrementAndGet())));
+        assertNull(flight.execute("nothing_da;v=4", () -> null));
+        assertEquals(4, flight.getComputed());
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotRetained() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<String> leader = pool.submit(() -> flight.execute("key", () -> {
+            computing.countDown();
+            await(release);
+            throw new IllegalStateException("storage failed");
+        }));
+        assertTrue(computing.await(5, TimeUnit.SECONDS));
+        Future<String> follower = pool.submit(() -> flight.execute("key", () -> "not computed"));
+        while (flight.getCoalesced() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<String> result : List.of(leader, follower)) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("the failure should be shared");
+            } catch (java.util.concurrent.ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof IllegalStateException);
+            }
+        }
+        pool.shutdown();
+        assertEquals("recovered", flight.execute("key", () -> "recovered"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
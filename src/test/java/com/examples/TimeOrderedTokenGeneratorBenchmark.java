@@ -0,0 +1,50 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TimeOrderedTokenGeneratorBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int TOKENS_PER_THREAD = 20_000;
+
+    @Test
+    public void benchmarkContentionAcrossThreads() throws InterruptedException {
+        long timeOrdered = generate(TokenGenerator.timeOrdered());
+        long secure = generate(TokenGenerator.secure());
+        System.out.println("Generated " + THREADS * TOKENS_PER_THREAD + " tokens on " + THREADS + " threads in "
+                + TimeUnit.NANOSECONDS.toMillis(timeOrdered) + "ms time ordered and "
+                + TimeUnit.NANOSECONDS.toMillis(secure) + "ms secure");
+    }
+
+    private static long generate(TokenGenerator generator) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        String[][] generated = new String[THREADS][TOKENS_PER_THREAD];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String[] ofThread = generated[t];
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < TOKENS_PER_THREAD; i++) {
+                    ofThread[i] = generator.next();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
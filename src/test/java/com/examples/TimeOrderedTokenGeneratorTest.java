@@ -0,0 +1,79 @@
+package com.examples;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeOrderedTokenGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int TOKENS_PER_THREAD = 5_000;
+
+    @Test
+    public void testTokensAreVersion7Uuids() {
+        TokenGenerator generator = TokenGenerator.timeOrdered();
+        long before = System.currentTimeMillis();
+        String token = generator.next();
+        assertTrue(token.matches("^[a-zA-Z0-9\\-]{36}$"));
+        UUID uuid = UUID.fromString(token);
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1);
+        assertEquals(token, uuid.toString());
+    }
+
+    @Test
+    public void testTokensOfThreadAreOrdered() {
+        TokenGenerator generator = TokenGenerator.timeOrdered();
+        String previous = generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            String next = generator.next();
+            assertTrue(next.compareTo(previous) > 0, previous + " should come before " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void testTokensAreUniqueAcrossThreads() throws InterruptedException {
+        Set<String> tokens = ConcurrentHashMap.newKeySet(THREADS * TOKENS_PER_THREAD);
+        generate(TokenGenerator.timeOrdered(), tokens);
+        assertEquals(THREADS * TOKENS_PER_THREAD, tokens.size());
+    }
+
+    private static void generate(TokenGenerator generator, Set<String> tokens) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        String[][] generated = new String[THREADS][TOKENS_PER_THREAD];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String[] ofThread = generated[t];
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < TOKENS_PER_THREAD; i++) {
+                    ofThread[i] = generator.next();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (String[] ofThread : generated) {
+            tokens.addAll(Arrays.asList(ofThread));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.examples.client;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Metric;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CachingConnectorTest {
+
+    private long now;
+    private final List<ClientRequest> sent = new ArrayList<>();
+    private final MetricRegistry metrics = mock(MetricRegistry.class);
+
+    @Test
+    public void testFreshResponseServedThen304ServedFromCache() throws Exception {
+        ResponseCache cache = new ResponseCache(4096, () -> now);
+        Client client = newClient(cache, request -> "\"v1\"".equals(request.getHeaderString("If-None-Match"))
+                ? respond(request, 304, null, "ETag", "\"v1\"")
+                : respond(request, 200, "Hallo", "ETag", "\"v1\"", "Cache-Control", "max-age=60"));
+
+        assertEquals("Hallo", get(client, "http://localhost/greetings/hallo", "da"));
+        assertEquals("Hallo", get(client, "http://localhost/greetings/hallo", "da"));
+        assertEquals("Hallo", client.target("http://localhost/greetings/hallo").request()
+                .acceptLanguage("da").async().get(String.class).get(5, TimeUnit.SECONDS));
+        assertEquals(1, sent.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        now += TimeUnit.SECONDS.toNanos(61);
+        Response response = client.target("http://localhost/greetings/hallo").request().acceptLanguage("da").get();
+        assertEquals(200, response.getStatus());
+        assertEquals("\"v1\"", response.getHeaderString("ETag"));
+        assertEquals("Hallo", response.readEntity(String.class));
+        assertEquals(2, sent.size());
+        assertEquals("\"v1\"", sent.get(1).getHeaderString("If-None-Match"));
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(1, cache.getNotModified());
+
+        assertEquals("Hallo", get(client, "http://localhost/greetings/hallo", "da"));
+        assertEquals(2, sent.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(3L, gauge("greetings.client.cache.hits"));
+        client.close();
+    }
+
+    @Test
+    public void testResponsesKeptPerLanguageAndDroppedByChange() {
+        ResponseCache cache = new ResponseCache(4096, () -> now);
+        Client client = newClient(cache, request -> "PATCH".equals(request.getMethod())
+                ? respond(request, 200, "patched")
+                : respond(request, 200, "Hallo " + request.getHeaderString("Accept-Language"),
+                        "ETag", "\"v" + sent.size() + "\"", "Cache-Control", "max-age=60"));
+
+        assertEquals("Hallo da", get(client, "http://localhost/greetings/hallo", "da"));
+        assertEquals("Hallo de", get(client, "http://localhost/greetings/hallo", "de"));
+        assertEquals("Hallo da", get(client, "http://localhost/greetings/hallo", "da"));
+        assertEquals(2, sent.size());
+        assertEquals(2, cache.size());
+
+        client.target("http://localhost/greetings/hallo").request()
+                .method("PATCH", Entity.entity("{}", "application/merge-patch+json"), String.class);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+        assertEquals("Hallo da", get(client, "http://localhost/greetings/hallo", "da"));
+        assertEquals(4, sent.size());
+        client.close();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedBySize() {
+        ResponseCache cache = new ResponseCache(300, () -> now);
+        Client client = newClient(cache, request -> {
+            String path = request.getUri().getPath();
+            if (path.endsWith("private")) {
+                return respond(request, 200, "private", "ETag", "\"p\"", "Cache-Control", "no-store");
+            }
+            if (path.endsWith("cookie")) {
+                return respond(request, 200, "cookie", "ETag", "\"c\"", "Vary", "Cookie");
+            }
+            return respond(request, 200, path.endsWith("large") ? new String(new char[200]).replace('\0', 'x') : "small",
+                    "Cache-Control", "max-age=60");
+        });
+
+        get(client, "http://localhost/greetings/small1", "da");
+        get(client, "http://localhost/greetings/small2", "da");
+        get(client, "http://localhost/greetings/small1", "da");
+        assertEquals(2, cache.size());
+        get(client, "http://localhost/greetings/large", "da");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getBytes() <= 300);
+        get(client, "http://localhost/greetings/small1", "da");
+        get(client, "http://localhost/greetings/small2", "da");
+        assertEquals(4, sent.size());
+
+        get(client, "http://localhost/greetings/private", "da");
+        get(client, "http://localhost/greetings/cookie", "da");
+        get(client, "http://localhost/greetings/private", "da");
+        assertEquals(7, sent.size());
+        assertEquals(2, cache.size());
+        client.close();
+    }
+
+    @Test
+    public void testResponsesLargerThanCacheStreamedWithoutKeeping() {
+        ResponseCache cache = new ResponseCache(100, () -> now);
+        String large = new String(new char[1000]).replace('\0', 'x');
+        Client client = newClient(cache, request -> request.getUri().getPath().endsWith("known")
+                ? respond(request, 200, large, "Cache-Control", "max-age=60", "Content-Length", "1000")
+                : respond(request, 200, large, "Cache-Control", "max-age=60"));
+
+        assertEquals(large, get(client, "http://localhost/greetings/known", "da"));
+        assertEquals(large, get(client, "http://localhost/greetings/unknown", "da"));
+        assertEquals(large, get(client, "http://localhost/greetings/unknown", "da"));
+        assertEquals(3, sent.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+        client.close();
+    }
+
+    private Object gauge(String name) {
+        ArgumentCaptor<Metadata> metadata = ArgumentCaptor.forClass(Metadata.class);
+        ArgumentCaptor<Metric> gauges = ArgumentCaptor.forClass(Metric.class);
+        verify(metrics, atLeastOnce()).register(metadata.capture(), gauges.capture());
+        for (int i = 0; i < metadata.getAllValues().size(); i++) {
+            if (metadata.getAllValues().get(i).getName().equals(name)) {
+                return ((Gauge<?>) gauges.getAllValues().get(i)).getValue();
+            }
+        }
+        return fail("no gauge " + name);
+    }
+
+    private Client newClient(ResponseCache cache, Function<ClientRequest, ClientResponse> server) {
+        Connector connector = new Connector() {
+            @Override
+            public ClientResponse apply(ClientRequest request) {
+                sent.add(request);
+                return server.apply(request);
+            }
+
+            @Override
+            public Future<?> apply(ClientRequest request, AsyncConnectorCallback callback) {
+                callback.response(apply(request));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public String getName() {
+                return "stub";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        return ClientBuilder.newClient(new ClientConfig()
+                .connectorProvider(new CachingConnectorProvider((client, config) -> connector, cache, metrics, "greetings.client.cache")));
+    }
+
+    private static String get(Client client, String uri, String language) {
+        return client.target(uri).request().acceptLanguage(language).get(String.class);
+    }
+
+    private static ClientResponse respond(ClientRequest request, int status, String entity, String... headers) {
+        ClientResponse response = new ClientResponse(Response.Status.fromStatusCode(status), request);
+        for (int i = 0; i < headers.length; i += 2) {
+            response.getHeaders().add(headers[i], headers[i + 1]);
+        }
+        if (entity != null) {
+            response.getHeaders().add("Content-Type", "text/plain");
+            response.setEntityStream(new ByteArrayInputStream(entity.getBytes(StandardCharsets.UTF_8)));
+        }
+        return response;
+    }
+}
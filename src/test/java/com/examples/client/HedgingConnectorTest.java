@@ -0,0 +1,238 @@
+package com.examples.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Metric;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HedgingConnectorTest {
+
+    private Replica a;
+    private Replica b;
+    private final MetricRegistry metrics = mock(MetricRegistry.class);
+
+    @BeforeEach
+    public void startReplicas() throws IOException {
+        a = new Replica("a");
+        b = new Replica("b");
+    }
+
+    @AfterEach
+    public void stopReplicas() {
+        a.stop();
+        b.stop();
+    }
+
+    @Test
+    public void testSlowRequestHedgedToTheOtherReplica() {
+        HedgePolicy policy = new HedgePolicy(List.of(a.uri, b.uri), 95, Duration.ofMillis(50), new RetryBudget(0.1, 5));
+        Client client = newClient(policy);
+        for (int i = 0; i < 64; i++) {
+            client.target(a.uri).path("greetings/hallo").request().get(String.class);
+        }
+        assertTrue(policy.getDelay() < TimeUnit.SECONDS.toNanos(1), "delay " + policy.getDelay());
+        long hedged = policy.getHedged();
+
+        a.latencyMillis = 3000;
+        long start = System.nanoTime();
+        assertEquals("b", client.target(a.uri).path("greetings/hallo").request().get(String.class));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2500), "hedged after " + policy.getDelay());
+        assertEquals(hedged + 1, policy.getHedged());
+        assertTrue(policy.getHedgesWon() >= 1);
+        assertEquals(policy.getHedgesWon(), gauge("greetings.client.hedging.hedges-won"));
+        assertEquals(0, policy.getRetried());
+        client.close();
+    }
+
+    @Test
+    public void testUnavailableRetriedOnlyWithinBudget() {
+        RetryBudget budget = new RetryBudget(0, 1);
+        HedgePolicy policy = new HedgePolicy(List.of(a.uri, b.uri), 95, Duration.ofMillis(50), budget);
+        Client client = newClient(policy);
+        a.status = 503;
+
+        assertEquals("b", client.target(a.uri).path("greetings/hallo").request().get(String.class));
+        assertEquals(1, policy.getRetried());
+
+        Response response = client.target(a.uri).path("greetings/hallo").request().get();
+        assertEquals(503, response.getStatus());
+        assertEquals("a", response.readEntity(String.class));
+        assertEquals(1, budget.getRefused());
+        assertEquals(2, a.requests.get());
+        assertEquals(1, b.requests.get());
+        client.close();
+    }
+
+    @Test
+    public void testFailedConnectionRetriedOnTheNextReplica() throws IOException {
+        URI down;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            down = URI.create("http://localhost:" + socket.getLocalPort());
+        }
+        HedgePolicy policy = new HedgePolicy(List.of(down, b.uri), 95, Duration.ofMillis(50), new RetryBudget(0.1, 5));
+        Client client = newClient(policy);
+
+        assertEquals("b", client.target(down).path("greetings/hallo").request().get(String.class));
+        assertEquals(1, policy.getRetried());
+        assertEquals(4, policy.getBudget().getTokens());
+        client.close();
+    }
+
+    @Test
+    public void testCancelledRequestNotAnswered() throws Exception {
+        a.latencyMillis = 500;
+        CompletableFuture<Future<?>> sent = new CompletableFuture<>();
+        Client client = ClientBuilder.newClient(new ClientConfig().connectorProvider((jaxrsClient, config) -> {
+            Connector connector = new JdkHttpClientConnectorProvider().getConnector(jaxrsClient, config);
+            return new Connector() {
+                @Override
+                public ClientResponse apply(ClientRequest request) {
+                    return connector.apply(request);
+                }
+
+                @Override
+                public Future<?> apply(ClientRequest request, AsyncConnectorCallback callback) {
+                    Future<?> future = connector.apply(request, callback);
+                    sent.complete(future);
+                    return future;
+                }
+
+                @Override
+                public String getName() {
+                    return connector.getName();
+                }
+
+                @Override
+                public void close() {
+                    connector.close();
+                }
+            };
+        }));
+        CountDownLatch told = new CountDownLatch(1);
+        client.target(a.uri).path("greetings/hallo").request().async().get(new InvocationCallback<String>() {
+            @Override
+            public void completed(String response) {
+                told.countDown();
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                told.countDown();
+            }
+        });
+        Future<?> future = sent.get(5, TimeUnit.SECONDS);
+        while (a.requests.get() == 0) {
+            Thread.sleep(10);
+        }
+        assertTrue(future.cancel(true));
+        assertFalse(told.await(1, TimeUnit.SECONDS));
+        assertEquals(1, a.requests.get());
+        client.close();
+    }
+
+    @Test
+    public void testBudgetRefillsByTheShareOfRequests() {
+        RetryBudget budget = new RetryBudget(0.5, 2);
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertEquals(2, budget.getTokens());
+        assertEquals(3, budget.getWithdrawn());
+        assertEquals(2, budget.getRefused());
+    }
+
+    private Object gauge(String name) {
+        ArgumentCaptor<Metadata> metadata = ArgumentCaptor.forClass(Metadata.class);
+        ArgumentCaptor<Metric> gauges = ArgumentCaptor.forClass(Metric.class);
+        verify(metrics, atLeastOnce()).register(metadata.capture(), gauges.capture());
+        for (int i = 0; i < metadata.getAllValues().size(); i++) {
+            if (metadata.getAllValues().get(i).getName().equals(name)) {
+                return ((Gauge<?>) gauges.getAllValues().get(i)).getValue();
+            }
+        }
+        return fail("no gauge " + name);
+    }
+
+    private Client newClient(HedgePolicy policy) {
+        return ClientBuilder.newClient(new ClientConfig().connectorProvider(new HedgingConnectorProvider(
+                new JdkHttpClientConnectorProvider(), policy, metrics, "greetings.client.hedging")));
+    }
+
+    /**
+     * A replica answering with its name after the latency injected.
+     */
+    private static final class Replica {
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final URI uri;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile long latencyMillis;
+        private volatile int status = 200;
+
+        private Replica(String name) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", exchange -> {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] entity = name.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(status, entity.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(entity);
+                }
+            });
+            server.setExecutor(executor);
+            server.start();
+            uri = URI.create("http://localhost:" + server.getAddress().getPort());
+        }
+
+        private void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.examples.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.glassfish.jersey.client.ClientConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdkHttpClientConnectorTest {
+
+    private HttpServer server;
+    private URI uri;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] entity = (exchange.getRequestHeaders().get("Cookie") + " " + exchange.getRequestHeaders().get("X-Tag"))
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, entity.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(entity);
+            }
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testCookiesSentInOneHeaderAndOtherValuesAsSent() {
+        Client client = ClientBuilder.newClient(new ClientConfig().connectorProvider(new JdkHttpClientConnectorProvider()));
+        String headers = client.target(uri).path("greetings/hallo").request()
+                .header("Cookie", "session=a1")
+                .header("Cookie", "theme=dark")
+                .header("X-Tag", "W/\"1,2\"")
+                .header("X-Tag", "\"3\"")
+                .get(String.class);
+        assertEquals("[session=a1; theme=dark] [W/\"1,2\", \"3\"]", headers);
+        client.close();
+    }
+}
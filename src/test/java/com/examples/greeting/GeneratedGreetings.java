@@ -0,0 +1,53 @@
+package com.examples.greeting;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates lines of greetings as they are read, so the input is never held in memory.
+ */
+final class GeneratedGreetings extends InputStream {
+    private final int entries;
+    private int next;
+    private byte[] line = new byte[0];
+    private int position;
+
+    GeneratedGreetings(int entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public int read() {
+        if (position == line.length && !nextLine()) {
+            return -1;
+        }
+        return line[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == line.length && !nextLine()) {
+            return -1;
+        }
+        int count = Math.min(len, line.length - position);
+        System.arraycopy(line, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    private boolean nextLine() {
+        if (next == entries) {
+            return false;
+        }
+        int i = next++;
+        line = ("{\"greeting\":\"Hej " + i + "!\",\"language\":\"Dansk\",\"country\":\"Danmark\","
+                + "\"native\":{\"language\":\"Dansk\",\"country\":\"Danmark\"},"
+                + "\"_links\":{\"self\":{\"href\":\"greetings/hej-" + i + "\",\"title\":\"Dansk Hilsen Hej " + i + "\",\"hreflang\":\"da\"}}}\n")
+                .getBytes(StandardCharsets.UTF_8);
+        position = 0;
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+package com.examples.greeting;
+
+import io.helidon.microprofile.server.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.enterprise.inject.se.SeContainer;
+import javax.enterprise.inject.spi.CDI;
+import javax.json.JsonObject;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingAsyncTestIT {
+
+    private static Server server;
+
+    @BeforeAll
+    public static void setupServer() {
+        server = Service.startServer();
+    }
+
+    @Test
+    public void testHelloGreetingAsync() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client
+                .target(getConnectionString("/greetings/async/hello"))
+                .request()
+                .accept("application/hal+json;p=greeting;v=4")
+                .acceptLanguage("en").get(Response.class);
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"greeting\":\"Hello!\""));
+        assertTrue(msg.contains("\"href\":\"/greetings/hello\""));
+        assertEquals("application/hal+json;p=greeting;v=4", response.getMediaType().toString());
+        assertNotNull(response.getHeaders().get("X-Log-Token"));
+        EntityTag eTag = response.getEntityTag();
+
+        response = client
+                .target(getConnectionString("/greetings/async/hello"))
+                .request()
+                .accept("application/hal+json;p=greeting;v=4")
+                .header("If-None-Match", eTag)
+                .acceptLanguage("en").get(Response.class);
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void testGreetingsListAsync() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client
+                .target(getConnectionString("/greetings/async"))
+                .request()
+                .accept("application/hal+json")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("/greetings/hallo"));
+        assertEquals("application/hal+json;p=greetings;v=2", response.getMediaType().toString());
+    }
+
+    @Test
+    public void testCreateReplaceDeleteGreetingAsync() {
+        Client client = ClientBuilder.newClient();
+        String entity = "{\"greeting\":\"Ahoj!\",\"language\":\"Čeština\",\"country\":\"Česko\",\"native\":{\"language\":\"Tjekkisk\",\"country\":\"Tjekkiet\"},\"_links\":{\"self\":{\"href\":\"greetings/ahoj\",\"title\":\"Tjekkisk Hilsen Ahoj\"}}}";
+
+        Response response = client
+                .target(getConnectionString("/greetings/async"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .post(Entity.json(entity));
+        assertEquals(201, response.getStatus());
+        assertTrue(response.getHeaderString("Location").contains("greetings/ahoj"));
+
+        response = client
+                .target(getConnectionString("/greetings/async/ahoj"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        EntityTag eTag = response.getEntityTag();
+
+        response = client
+                .target(getConnectionString("/greetings/async/ahoj"))
+                .request()
+                .acceptLanguage("da")
+                .header("If-None-Match", eTag)
+                .put(Entity.json(entity.replace("Ahoj!", "Nazdar!")));
+        assertEquals(200, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings/async/ahoj"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("\"greeting\":\"Nazdar!\""));
+        eTag = response.getEntityTag();
+
+        response = client
+                .target(getConnectionString("/greetings/async/ahoj"))
+                .request()
+                .acceptLanguage("da")
+                .header("If-None-Match", eTag)
+                .delete();
+        assertEquals(204, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings/async/ahoj"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .get(Response.class);
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testConcurrentGreetingsAsync() throws Exception {
+        Client client = ClientBuilder.newClient();
+        List<Future<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            responses.add(client
+                    .target(getConnectionString("/greetings/async/hallo"))
+                    .request()
+                    .accept("application/hal+json")
+                    .acceptLanguage("da")
+                    .async()
+                    .get());
+        }
+        for (Future<Response> response : responses) {
+            assertEquals(200, response.get().getStatus());
+        }
+
+        Response metrics = client
+                .target(getConnectionString("/metrics/application"))
+                .request()
+                .accept("application/json")
+                .get();
+        assertEquals(200, metrics.getStatus());
+        String msg = metrics.readEntity(String.class);
+        assertTrue(msg.contains("\"greetings.render.computed\""));
+        assertTrue(msg.contains("\"greetings.render.coalesced\""));
+        assertTrue(msg.contains("\"greetings.render.coalescing-ratio\""));
+    }
+
+    @Test
+    public void testMeetAsync() {
+        Client client = ClientBuilder.newClient();
+
+        JsonObject jsonObject = client
+                .target(getConnectionString("/async/meet/Joe"))
+                .request()
+                .get(JsonObject.class);
+        assertTrue(jsonObject.getString("message").endsWith(" Joe!"));
+    }
+
+    @AfterAll
+    static void destroyClass() {
+        CDI<Object> current = CDI.current();
+        ((SeContainer) current).close();
+    }
+
+    private String getConnectionString(String path) {
+        return "http://localhost:" + server.port() + path;
+    }
+}
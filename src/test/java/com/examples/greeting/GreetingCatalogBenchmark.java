@@ -0,0 +1,32 @@
+package com.examples.greeting;
+
+import com.examples.RepresentationContainer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingCatalogBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+
+    @Test
+    public void benchmarkImportAndExportOfMillionGreetings() throws IOException {
+        GreetingCatalog catalog = new GreetingCatalog(1000);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+
+        long start = System.nanoTime();
+        GreetingCatalog.ImportResult result = catalog.importFrom(new GeneratedGreetings(ENTRIES), greetings, "da");
+        long importMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(ENTRIES, result.getStored());
+
+        start = System.nanoTime();
+        LineCountingOutputStream output = new LineCountingOutputStream();
+        assertEquals(ENTRIES, catalog.export(greetings, output));
+        long exportMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("Imported " + ENTRIES + " greetings in " + importMillis + "ms, exported " + output.bytes
+                + " bytes in " + exportMillis + "ms");
+    }
+}
@@ -0,0 +1,173 @@
+package com.examples.greeting;
+
+import com.examples.RepresentationContainer;
+import io.openapitools.jackson.dataformat.hal.HALLink;
+import io.openapitools.jackson.dataformat.hal.HALMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingCatalogTest {
+
+    private static final int ENTRIES = 10_000;
+
+    @Test
+    public void testImportAndExportOfManyGreetings() throws IOException {
+        GreetingCatalog catalog = new GreetingCatalog(1000);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        String version = greetings.getChCode();
+
+        GreetingCatalog.ImportResult result = catalog.importFrom(new GeneratedGreetings(ENTRIES), greetings, "da");
+        assertNull(result.getError());
+        assertEquals(ENTRIES, result.getRead());
+        assertEquals(ENTRIES, result.getStored());
+        assertEquals(0, result.getRejected());
+        assertEquals(ENTRIES, greetings.size());
+        assertEquals(Integer.parseInt(version, 16) + ENTRIES / 1000, Integer.parseInt(greetings.getChCode(), 16));
+        assertEquals("Hej 4242!", greetings.get("hej-4242_da").getGreeting());
+
+        LineCountingOutputStream output = new LineCountingOutputStream();
+        assertEquals(ENTRIES, catalog.export(greetings, output));
+        assertEquals(ENTRIES, output.lines);
+        assertEquals(ENTRIES, catalog.getExported());
+        assertEquals(ENTRIES, catalog.getImported());
+    }
+
+    @Test
+    public void testExportCanBeImported() throws IOException {
+        GreetingCatalog catalog = new GreetingCatalog(2);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        catalog.importFrom(new GeneratedGreetings(5), greetings, "en");
+        catalog.importFrom(new ByteArrayInputStream(("{\"greeting\":\"Hej!\",\"_links\":{\"self\":{\"href\":\"greetings/hej\"}}}")
+                .getBytes(StandardCharsets.UTF_8)), greetings, "da");
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        assertEquals(6, catalog.export(greetings, exported));
+        String lines = exported.toString("UTF-8");
+        assertTrue(lines.contains("\"href\":\"greetings/hej\",\"hreflang\":\"da\""));
+        assertTrue(lines.endsWith("}\n"));
+
+        RepresentationContainer<String, GreetingRepresentation> copy = new RepresentationContainer<>();
+        GreetingCatalog.ImportResult result = catalog.importFrom(new ByteArrayInputStream(exported.toByteArray()), copy, "en");
+        assertEquals(6, result.getStored());
+        assertEquals("Hej!", copy.get("hej_da").getGreeting());
+        assertEquals(greetings.get("hej-3_da"), copy.get("hej-3_da"));
+    }
+
+    @Test
+    public void testExportKeepsSelfLinksAndSkipsInvalidOnes() throws IOException {
+        GreetingCatalog catalog = new GreetingCatalog(10);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        HALMapper mapper = new HALMapper();
+        greetings.add("hej_da", mapper.readValue("{\"greeting\":\"Hej!\",\"_links\":{\"self\":{\"href\":\"greetings/hej\","
+                + "\"name\":\"hej\",\"type\":\"application/hal+json\",\"profile\":\"http://example.com/greeting\","
+                + "\"deprecation\":\"http://example.com/deprecated\",\"title\":\"Hej\"}}}", GreetingRepresentation.class));
+        greetings.add("bad_da", mapper.readValue("{\"greeting\":\"Bad!\",\"_links\":{\"self\":{\"href\":\"greetings/bad name\"}}}",
+                GreetingRepresentation.class));
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        assertEquals(1, catalog.export(greetings, exported));
+
+        RepresentationContainer<String, GreetingRepresentation> copy = new RepresentationContainer<>();
+        assertEquals(1, catalog.importFrom(new ByteArrayInputStream(exported.toByteArray()), copy, "en").getStored());
+        HALLink self = copy.get("hej_da").getSelf();
+        assertEquals("da", self.getHreflang());
+        assertEquals("hej", self.getName());
+        assertEquals("application/hal+json", self.getType());
+        assertEquals("http://example.com/greeting", self.getProfile().toString());
+        assertEquals("http://example.com/deprecated", self.getDeprecation().toString());
+        assertEquals("Hej", self.getTitle());
+    }
+
+    @Test
+    public void testExportIsSnapshot() throws IOException {
+        GreetingCatalog catalog = new GreetingCatalog(10);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        catalog.importFrom(new GeneratedGreetings(3), greetings, "da");
+        OutputStream changing = new OutputStream() {
+            @Override
+            public void write(int b) {
+                greetings.add("late_da", greetings.get("hej-1_da"));
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                write(0);
+            }
+        };
+        assertEquals(3, catalog.export(greetings, new BufferedOutputStream(changing, 1)));
+        LineCountingOutputStream output = new LineCountingOutputStream();
+        assertEquals(4, catalog.export(greetings, output));
+    }
+
+    @Test
+    public void testExportFileKeptUntilGreetingsChange() throws IOException {
+        GreetingCatalog catalog = new GreetingCatalog(10, true);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        catalog.importFrom(new GeneratedGreetings(3), greetings, "da");
+
+        GreetingCatalog.ExportFile export = catalog.exportFile(greetings);
+        Path first = export.getPath();
+        assertEquals(greetings.getVersion(), export.getVersion());
+        assertEquals(3, Files.readAllLines(first).size());
+        assertEquals(first, catalog.exportFile(greetings).getPath());
+        assertEquals(3, catalog.getExported());
+
+        greetings.add("late_da", greetings.get("hej-1_da"));
+        Path second = catalog.exportFile(greetings).getPath();
+        assertNotEquals(first, second);
+        assertEquals(4, Files.readAllLines(second).size());
+        assertTrue(Files.exists(first));
+
+        greetings.remove("late_da");
+        Path third = catalog.exportFile(greetings).getPath();
+        assertEquals(3, Files.readAllLines(third).size());
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(second));
+
+        catalog.deleteExportFiles();
+        assertFalse(Files.exists(second));
+        assertFalse(Files.exists(third));
+    }
+
+    @Test
+    public void testImportRejectsReservedNames() {
+        GreetingCatalog catalog = new GreetingCatalog(10);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        String input = "{\"greeting\":\"Hej!\",\"_links\":{\"self\":{\"href\":\"greetings/hej\"}}}\n"
+                + "{\"greeting\":\"Eksport!\",\"_links\":{\"self\":{\"href\":\"greetings/export\"}}}\n"
+                + "{\"greeting\":\"Asynkron!\",\"_links\":{\"self\":{\"href\":\"greetings/Async\"}}}\n";
+        GreetingCatalog.ImportResult result = catalog.importFrom(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), greetings, "da");
+        assertNull(result.getError());
+        assertEquals(1, result.getStored());
+        assertEquals(2, result.getRejected());
+        assertNull(greetings.get("export_da"));
+        assertNull(greetings.get("async_da"));
+    }
+
+    @Test
+    public void testImportRejectsAndStops() {
+        GreetingCatalog catalog = new GreetingCatalog(10);
+        RepresentationContainer<String, GreetingRepresentation> greetings = new RepresentationContainer<>();
+        String input = "{\"greeting\":\"Hej!\",\"_links\":{\"self\":{\"href\":\"greetings/hej\"}}}\n"
+                + "{\"greeting\":\"Hallo!\",\"_links\":{\"self\":{\"href\":\"somewhere/hallo\"}}}\n"
+                + "{\"greeting\":[1,2]}\n"
+                + "{\"greeting\":\"Hola!\",\"_links\":{\"self\":{\"href\":\"greetings/hola\",\"hreflang\":\"es\"}}}\n"
+                + "{\"greeting\":";
+        GreetingCatalog.ImportResult result = catalog.importFrom(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), greetings, "da");
+        assertNotNull(result.getError());
+        assertEquals(2, result.getStored());
+        assertEquals(2, result.getRejected());
+        assertNotNull(greetings.get("hej_da"));
+        assertNotNull(greetings.get("hola_es"));
+    }
+}
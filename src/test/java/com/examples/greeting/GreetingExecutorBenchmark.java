@@ -0,0 +1,44 @@
+package com.examples.greeting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class GreetingExecutorBenchmark {
+
+    private static final long SLOW_STORAGE_MILLIS = 20;
+
+    @Test
+    public void benchmarkThroughputWithSlowStorage() {
+        int threads = 16;
+        int requests = 400;
+        GreetingExecutor executor = new GreetingExecutor(threads, requests);
+        List<CompletableFuture<String>> responses = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            final int request = i;
+            responses.add(executor.submit(() -> {
+                slowStorage();
+                return "greeting-" + request;
+            }).toCompletableFuture());
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+
+        long sequentialMillis = requests * SLOW_STORAGE_MILLIS;
+        System.out.println("Served " + requests + " requests with " + SLOW_STORAGE_MILLIS + "ms storage latency in " + elapsedMillis
+                + "ms (" + (requests * 1000L / Math.max(1, elapsedMillis)) + " req/s), sequential would take " + sequentialMillis + "ms");
+    }
+
+    private static void slowStorage() {
+        try {
+            Thread.sleep(SLOW_STORAGE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
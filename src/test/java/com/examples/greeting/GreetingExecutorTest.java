@@ -0,0 +1,75 @@
+package com.examples.greeting;
+
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingExecutorTest {
+
+    @Test
+    public void testServesEveryRequestInParallel() throws InterruptedException {
+        int threads = 4;
+        int requests = 40;
+        GreetingExecutor executor = new GreetingExecutor(threads, requests);
+        CountDownLatch allRunning = new CountDownLatch(threads);
+        AtomicInteger served = new AtomicInteger();
+        List<CompletableFuture<String>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            final int request = i;
+            responses.add(executor.submit(() -> {
+                // the first requests only finish once every thread of the pool runs one of them
+                allRunning.countDown();
+                await(allRunning);
+                served.incrementAndGet();
+                return "greeting-" + request;
+            }).toCompletableFuture());
+        }
+        assertTrue(allRunning.await(5, TimeUnit.SECONDS), "expected the pool to serve requests in parallel");
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+
+        assertEquals(requests, served.get());
+        assertEquals("greeting-17", responses.get(17).join());
+    }
+
+    @Test
+    public void testSaturatedExecutorRejects() throws InterruptedException {
+        GreetingExecutor executor = new GreetingExecutor(1, 1);
+        CountDownLatch storage = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            await(storage);
+            return "running";
+        }).toCompletableFuture();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "queued").toCompletableFuture();
+        CompletableFuture<String> rejected = executor.submit(() -> "rejected").toCompletableFuture();
+
+        CompletionException ce = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(ce.getCause() instanceof ServiceUnavailableException);
+        assertEquals(503, ((ServiceUnavailableException) ce.getCause()).getResponse().getStatus());
+
+        storage.countDown();
+        assertEquals("running", running.join());
+        assertEquals("queued", queued.join());
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.examples.greeting;
+
+import io.openapitools.jackson.dataformat.hal.HALLink;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingIndexBenchmark {
+
+    @Test
+    public void benchmarkSearchInMillionGreetings() {
+        GreetingIndex index = new GreetingIndex();
+        for (int i = 0; i < 1_000_000; i++) {
+            index.changed("hej-" + i + "_da", null,
+                    greeting("Hej " + i + "!", "Land" + (i % 200), "greetings/hej-" + i, "Dansk Hilsen Hej " + i));
+        }
+        assertEquals(1_000_000, index.size());
+
+        long selective = averageMicros(index, "hej-4242", "4242", "hej-99999", "987654");
+        long common = averageMicros(index, "land7", "hilsen", "dansk hej");
+        System.out.println("Searching 1000000 greetings took " + selective + "us for selective and " + common + "us for common queries");
+    }
+
+    private static long averageMicros(GreetingIndex index, String... queries) {
+        int rounds = 50;
+        for (int i = 0; i < rounds; i++) {
+            for (String query : queries) {
+                index.search(query, 0, 20);
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (String query : queries) {
+                index.search(query, 0, 20);
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / (rounds * queries.length);
+    }
+
+    private static GreetingRepresentation greeting(String greeting, String country, String href, String title) {
+        return new GreetingRepresentation(greeting, "Dansk", country, new GreetingNativeRepresentation("Dansk", country),
+                new HALLink.Builder(href).title(title).build());
+    }
+}
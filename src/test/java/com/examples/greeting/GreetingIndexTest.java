@@ -0,0 +1,92 @@
+package com.examples.greeting;
+
+import io.openapitools.jackson.dataformat.hal.HALLink;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingIndexTest {
+
+    @Test
+    public void testRankedSearch() {
+        GreetingIndex index = new GreetingIndex();
+        index.changed("hallo_da", null, greeting("Hallo!", "Danmark", "/greetings/hallo", "Dansk Hilsen Hallo"));
+        index.changed("hallo_en", null, greeting("Hallo!", "Denmark", "/greetings/hallo", "Danish Greeting Hallo"));
+        index.changed("halloj_da", null, greeting("Halløj!", "Danmark", "/greetings/halloj", "Dansk Hilsen Halløj"));
+        index.changed("hej_da", null, greeting("Hej!", "Danmark", "/greetings/hej", "Dansk Hilsen Hej"));
+
+        List<String> found = keys(index.search("hallo", 0, 10));
+        assertEquals(List.of("hallo_da", "hallo_en", "halloj_da"), found);
+        GreetingIndex.Result result = index.search("hallo", 0, 10);
+        assertTrue(result.getMatches().get(0).getScore() > result.getMatches().get(2).getScore());
+
+        assertEquals(List.of("hallo_en"), keys(index.search("Denmark", 0, 10)));
+        assertEquals(List.of("halloj_da"), keys(index.search("halløj", 0, 10)));
+        assertEquals(List.of("hallo_da", "halloj_da", "hej_da"), keys(index.search("dansk hilsen", 0, 10)));
+        assertEquals(List.of("hej_da"), keys(index.search("hilsen hej", 0, 10)));
+        assertTrue(index.search("dansk danish", 0, 10).getMatches().isEmpty());
+        assertTrue(index.search("nothing", 0, 10).getMatches().isEmpty());
+    }
+
+    @Test
+    public void testPaging() {
+        GreetingIndex index = new GreetingIndex();
+        for (int i = 0; i < 25; i++) {
+            index.changed("hej-" + (100 + i) + "_da", null, greeting("Hej!", "Danmark", "/greetings/hej-" + (100 + i), "Dansk Hilsen Hej"));
+        }
+        GreetingIndex.Result first = index.search("hej", 0, 10);
+        GreetingIndex.Result last = index.search("hej", 20, 10);
+        assertEquals(25, first.getTotal());
+        assertEquals(10, first.getMatches().size());
+        assertEquals("hej-100_da", first.getMatches().get(0).getKey());
+        assertEquals(5, last.getMatches().size());
+        assertEquals("hej-124_da", last.getMatches().get(4).getKey());
+        assertTrue(index.search("hej", 30, 10).getMatches().isEmpty());
+    }
+
+    @Test
+    public void testFollowsChanges() {
+        GreetingIndex index = new GreetingIndex();
+        GreetingRepresentation hallo = greeting("Hallo!", "Danmark", "/greetings/hallo", "Dansk Hilsen Hallo");
+        GreetingRepresentation hej = greeting("Hej!", "Sverige", "/greetings/hallo", "Svensk Hälsning Hej");
+        index.changed("hallo_da", null, hallo);
+        index.changed("hallo_da", hallo, hej);
+        assertTrue(index.search("danmark", 0, 10).getMatches().isEmpty());
+        assertEquals(List.of("hallo_da"), keys(index.search("sverige", 0, 10)));
+        index.changed("hallo_da", hej, null);
+        assertTrue(index.search("sverige", 0, 10).getMatches().isEmpty());
+        assertTrue(index.search("hallo", 0, 10).getMatches().isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testSearchInManyGreetings() {
+        GreetingIndex index = new GreetingIndex();
+        int greetings = 2 * GreetingIndex.MAX_CANDIDATES;
+        for (int i = 0; i < greetings; i++) {
+            index.changed("hej-" + i + "_da", null,
+                    greeting("Hej " + i + "!", "Land" + (i % 200), "greetings/hej-" + i, "Dansk Hilsen Hej " + i));
+        }
+        assertEquals(greetings, index.size());
+
+        assertEquals("hej-4242_da", index.search("hej-4242", 0, 20).getMatches().get(0).getKey());
+        assertEquals("hej-424_da", index.search("hej-424", 0, 20).getMatches().get(0).getKey());
+        assertEquals(11, index.search("hej-424", 0, 20).getTotal());
+        assertEquals(List.of("hej-4242_da"), keys(index.search("4242", 0, 20)));
+        assertEquals(100, index.search("land7", 0, 20).getTotal());
+        assertFalse(index.search("land7", 0, 20).isTruncated());
+        assertTrue(index.search("hilsen", 0, 20).isTruncated());
+    }
+
+    private static List<String> keys(GreetingIndex.Result result) {
+        return result.getMatches().stream().map(GreetingIndex.Match::getKey).collect(Collectors.toList());
+    }
+
+    private static GreetingRepresentation greeting(String greeting, String country, String href, String title) {
+        return new GreetingRepresentation(greeting, "Dansk", country, new GreetingNativeRepresentation("Dansk", country),
+                new HALLink.Builder(href).title(title).build());
+    }
+}
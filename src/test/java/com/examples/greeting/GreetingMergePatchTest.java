@@ -0,0 +1,76 @@
+package com.examples.greeting;
+
+import com.examples.patch.JSONPatchException;
+import io.openapitools.jackson.dataformat.hal.HALLink;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GreetingMergePatchTest {
+
+    @Test
+    public void testMergeMembers() throws Exception {
+        GreetingRepresentation stored = greeting();
+        GreetingRepresentation merged = GreetingMergePatch.apply(stored,
+                json("{\"greeting\":\"Møøjn!\",\"country\":null,\"native\":{\"country\":\"Sønderjylland\"}}"));
+
+        assertNotSame(stored, merged);
+        assertEquals("Møøjn!", merged.getGreeting());
+        assertEquals("Dansk", merged.getLanguage());
+        assertNull(merged.getCountry());
+        assertEquals(new GreetingNativeRepresentation("Dansk", "Sønderjylland"), merged.getNative());
+        assertEquals(stored.getSelf(), merged.getSelf());
+        assertEquals("Mooojn!", stored.getGreeting());
+        assertEquals("Danmark", stored.getCountry());
+        assertEquals("Danmark", stored.getNative().getCountry());
+    }
+
+    @Test
+    public void testMergeSelfLink() throws Exception {
+        GreetingRepresentation merged = GreetingMergePatch.apply(greeting(),
+                json("{\"_links\":{\"self\":{\"title\":\"Sønderjysk Hilsen\",\"hreflang\":\"son\"}}}"));
+        HALLink self = merged.getSelf();
+        assertEquals("greetings/mooojn", self.getHref());
+        assertEquals("Sønderjysk Hilsen", self.getTitle());
+        assertEquals("son", self.getHreflang());
+        assertNull(self.getTemplated());
+
+        assertNull(GreetingMergePatch.apply(greeting(), json("{\"_links\":{\"self\":null}}")).getSelf());
+        assertNull(GreetingMergePatch.apply(greeting(), json("{\"native\":null}")).getNative());
+        assertEquals(greeting(), GreetingMergePatch.apply(greeting(), json("{}")));
+    }
+
+    @Test
+    public void testMergeIntoMissingObject() throws Exception {
+        GreetingRepresentation stored = new GreetingRepresentation("Mooojn!", "Dansk", "Danmark", null, greeting().getSelf());
+        GreetingRepresentation merged = GreetingMergePatch.apply(stored, json("{\"native\":{\"language\":\"Sønderjysk\"}}"));
+        assertEquals(new GreetingNativeRepresentation("Sønderjysk", null), merged.getNative());
+    }
+
+    @Test
+    public void testInvalidMergePatches() {
+        assertThrows(JSONPatchException.class, () -> GreetingMergePatch.apply(greeting(), json("[]")));
+        assertThrows(JSONPatchException.class, () -> GreetingMergePatch.apply(greeting(), json("{\"unknown\":\"x\"}")));
+        assertThrows(JSONPatchException.class, () -> GreetingMergePatch.apply(greeting(), json("{\"greeting\":42}")));
+        assertThrows(JSONPatchException.class, () -> GreetingMergePatch.apply(greeting(), json("{\"native\":\"Dansk\"}")));
+        assertThrows(JSONPatchException.class, () -> GreetingMergePatch.apply(greeting(), json("{\"_links\":{\"next\":{}}}")));
+        assertThrows(JSONPatchException.class, () -> GreetingMergePatch.apply(greeting(), json("{} {}")));
+        assertThrows(IOException.class, () -> GreetingMergePatch.apply(greeting(), json("{\"greeting\":")));
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static GreetingRepresentation greeting() {
+        return new GreetingRepresentation("Mooojn!", "Dansk", "Danmark",
+                new GreetingNativeRepresentation("Dansk", "Danmark"),
+                new HALLink.Builder(URI.create("greetings/mooojn")).title("Sønderjysk Hilsen Møøøjn").build());
+    }
+}
@@ -1,5 +1,8 @@
 package com.examples.greeting;
 
+import com.examples.client.CachingConnectorProvider;
+import com.examples.client.JdkHttpClientConnectorProvider;
+import com.examples.client.ResponseCache;
 import com.examples.patch.JSONPatchContainer;
 import com.examples.patch.PatchInterceptor;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +18,8 @@ import javax.ws.rs.client.*;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,7 +42,7 @@ public class GreetingPatchTestIT {
 
     @Test
     void testContainerWorking() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
         Response response = client
                 .target(getConnectionString("/greetings/hello"))
                 .request()
@@ -66,7 +71,7 @@ public class GreetingPatchTestIT {
     public void testUpdateGreetingLanguage() {
         ClientConfig config = new ClientConfig();
         config.register(PatchInterceptor.class);
-        Client client = ClientBuilder.newClient(config);
+        Client client = newClient(config);
         String entity = "{\"greeting\":\"Mooojn!\",\"language\":\"Dansk\",\"country\":\"Danmark\",\"native\":{\"language\":\"Dansk\",\"country\":\"Danmark\"},\"_links\":{\"self\":{\"href\":\"greetings/mooojn\",\"title\":\"Sønderjysk Hilsen Møøøjn\"}}}";
         Response response = client
                 .target(getConnectionString("/greetings/mooojn"))
@@ -124,9 +129,189 @@ public class GreetingPatchTestIT {
         assertTrue(msg.contains("greetings/mooojn\",\"title\":\"Sønderjysk Hilsen Møøøjn\"}}"));
     }
 
+    @Test
+    public void testUpdateGreetingWithSeveralOperations() {
+        Client client = newClient();
+        String entity = "{\"greeting\":\"Griass di!\",\"language\":\"Bairisch\",\"country\":\"Deutschland\",\"native\":{\"language\":\"Bayersk\",\"country\":\"Bayern\"},\"_links\":{\"self\":{\"href\":\"greetings/griass\",\"title\":\"Bayersk Hilsen Griass di\"}}}";
+        Response response = client
+                .target(getConnectionString("/greetings/griass"))
+                .request()
+                .acceptLanguage("bar")
+                .method("PUT", Entity.entity(entity, "application/json"), Response.class);
+        assertEquals(201, response.getStatus());
+        response = client
+                .target(getConnectionString("/greetings/griass"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("bar")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        EntityTag eTag = response.getEntityTag();
+
+        String patch = "[{\"op\":\"test\",\"path\":\"/language\",\"value\":\"Bairisch\"},"
+                + "{\"op\":\"replace\",\"path\":\"/greeting\",\"value\":\"Servus!\"},"
+                + "{\"op\":\"copy\",\"from\":\"/native/country\",\"path\":\"/country\"},"
+                + "{\"op\":\"move\",\"from\":\"/native/language\",\"path\":\"/_links/self/title\"}]";
+        response = client
+                .target(getConnectionString("/greetings/griass"))
+                .request()
+                .acceptLanguage("bar")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity(patch, "application/patch+json"), Response.class);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("value is replaced"));
+
+        response = client
+                .target(getConnectionString("/greetings/griass"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("bar")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"greeting\":\"Servus!\","));
+        assertTrue(msg.contains("\"language\":\"Bairisch\","));
+        assertTrue(msg.contains("\"country\":\"Bayern\","));
+        assertTrue(msg.contains("\"native\":{\"language\":null,\"country\":\"Bayern\"}"));
+        assertTrue(msg.contains("greetings/griass\",\"title\":\"Bayersk\"}}"));
+        assertNotEquals(eTag, response.getEntityTag());
+        eTag = response.getEntityTag();
+
+        patch = "[{\"op\":\"replace\",\"path\":\"/greeting\",\"value\":\"Griass di!\"},"
+                + "{\"op\":\"test\",\"path\":\"/language\",\"value\":\"Dansk\"}]";
+        response = client
+                .target(getConnectionString("/greetings/griass"))
+                .request()
+                .acceptLanguage("bar")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity(patch, "application/patch+json"), Response.class);
+        assertEquals(409, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("test of path /language failed"));
+        response = client
+                .target(getConnectionString("/greetings/griass"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("bar")
+                .get(Response.class);
+        assertEquals(eTag, response.getEntityTag());
+        assertTrue(response.readEntity(String.class).contains("\"greeting\":\"Servus!\","));
+    }
+
+    @Test
+    public void testMergePatchGreeting() {
+        Client client = newClient();
+        String entity = "{\"greeting\":\"Grüezi!\",\"language\":\"Schwiizerdütsch\",\"country\":\"Schweiz\",\"native\":{\"language\":\"Schweizertysk\",\"country\":\"Schweiz\"},\"_links\":{\"self\":{\"href\":\"greetings/gruezi\",\"title\":\"Schweizisk Hilsen Grüezi\"}}}";
+        Response response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request()
+                .acceptLanguage("gsw")
+                .method("PUT", Entity.entity(entity, "application/json"), Response.class);
+        assertEquals(201, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request("text/plain")
+                .options();
+        assertTrue(response.getHeaderString("Accept-Patch").contains("application/merge-patch+json"));
+        assertTrue(response.getHeaderString("Accept-Patch").contains("application/patch+json"));
+
+        response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("gsw")
+                .get(Response.class);
+        EntityTag eTag = response.getEntityTag();
+        response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request()
+                .acceptLanguage("gsw")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity("{\"greeting\":\"Grüessech!\",\"native\":{\"country\":\"Bern\"},\"_links\":{\"self\":{\"title\":\"Bernsk Hilsen\"}}}",
+                        "application/merge-patch+json"), Response.class);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("value is replaced"));
+
+        response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("gsw")
+                .get(Response.class);
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"greeting\":\"Grüessech!\","));
+        assertTrue(msg.contains("\"language\":\"Schwiizerdütsch\","));
+        assertTrue(msg.contains("\"native\":{\"language\":\"Schweizertysk\",\"country\":\"Bern\"}"));
+        assertTrue(msg.contains("greetings/gruezi\",\"title\":\"Bernsk Hilsen\"}}"));
+        eTag = response.getEntityTag();
+
+        response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request()
+                .acceptLanguage("gsw")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity("{\"salutation\":\"Hoi\"}", "application/merge-patch+json"), Response.class);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("a greeting has no member salutation"));
+        response = client
+                .target(getConnectionString("/greetings/gruezi"))
+                .request()
+                .acceptLanguage("gsw")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity("{\"_links\":null}", "application/merge-patch+json"), Response.class);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("value could not be replaced"));
+    }
+
+    @Test
+    public void testPatchOfSelfLinkIdentityRejected() {
+        Client client = newClient();
+        String entity = "{\"greeting\":\"Morjens!\",\"language\":\"Suomi\",\"country\":\"Suomi\",\"native\":{\"language\":\"Finsk\",\"country\":\"Finland\"},\"_links\":{\"self\":{\"href\":\"greetings/morjens\",\"title\":\"Finsk Hilsen Morjens\"}}}";
+        Response response = client
+                .target(getConnectionString("/greetings/morjens"))
+                .request()
+                .acceptLanguage("fi")
+                .method("PUT", Entity.entity(entity, "application/json"), Response.class);
+        assertEquals(201, response.getStatus());
+        response = client
+                .target(getConnectionString("/greetings/morjens"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("fi")
+                .get(Response.class);
+        EntityTag eTag = response.getEntityTag();
+
+        response = client
+                .target(getConnectionString("/greetings/morjens"))
+                .request()
+                .acceptLanguage("fi")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity("[{\"op\":\"replace\",\"path\":\"/_links/self/href\",\"value\":\"greetings/moro\"}]",
+                        "application/patch+json"), Response.class);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("the self link identifies the greeting"));
+        response = client
+                .target(getConnectionString("/greetings/morjens"))
+                .request()
+                .acceptLanguage("fi")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity("{\"_links\":{\"self\":{\"hreflang\":\"sv\"}}}",
+                        "application/merge-patch+json"), Response.class);
+        assertEquals(400, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings/morjens"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("fi")
+                .get(Response.class);
+        assertEquals(eTag, response.getEntityTag());
+        assertTrue(response.readEntity(String.class).contains("greetings/morjens"));
+    }
+
     @Test
     public void testUpdateGreetingLanguageWrongContentType() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         String entity = "{\"greeting\":\"Mooojn!\",\"language\":\"Dansk\",\"country\":\"Danmark\",\"native\":{\"language\":\"Dansk\",\"country\":\"Danmark\"},\"_links\":{\"self\":{\"href\":\"greetings/moooojn\",\"title\":\"Sønderjysk Hilsen Møøøjn\"}}}";
         Response response = client
@@ -174,7 +359,7 @@ public class GreetingPatchTestIT {
 
     @Test
     public void testUpdateNonParseablePath() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         Response response = client
                 .target(getConnectionString("/greetings/hallo"))
@@ -198,7 +383,7 @@ public class GreetingPatchTestIT {
 
     @Test
     public void testUpdateNonParseablePatch() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         Response response = client
                 .target(getConnectionString("/greetings/hallo"))
@@ -222,7 +407,7 @@ public class GreetingPatchTestIT {
 
     @Test
     public void testUpdateNonExistingOperationGreetingLanguage() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         String entity = "{\"greeting\":\"Mooojn!\",\"language\":\"Dansk\",\"country\":\"Danmark\",\"native\":{\"language\":\"Dansk\",\"country\":\"Danmark\"},\"_links\":{\"self\":{\"href\":\"greetings/mooooojn\",\"title\":\"Sønderjysk Hilsen Møøøjn\"}}}";
         Response response = client
@@ -257,12 +442,12 @@ public class GreetingPatchTestIT {
                                 "application/patch+json"),
                         Response.class);
         assertEquals(400, response.getStatus());
-        assertTrue(response.readEntity(String.class).contains("{\"error\":\"only operation replace is supported\"}"));
+        assertTrue(response.readEntity(String.class).contains("{\"error\":\"operation someotherop is not supported\"}"));
     }
 
     @Test
     public void testUpdateExistingOperationNonExistingAttribueGreetingLanguage() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         Response response = client
                 .target(getConnectionString("/greetings/moooooojn"))
@@ -316,7 +501,7 @@ public class GreetingPatchTestIT {
 
     @Test
     public void testUpdateNonExistingGreetingLanguage() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         Response response = client
                 .target(getConnectionString("/greetings/itdoesnotexist"))
@@ -335,6 +520,95 @@ public class GreetingPatchTestIT {
         ((SeContainer) current).close();
     }
 
+    @Test
+    public void testPatchGreetingAsync() throws Exception {
+        Client client = newClient();
+        String entity = "{\"greeting\":\"Namaste!\",\"language\":\"Hindi\",\"country\":\"Bharat\",\"native\":{\"language\":\"Hindi\",\"country\":\"Indien\"},\"_links\":{\"self\":{\"href\":\"greetings/namaste\",\"title\":\"Indisk Hilsen Namaste\"}}}";
+        Future<Response> created = client
+                .target(getConnectionString("/greetings/namaste"))
+                .request()
+                .acceptLanguage("hi")
+                .async()
+                .put(Entity.entity(entity, "application/json"));
+        assertEquals(201, created.get(5, TimeUnit.SECONDS).getStatus());
+        Response response = client
+                .target(getConnectionString("/greetings/namaste"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("hi")
+                .async()
+                .get()
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(200, response.getStatus());
+        EntityTag eTag = response.getEntityTag();
+
+        Future<Response> patched = client
+                .target(getConnectionString("/greetings/namaste"))
+                .request()
+                .acceptLanguage("hi")
+                .header("If-None-Match", eTag)
+                .async()
+                .method("PATCH", Entity.entity("{\"op\":\"replace\",\"path\":\"language\",\"value\":\"Hindī\"}", "application/patch+json"));
+        response = patched.get(5, TimeUnit.SECONDS);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("value is replaced"));
+        response = client
+                .target(getConnectionString("/greetings/namaste"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("hi")
+                .get(Response.class);
+        assertTrue(response.readEntity(String.class).contains("\"language\":\"Hindī\","));
+        client.close();
+    }
+
+    @Test
+    public void testCachedGreetingRevalidatedAndDroppedByPatch() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        Client client = ClientBuilder.newClient(new ClientConfig()
+                .connectorProvider(new CachingConnectorProvider(new JdkHttpClientConnectorProvider(), cache)));
+        String entity = "{\"greeting\":\"Hei!\",\"language\":\"Norsk\",\"country\":\"Norge\",\"native\":{\"language\":\"Norsk\",\"country\":\"Norge\"},\"_links\":{\"self\":{\"href\":\"greetings/hei\",\"title\":\"Norsk Hilsen Hei\"}}}";
+        Response response = client
+                .target(getConnectionString("/greetings/hei"))
+                .request()
+                .acceptLanguage("no")
+                .put(Entity.entity(entity, "application/json"));
+        assertEquals(201, response.getStatus());
+
+        WebTarget hei = client.target(getConnectionString("/greetings/hei"));
+        String first = hei.request("application/hal+json").acceptLanguage("no").get(String.class);
+        assertEquals(first, hei.request("application/hal+json").acceptLanguage("no").get(String.class));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        response = hei.request("application/hal+json").acceptLanguage("no").header("Cache-Control", "no-cache").get();
+        assertEquals(200, response.getStatus());
+        assertEquals(first, response.readEntity(String.class));
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(1, cache.getNotModified());
+
+        EntityTag eTag = response.getEntityTag();
+        response = hei.request()
+                .acceptLanguage("no")
+                .header("If-None-Match", eTag)
+                .method("PATCH", Entity.entity("{\"op\":\"replace\",\"path\":\"language\",\"value\":\"Bokmål\"}", "application/patch+json"));
+        assertEquals(200, response.getStatus());
+        assertEquals(0, cache.size());
+        assertTrue(hei.request("application/hal+json").acceptLanguage("no").get(String.class).contains("\"language\":\"Bokmål\","));
+        client.close();
+    }
+
+    /**
+     * The greetings are patched with the JDK HttpClient, which sends PATCH as it is.
+     */
+    private static Client newClient() {
+        return newClient(new ClientConfig());
+    }
+
+    private static Client newClient(ClientConfig config) {
+        return ClientBuilder.newClient(config.connectorProvider(new JdkHttpClientConnectorProvider()));
+    }
+
     private String getConnectionString(String path) {
         return "http://localhost:" + server.port() + path;
     }
@@ -12,6 +12,8 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -344,6 +346,54 @@ public class GreetingTestIT {
         assertNotNull(response.getHeaders().get("X-Log-Token"));
     }
 
+    @Test
+    public void testHalloGreetingSentWhole() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client
+                .target(getConnectionString("/greetings/hallo"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.startsWith("{\"_links\":{\"self\":{\"href\":\"/greetings/hallo\""));
+        assertTrue(msg.endsWith("\"native\":{\"language\":\"Dansk\",\"country\":\"Danmark\"}}"));
+
+        Response again = client
+                .target(getConnectionString("/greetings/hallo"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .get(Response.class);
+        assertEquals(msg, again.readEntity(String.class));
+        assertEquals(response.getEntityTag(), again.getEntityTag());
+    }
+
+    @Test
+    public void testSocketWaitMetricsByEndpoint() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client
+                .target(getConnectionString("/greetings/hallo"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        response.readEntity(String.class);
+
+        Response metrics = client
+                .target(getConnectionString("/metrics/application"))
+                .request()
+                .accept("application/json")
+                .get();
+        assertEquals(200, metrics.getStatus());
+        String msg = metrics.readEntity(String.class);
+        assertTrue(msg.contains("\"response.socket-wait.GET /greetings/{representation}\":{\"count\":"));
+    }
+
     @Test
     public void testHalloGreetingFromEmptyDanish() {
         Client client = ClientBuilder.newClient();
@@ -899,6 +949,28 @@ public class GreetingTestIT {
         assertEquals(400, response.getStatus());
     }
 
+    @Test
+    public void testCreateGreetingWithReservedName() {
+        Client client = ClientBuilder.newClient();
+
+        String entity = "{\"greeting\":\"Søg!\",\"language\":\"Dansk\",\"country\":\"Danmark\",\"native\":{\"language\":\"Dansk\",\"country\":\"Danmark\"},\"_links\":{\"self\":{\"href\":\"greetings/search\",\"title\":\"Dansk Hilsen Søg\"}}}";
+        Response response = client
+                .target(getConnectionString("/greetings"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .post(Entity.json(entity));
+        assertEquals(400, response.getStatus());
+        response = client
+                .target(getConnectionString("/greetings/search"))
+                .queryParam("q", "søg")
+                .request()
+                .accept("application/json")
+                .get();
+        assertEquals(200, response.getStatus());
+        assertFalse(response.readEntity(String.class).contains("\"href\":\"greetings/search\""));
+    }
+
     @Test
     public void testReplaceGreetingAtWrongLocation() {
         Client client = ClientBuilder.newClient();
@@ -983,6 +1055,120 @@ public class GreetingTestIT {
         assertEquals(400, response.getStatus());
     }
 
+    @Test
+    public void testCreateGreetingWithIdempotencyKey() {
+        Client client = ClientBuilder.newClient();
+
+        String entity = "{\"greeting\":\"Moin!\",\"language\":\"Plattdüütsch\",\"country\":\"Noorddüütschland\",\"native\":{\"language\":\"Plattysk\",\"country\":\"Nordtyskland\"},\"_links\":{\"self\":{\"href\":\"greetings/moin\",\"title\":\"Plattysk Hilsen Moin\"}}}";
+        Response response = client
+                .target(getConnectionString("/greetings"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .header("Idempotency-Key", "create-moin-1")
+                .post(Entity.json(entity));
+        assertEquals(201, response.getStatus());
+        String location = response.getHeaderString("Location");
+        String eTag = response.getHeaderString("ETag");
+        assertTrue(location.contains("greetings/moin"));
+        assertNull(response.getHeaderString("Idempotent-Replayed"));
+
+        response = client
+                .target(getConnectionString("/greetings"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .header("Idempotency-Key", "create-moin-1")
+                .post(Entity.json(entity));
+        assertEquals(201, response.getStatus());
+        assertEquals(location, response.getHeaderString("Location"));
+        assertEquals(eTag, response.getHeaderString("ETag"));
+        assertEquals("true", response.getHeaderString("Idempotent-Replayed"));
+        assertNotNull(response.getHeaderString("X-Log-Token"));
+
+        response = client
+                .target(getConnectionString("/greetings"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .header("Idempotency-Key", "create-moin-1")
+                .post(Entity.json(entity.replace("Moin!", "Moin moin!")));
+        assertEquals(422, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .post(Entity.json(entity));
+        assertEquals(409, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings"))
+                .request()
+                .accept("application/hal+json")
+                .acceptLanguage("da")
+                .header("Idempotency-Key", "create-moin-2")
+                .post(Entity.json(entity));
+        assertEquals(409, response.getStatus());
+    }
+
+    @Test
+    public void testWaitForGreetingChange() throws Exception {
+        Client client = ClientBuilder.newClient();
+
+        String entity = "{\"greeting\":\"Zdravo!\",\"language\":\"Slovenščina\",\"country\":\"Slovenija\",\"native\":{\"language\":\"Slovensk\",\"country\":\"Slovenien\"},\"_links\":{\"self\":{\"href\":\"greetings/zdravo\",\"title\":\"Slovensk Hilsen Zdravo\"}}}";
+        Response response = client.target(getConnectionString("/greetings")).request().accept("application/hal+json").acceptLanguage("sl").post(Entity.json(entity));
+        assertEquals(201, response.getStatus());
+        response = client.target(getConnectionString("/greetings/zdravo")).request().accept("application/hal+json").acceptLanguage("sl").get();
+        assertEquals(200, response.getStatus());
+        String eTag = response.getHeaderString("ETag");
+
+        long start = System.nanoTime();
+        response = client.target(getConnectionString("/greetings/zdravo")).request().accept("application/hal+json").acceptLanguage("sl")
+                .header("If-None-Match", eTag).get();
+        assertEquals(304, response.getStatus());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        start = System.nanoTime();
+        response = client.target(getConnectionString("/greetings/zdravo")).request().accept("application/hal+json").acceptLanguage("sl")
+                .header("If-None-Match", eTag).header("Prefer", "wait=1").get();
+        assertEquals(304, response.getStatus());
+        assertEquals("wait=1", response.getHeaderString("Preference-Applied"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+
+        CompletableFuture<Response> watching = CompletableFuture.supplyAsync(() -> client.target(getConnectionString("/greetings/zdravo"))
+                .queryParam("wait", "20").request().accept("application/hal+json").acceptLanguage("sl")
+                .header("If-None-Match", eTag).get());
+        Thread.sleep(300);
+        assertFalse(watching.isDone());
+        start = System.nanoTime();
+        response = client.target(getConnectionString("/greetings/zdravo")).request().accept("application/hal+json").acceptLanguage("sl")
+                .header("If-None-Match", eTag).put(Entity.json(entity.replace("Zdravo!", "Živjo!")));
+        assertEquals(200, response.getStatus());
+        response = watching.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(200, response.getStatus());
+        assertNotEquals(eTag, response.getHeaderString("ETag"));
+        assertTrue(response.readEntity(String.class).contains("\"greeting\":\"Živjo!\""));
+    }
+
+    @Test
+    public void testMalformedWaitIsNotWaitedFor() {
+        Client client = ClientBuilder.newClient();
+        Response response = client.target(getConnectionString("/greetings/hallo")).request().accept("application/hal+json").acceptLanguage("da").get();
+        assertEquals(200, response.getStatus());
+        String eTag = response.getHeaderString("ETag");
+
+        for (String wait : new String[]{"abc", "", "99999999999999999999", "-1"}) {
+            long start = System.nanoTime();
+            response = client.target(getConnectionString("/greetings/hallo")).queryParam("wait", wait).request()
+                    .accept("application/hal+json").acceptLanguage("da").header("If-None-Match", eTag).get();
+            assertEquals(304, response.getStatus(), "wait=" + wait);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "wait=" + wait);
+        }
+    }
+
     @AfterAll
     static void destroyClass() {
         CDI<Object> current = CDI.current();
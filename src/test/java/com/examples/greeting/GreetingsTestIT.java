@@ -10,8 +10,16 @@ import javax.enterprise.inject.spi.CDI;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GreetingsTestIT {
@@ -161,12 +169,276 @@ public class GreetingsTestIT {
         assertTrue(msgAfter.contains("Hejog"));
     }
 
+    @Test
+    public void testBatchOfGreetings() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client.target(getConnectionString("/greetings")).request().accept("application/hal+json").acceptLanguage("da").get(Response.class);
+        String initialETag = response.getHeaderString("etag");
+        String batch = "["
+                + "{\"greeting\":\"Salve!\",\"language\":\"Latina\",\"country\":\"Roma\",\"native\":{\"language\":\"Latinsk\",\"country\":\"Rom\"},\"_links\":{\"self\":{\"href\":\"greetings/salve\",\"title\":\"Latinsk Hilsen Salve\"}}},"
+                + "{\"greeting\":\"Salve!\",\"language\":\"Latina\",\"country\":\"Roma\",\"native\":{\"language\":\"Latin\",\"country\":\"Rome\"},\"_links\":{\"self\":{\"href\":\"greetings/salve\",\"title\":\"Latin Greeting Salve\",\"hreflang\":\"en\"}}},"
+                + "{\"greeting\":\"Hallo!\",\"_links\":{\"self\":{\"href\":\"somewhere/else\"}}}"
+                + "]";
+        response = client
+                .target(getConnectionString("/greetings/batch"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .post(Entity.json(batch));
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("{\"index\":0,\"status\":201,\"href\":\"greetings/salve\",\"language\":\"da\",\"etag\":"));
+        assertTrue(msg.contains("{\"index\":1,\"status\":201,\"href\":\"greetings/salve\",\"language\":\"en\",\"etag\":"));
+        assertTrue(msg.contains("{\"index\":2,\"status\":400,"));
+
+        response = client.target(getConnectionString("/greetings/salve")).request().accept("application/hal+json").acceptLanguage("en").get(Response.class);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("Latin Greeting Salve"));
+        response = client.target(getConnectionString("/greetings")).request().accept("application/hal+json").acceptLanguage("da").get(Response.class);
+        assertNotEquals(initialETag, response.getHeaderString("etag"));
+
+        String ndjson = "{\"greeting\":\"Salvete!\",\"language\":\"Latina\",\"country\":\"Roma\",\"native\":{\"language\":\"Latinsk\",\"country\":\"Rom\"},\"_links\":{\"self\":{\"href\":\"greetings/salve\",\"title\":\"Latinsk Hilsen Salve\"}}}\n"
+                + "{\"greeting\":\"Ciao!\",\"language\":\"Italiano\",\"country\":\"Italia\",\"native\":{\"language\":\"Italiensk\",\"country\":\"Italien\"},\"_links\":{\"self\":{\"href\":\"greetings/ciao\",\"title\":\"Italiensk Hilsen Ciao\"}}}\n";
+        response = client
+                .target(getConnectionString("/greetings/batch"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .post(Entity.entity(ndjson, "application/x-ndjson"));
+        assertEquals(200, response.getStatus());
+        msg = response.readEntity(String.class);
+        assertTrue(msg.contains("{\"index\":0,\"status\":200,\"href\":\"greetings/salve\""));
+        assertTrue(msg.contains("{\"index\":1,\"status\":201,\"href\":\"greetings/ciao\""));
+        response = client.target(getConnectionString("/greetings/ciao")).request().accept("application/hal+json").acceptLanguage("da").get(Response.class);
+        assertEquals(200, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings/batch"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .post(Entity.json("[{\"greeting\":"));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testExportAndImport() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client
+                .target(getConnectionString("/greetings/export"))
+                .request()
+                .accept("application/x-ndjson")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        assertEquals("application/x-ndjson", response.getMediaType().toString());
+        assertNotNull(response.getHeaderString("X-Log-Token"));
+        String export = response.readEntity(String.class);
+        assertTrue(export.contains("\"href\":\"/greetings/hallo\""));
+        assertTrue(export.contains("\"hreflang\":\"da\""));
+        int lines = export.split("\n").length;
+
+        Response again = client
+                .target(getConnectionString("/greetings/export"))
+                .request()
+                .accept("application/x-ndjson")
+                .get(Response.class);
+        assertEquals(200, again.getStatus());
+        assertEquals(export, again.readEntity(String.class));
+        EntityTag version = again.getEntityTag();
+        assertNotNull(version);
+
+        Response notModified = client
+                .target(getConnectionString("/greetings/export"))
+                .request()
+                .accept("application/x-ndjson")
+                .header("If-None-Match", version.toString())
+                .get(Response.class);
+        assertEquals(304, notModified.getStatus());
+        assertEquals(version, notModified.getEntityTag());
+
+        String greetings = export.replace("\"hreflang\":\"da\"", "\"hreflang\":\"sv\"")
+                + "{\"greeting\":\"Hallo!\",\"_links\":{\"self\":{\"href\":\"somewhere/else\"}}}\n";
+        response = client
+                .target(getConnectionString("/greetings/import"))
+                .request()
+                .accept("application/json")
+                .acceptLanguage("da")
+                .post(Entity.entity(greetings, "application/x-ndjson"));
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"read\":" + (lines + 1) + ",\"stored\":" + lines + ",\"rejected\":1"));
+
+        response = client
+                .target(getConnectionString("/greetings/export"))
+                .request()
+                .accept("application/x-ndjson")
+                .header("If-None-Match", version.toString())
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        assertNotEquals(version, response.getEntityTag());
+        response.close();
+
+        response = client.target(getConnectionString("/greetings/hallo")).request().accept("application/hal+json").acceptLanguage("sv").get(Response.class);
+        assertEquals(200, response.getStatus());
+
+        response = client
+                .target(getConnectionString("/greetings/import"))
+                .request()
+                .accept("application/json")
+                .post(Entity.entity("{\"greeting\":", "application/x-ndjson"));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testChanges() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client.target(getConnectionString("/greetings/changes")).request().accept("application/hal+json").get(Response.class);
+        assertEquals(200, response.getStatus());
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"resync\":true"));
+        assertTrue(msg.contains("{\"op\":\"add\",\"path\":\"/hallo_da\",\"value\":{\"_links\":{\"self\":{\"href\":\"/greetings/hallo\""));
+        String version = response.getHeaderString("etag");
+        String since = msg.substring(msg.indexOf("\"version\":\"") + 11, msg.indexOf("\"", msg.indexOf("\"version\":\"") + 11));
+
+        response = client.target(getConnectionString("/greetings/changes")).queryParam("since", since)
+                .request().accept("application/hal+json").header("If-None-Match", version).get(Response.class);
+        assertEquals(304, response.getStatus());
+
+        String greeting = "{\"greeting\":\"Servus!\",\"language\":\"Deutsch\",\"country\":\"Österreich\",\"native\":{\"language\":\"Tysk\",\"country\":\"Østrig\"},\"_links\":{\"self\":{\"href\":\"greetings/servus\",\"title\":\"Østrigsk Hilsen Servus\"}}}";
+        response = client.target(getConnectionString("/greetings")).request().accept("application/hal+json").acceptLanguage("at").post(Entity.json(greeting));
+        assertEquals(201, response.getStatus());
+        response = client.target(getConnectionString("/greetings/servus")).request().acceptLanguage("at")
+                .header("If-None-Match", response.getHeaderString("etag")).delete();
+        assertEquals(204, response.getStatus());
+        response = client.target(getConnectionString("/greetings")).request().accept("application/hal+json").acceptLanguage("at").post(Entity.json(greeting.replace("Servus!", "Grüß Gott!")));
+        assertEquals(201, response.getStatus());
+
+        response = client.target(getConnectionString("/greetings/changes")).queryParam("since", since)
+                .request().accept("application/hal+json").header("If-None-Match", version).get(Response.class);
+        assertEquals(200, response.getStatus());
+        msg = response.readEntity(String.class);
+        assertTrue(msg.startsWith("{\"since\":\"" + since + "\",\"version\":"));
+        assertTrue(msg.contains("\"resync\":false"));
+        assertTrue(msg.contains("{\"op\":\"add\",\"path\":\"/servus_at\",\"value\":{\"_links\":{\"self\":{\"href\":\"greetings/servus\""));
+        assertTrue(msg.contains("\"greeting\":\"Grüß Gott!\""));
+        assertFalse(msg.contains("Servus!"));
+        assertTrue(msg.contains("\"next\":{\"href\":\"/greetings/changes?since="));
+
+        response = client.target(getConnectionString("/greetings/changes")).queryParam("since", "xyz").request().accept("application/hal+json").get(Response.class);
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        Client client = ClientBuilder.newClient();
+        HttpURLConnection events = openEvents(null);
+        assertEquals(200, events.getResponseCode());
+        assertTrue(events.getContentType().startsWith("text/event-stream"));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(events.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("retry: 2000", readEvent(reader));
+
+        String greeting = "{\"greeting\":\"Cześć!\",\"language\":\"Polski\",\"country\":\"Polska\",\"native\":{\"language\":\"Polsk\",\"country\":\"Polen\"},\"_links\":{\"self\":{\"href\":\"greetings/czesc\",\"title\":\"Polsk Hilsen Cześć\"}}}";
+        Response response = client.target(getConnectionString("/greetings")).request().accept("application/hal+json").acceptLanguage("pl").post(Entity.json(greeting));
+        assertEquals(201, response.getStatus());
+        String created = readEvent(reader);
+        assertTrue(created.contains("\nevent: create\ndata: {\"op\":\"add\",\"path\":\"/czesc_pl\",\"value\":{\"_links\":{\"self\":{\"href\":\"greetings/czesc\""), created);
+        assertTrue(created.contains("\"greeting\":\"Cześć!\""));
+        String createdId = created.substring(4, created.indexOf('\n'));
+
+        response = client.target(getConnectionString("/greetings/czesc")).request().acceptLanguage("pl")
+                .header("If-None-Match", response.getHeaderString("etag")).delete();
+        assertEquals(204, response.getStatus());
+        String deleted = readEvent(reader);
+        assertTrue(deleted.endsWith("\nevent: delete\ndata: {\"op\":\"remove\",\"path\":\"/czesc_pl\"}"), deleted);
+        events.disconnect();
+
+        events = openEvents(createdId);
+        reader = new BufferedReader(new InputStreamReader(events.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("retry: 2000", readEvent(reader));
+        assertEquals(deleted, readEvent(reader));
+        events.disconnect();
+
+        events = openEvents("unknown");
+        reader = new BufferedReader(new InputStreamReader(events.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("retry: 2000", readEvent(reader));
+        assertTrue(readEvent(reader).contains("\nevent: resync\ndata: {\"version\":"));
+        assertTrue(readEvent(reader).contains("\nevent: create\ndata: {\"op\":\"add\""));
+        events.disconnect();
+    }
+
+    @Test
+    public void testSearch() {
+        Client client = ClientBuilder.newClient();
+
+        Response response = client
+                .target(getConnectionString("/greetings/search"))
+                .queryParam("q", "hallo")
+                .request()
+                .accept("application/hal+json")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        assertNotNull(response.getHeaderString("X-Log-Token"));
+        String msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"matches\":[{\"href\":\"/greetings/hallo\",\"hreflang\":\"da\""));
+        assertTrue(msg.contains("\"title\":\"Dansk Hilsen Hallo\""));
+
+        response = client
+                .target(getConnectionString("/greetings/search"))
+                .queryParam("q", "Hallo Danish")
+                .queryParam("limit", "1")
+                .request()
+                .accept("application/hal+json")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        msg = response.readEntity(String.class);
+        assertTrue(msg.contains("\"title\":\"Danish Greeting Hallo\""));
+        assertTrue(msg.contains("\"self\":{\"href\":\"/greetings/search?q=Hallo+Danish&offset=0&limit=1\"}"));
+
+        response = client
+                .target(getConnectionString("/greetings/search"))
+                .queryParam("q", "hallo")
+                .queryParam("limit", "1")
+                .request()
+                .accept("application/hal+json")
+                .get(Response.class);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("\"next\":{\"href\":\"/greetings/search?q=hallo&offset=1&limit=1\"}"));
+
+        response = client
+                .target(getConnectionString("/greetings/search"))
+                .request()
+                .accept("application/hal+json")
+                .get(Response.class);
+        assertEquals(400, response.getStatus());
+    }
+
     @AfterAll
     static void destroyClass() {
         CDI<Object> current = CDI.current();
         ((SeContainer) current).close();
     }
 
+    private HttpURLConnection openEvents(String lastEventId) throws IOException {
+        HttpURLConnection events = (HttpURLConnection) new URL(getConnectionString("/greetings/events")).openConnection();
+        events.setRequestProperty("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            events.setRequestProperty("Last-Event-ID", lastEventId);
+        }
+        events.setReadTimeout(5000);
+        return events;
+    }
+
+    private static String readEvent(BufferedReader reader) throws IOException {
+        StringBuilder event = new StringBuilder();
+        for (String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine()) {
+            event.append(event.length() == 0 ? "" : "\n").append(line);
+        }
+        return event.toString();
+    }
+
     private String getConnectionString(String path) {
         return "http://localhost:" + server.port() + path;
     }
@@ -0,0 +1,26 @@
+package com.examples.greeting;
+
+import java.io.OutputStream;
+
+/**
+ * Counts the lines and bytes written, so the output is never held in memory.
+ */
+final class LineCountingOutputStream extends OutputStream {
+    long lines;
+    long bytes;
+
+    @Override
+    public void write(int b) {
+        bytes++;
+        if (b == '\n') {
+            lines++;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            write(b[i]);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.examples.greeting;
+
+import com.examples.TimeOrderedTokenGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTokenProviderTest {
+
+    @Test
+    public void testReceivedTokenIsKept() {
+        LogTokenProvider provider = new LogTokenProvider("time-ordered");
+        assertEquals("received-token", provider.validateOrCreate("received-token"));
+        assertEquals(7, UUID.fromString(provider.validateOrCreate(null)).version());
+        assertEquals(7, UUID.fromString(provider.validateOrCreate("")).version());
+    }
+
+    @Test
+    public void testConfiguredGenerators() {
+        assertEquals(4, UUID.fromString(new LogTokenProvider("secure").validateOrCreate(null)).version());
+        assertEquals(7, UUID.fromString(new LogTokenProvider(TimeOrderedTokenGenerator.class.getName()).validateOrCreate(null)).version());
+        assertThrows(IllegalArgumentException.class, () -> new LogTokenProvider("java.lang.String"));
+        assertThrows(IllegalArgumentException.class, () -> new LogTokenProvider("nothing"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.examples.greeting;
+
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseTemplateTest {
+
+    @Test
+    public void testResponsesShareTheEncodedEntity() {
+        ResponseTemplate template = ResponseTemplate.of(Response.Status.NOT_FOUND, "application/hal+json", "{\"message\":\"Sorry!\"}");
+        Response first = template.build("token-1");
+        Response second = template.build("token-2");
+
+        assertEquals(404, first.getStatus());
+        assertEquals("application/hal+json", first.getMediaType().toString());
+        assertEquals("{\"message\":\"Sorry!\"}", new String((byte[]) first.getEntity(), StandardCharsets.UTF_8));
+        assertSame(first.getEntity(), second.getEntity());
+        assertEquals("token-1", first.getHeaderString("X-Log-Token"));
+        assertEquals("token-2", second.getHeaderString("X-Log-Token"));
+        assertNull(first.getHeaderString("Location"));
+    }
+
+    @Test
+    public void testLocationAndNoType() {
+        ResponseTemplate moved = ResponseTemplate.of(Response.Status.MOVED_PERMANENTLY, "application/hal+json", "{}").withLocation("/greetings/hallo");
+        assertEquals("/greetings/hallo", moved.build("token").getHeaderString("Location"));
+        Response notAcceptable = ResponseTemplate.of(Response.Status.NOT_ACCEPTABLE, null, "{}").builder().build();
+        assertEquals(406, notAcceptable.getStatus());
+        assertNull(notAcceptable.getMediaType());
+        assertNull(notAcceptable.getHeaderString("X-Log-Token"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.examples.patch;
+
+import com.examples.greeting.GreetingNativeRepresentation;
+import com.examples.greeting.GreetingRepresentation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.openapitools.jackson.dataformat.hal.HALLink;
+import io.openapitools.jackson.dataformat.hal.HALMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JSONPatchBenchmark {
+
+    private static final String PATCH = "[{\"op\":\"test\",\"path\":\"/language\",\"value\":\"Dansk\"},"
+            + "{\"op\":\"replace\",\"path\":\"/greeting\",\"value\":\"Halløj!\"},"
+            + "{\"op\":\"replace\",\"path\":\"/_links/self/title\",\"value\":\"Dansk Hilsen Halløj\"}]";
+
+    @Test
+    public void benchmarkPatchGreeting() throws Exception {
+        GreetingRepresentation stored = new GreetingRepresentation("Hallo!", "Dansk", "Danmark",
+                new GreetingNativeRepresentation("Dansk", "Danmark"),
+                new HALLink.Builder("greetings/hallo").title("Dansk Hilsen Hallo").hreflang("da").build());
+        ObjectMapper shared = new HALMapper();
+        ObjectReader patched = shared.readerFor(GreetingRepresentation.class);
+        JSONPatch patch = JSONPatch.parse(PATCH);
+        assertEquals("Halløj!", patched.<GreetingRepresentation>readValue(patch.apply(shared.valueToTree(stored))).getGreeting());
+
+        int rounds = 200_000;
+        long applied = averageNanos(rounds, () -> patch.apply(shared.valueToTree(stored)));
+        long parsedAndApplied = averageNanos(rounds, () -> patched.readValue(JSONPatch.parse(PATCH).apply(shared.valueToTree(stored))));
+        long mapperPerPatch = averageNanos(rounds / 20, () -> {
+            ObjectMapper mapper = new HALMapper();
+            return mapper.treeToValue(JSONPatch.parse(PATCH).apply(mapper.valueToTree(stored)), GreetingRepresentation.class);
+        });
+        System.out.println("Patching a greeting took " + applied + "ns applying a read patch, " + parsedAndApplied
+                + "ns reading and applying it with a shared mapper and " + mapperPerPatch + "ns with a mapper per patch");
+    }
+
+    private static long averageNanos(int rounds, Patching patching) throws Exception {
+        for (int i = 0; i < rounds; i++) {
+            patching.patch();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            patching.patch();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private interface Patching {
+        Object patch() throws Exception;
+    }
+}
@@ -0,0 +1,165 @@
+package com.examples.patch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JSONPatchTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testAddObjectMember() throws Exception {
+        assertPatched("{\"foo\":\"bar\"}",
+                "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\"}]",
+                "{\"baz\":\"qux\",\"foo\":\"bar\"}");
+    }
+
+    @Test
+    public void testAddArrayElement() throws Exception {
+        assertPatched("{\"foo\":[\"bar\",\"baz\"]}",
+                "[{\"op\":\"add\",\"path\":\"/foo/1\",\"value\":\"qux\"}]",
+                "{\"foo\":[\"bar\",\"qux\",\"baz\"]}");
+        assertPatched("{\"foo\":[\"bar\"]}",
+                "[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":[\"abc\",\"def\"]}]",
+                "{\"foo\":[\"bar\",[\"abc\",\"def\"]]}");
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        assertPatched("{\"baz\":\"qux\",\"foo\":\"bar\"}",
+                "[{\"op\":\"remove\",\"path\":\"/baz\"}]",
+                "{\"foo\":\"bar\"}");
+        assertPatched("{\"foo\":[\"bar\",\"qux\",\"baz\"]}",
+                "[{\"op\":\"remove\",\"path\":\"/foo/1\"}]",
+                "{\"foo\":[\"bar\",\"baz\"]}");
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        assertPatched("{\"baz\":\"qux\",\"foo\":\"bar\"}",
+                "[{\"op\":\"replace\",\"path\":\"/baz\",\"value\":\"boo\"}]",
+                "{\"baz\":\"boo\",\"foo\":\"bar\"}");
+        assertPatched("{\"foo\":[1,2,3]}",
+                "{\"op\":\"replace\",\"path\":\"/foo/2\",\"value\":{\"bar\":true}}",
+                "{\"foo\":[1,2,{\"bar\":true}]}");
+        assertPatched("{\"foo\":\"bar\"}",
+                "{\"op\":\"replace\",\"path\":\"\",\"value\":[null]}",
+                "[null]");
+    }
+
+    @Test
+    public void testMoveAndCopy() throws Exception {
+        assertPatched("{\"foo\":{\"bar\":\"baz\",\"waldo\":\"fred\"},\"qux\":{\"corge\":\"grault\"}}",
+                "[{\"op\":\"move\",\"from\":\"/foo/waldo\",\"path\":\"/qux/thud\"}]",
+                "{\"foo\":{\"bar\":\"baz\"},\"qux\":{\"corge\":\"grault\",\"thud\":\"fred\"}}");
+        assertPatched("{\"foo\":[\"all\",\"grass\",\"cows\",\"eat\"]}",
+                "[{\"op\":\"move\",\"from\":\"/foo/1\",\"path\":\"/foo/3\"}]",
+                "{\"foo\":[\"all\",\"cows\",\"eat\",\"grass\"]}");
+        assertPatched("{\"foo\":{\"bar\":[1]}}",
+                "[{\"op\":\"copy\",\"from\":\"/foo\",\"path\":\"/baz\"},{\"op\":\"add\",\"path\":\"/baz/bar/-\",\"value\":2}]",
+                "{\"foo\":{\"bar\":[1]},\"baz\":{\"bar\":[1,2]}}");
+    }
+
+    @Test
+    public void testMoveIntoItselfFails() throws Exception {
+        JSONPatch patch = JSONPatch.parse("[{\"op\":\"move\",\"from\":\"/foo\",\"path\":\"/foo/bar\"}]");
+        assertThrows(JSONPatchException.class, () -> patch.apply(json("{\"foo\":{}}")));
+    }
+
+    @Test
+    public void testEscapedPointers() throws Exception {
+        assertPatched("{\"a/b\":1,\"m~n\":2}",
+                "[{\"op\":\"test\",\"path\":\"/a~1b\",\"value\":1},{\"op\":\"remove\",\"path\":\"/m~0n\"}]",
+                "{\"a/b\":1}");
+    }
+
+    @Test
+    public void testPointersValidatedWhenReadAndShared() throws Exception {
+        JSONPatchException ex = assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"remove\",\"path\":\"/a~2b\"}"));
+        assertEquals("path /a~2b is not a json pointer, ~ must be followed by 0 or 1", ex.getMessage());
+        assertThrows(JSONPatchException.class, () -> JSONPatch.parse("{\"op\":\"copy\",\"from\":\"/a~\",\"path\":\"/b\"}"));
+        assertSame(JSONPatch.pointer("/_links/self/title"), JSONPatch.pointer("/_links/self/title"));
+    }
+
+    @Test
+    public void testPathWithoutLeadingSlash() throws Exception {
+        assertPatched("{\"language\":\"Dansk\"}",
+                "{\"op\":\"replace\",\"path\":\"language\",\"value\":\"Synnejysk\"}",
+                "{\"language\":\"Synnejysk\"}");
+    }
+
+    @Test
+    public void testTestComparesNumbersByValue() throws Exception {
+        assertPatched("{\"baz\":10,\"foo\":[\"a\",2,\"c\"]}",
+                "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":10.0},{\"op\":\"test\",\"path\":\"/foo\",\"value\":[\"a\",2,\"c\"]}]",
+                "{\"baz\":10,\"foo\":[\"a\",2,\"c\"]}");
+    }
+
+    @Test
+    public void testFailingTestStopsPatch() throws Exception {
+        JsonNode document = json("{\"baz\":\"qux\",\"foo\":\"bar\"}");
+        JSONPatch patch = JSONPatch.parse("[{\"op\":\"remove\",\"path\":\"/foo\"},"
+                + "{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"bar\"},"
+                + "{\"op\":\"add\",\"path\":\"/foo\",\"value\":\"never\"}]");
+        JSONPatchException ex = assertThrows(JSONPatchException.class, () -> patch.apply(document));
+        assertTrue(ex.isTestFailure());
+        assertEquals(json("{\"baz\":\"qux\",\"foo\":\"bar\"}"), document);
+    }
+
+    @Test
+    public void testFailingOperationLeavesDocument() throws Exception {
+        JsonNode document = json("{\"foo\":[\"bar\"]}");
+        JSONPatch patch = JSONPatch.parse("[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":\"baz\"},"
+                + "{\"op\":\"remove\",\"path\":\"/nonexisting\"}]");
+        JSONPatchException ex = assertThrows(JSONPatchException.class, () -> patch.apply(document));
+        assertFalse(ex.isTestFailure());
+        assertEquals("path /nonexisting does not exist", ex.getMessage());
+        assertEquals(json("{\"foo\":[\"bar\"]}"), document);
+    }
+
+    @Test
+    public void testInvalidTargets() throws Exception {
+        JsonNode document = json("{\"foo\":[\"bar\"],\"baz\":\"qux\"}");
+        assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"add\",\"path\":\"/foo/2\",\"value\":1}").apply(document));
+        assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"add\",\"path\":\"/foo/01\",\"value\":1}").apply(document));
+        assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"replace\",\"path\":\"/foo/1\",\"value\":1}").apply(document));
+        assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"replace\",\"path\":\"/baz/qux\",\"value\":1}").apply(document));
+        assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"add\",\"path\":\"/missing/child\",\"value\":1}").apply(document));
+    }
+
+    @Test
+    public void testInvalidOperations() {
+        JSONPatchException ex = assertThrows(JSONPatchException.class,
+                () -> JSONPatch.parse("{\"op\":\"someotherop\",\"path\":\"/language\",\"value\":\"x\"}"));
+        assertEquals("operation someotherop is not supported", ex.getMessage());
+        assertThrows(JSONPatchException.class, () -> JSONPatch.parse("{\"op\":\"add\",\"path\":\"/language\"}"));
+        assertThrows(JSONPatchException.class, () -> JSONPatch.parse("{\"op\":\"copy\",\"path\":\"/language\"}"));
+        assertThrows(JSONPatchException.class, () -> JSONPatch.parse("{\"op\":\"remove\"}"));
+        assertThrows(JSONPatchException.class, () -> JSONPatch.parse("\"replace\""));
+        assertThrows(IOException.class, () -> JSONPatch.parse("{\"operation\":\"replace\",\"path\":\"/language\"}"));
+    }
+
+    @Test
+    public void testNullValueIsAValue() throws Exception {
+        assertPatched("{}", "{\"op\":\"add\",\"path\":\"/foo\",\"value\":null}", "{\"foo\":null}");
+    }
+
+    private void assertPatched(String document, String patch, String expected) throws Exception {
+        assertEquals(json(expected), JSONPatch.parse(patch).apply(json(document)));
+    }
+
+    private JsonNode json(String json) throws IOException {
+        return mapper.readTree(json);
+    }
+}
@@ -5,108 +5,84 @@ import com.examples.patch.PatchInterceptor;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.junit.jupiter.api.Test;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.ReaderInterceptorContext;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class PatchInterceptorTest {
 
-    @Test
-    public void testGetStringJSON() throws IOException {
-        JSONPatchContainer jc = new JSONPatchContainer("replace", "language", "Tysk");
-        PatchInterceptor pi = new PatchInterceptor();
-        String input = jc.toString();
-        InputStream is = new ByteArrayInputStream(input.getBytes());
-        assertEquals(input, pi.getString(is));
-    }
+    private static final MediaType PATCH_JSON = new MediaType("application", "patch+json");
 
     @Test
-    public void testGetStringJsonString() throws IOException {
+    public void testReadJSONObject() throws Exception {
+        JSONPatchContainer jc = new JSONPatchContainer("replace", "language", "Tysk");
         PatchInterceptor pi = new PatchInterceptor();
-        String input = "{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"}";
-        InputStream is = new ByteArrayInputStream(input.getBytes());
-        assertEquals(input, pi.getString(is));
+        JSONPatch patch = pi.read(new ByteArrayInputStream(jc.toString().getBytes(StandardCharsets.UTF_8)), PATCH_JSON);
+        assertEquals(1, patch.getOperations().size());
+        assertEquals(jc.toString(), patch.getOperations().get(0).toString());
     }
 
     @Test
-    public void testGetStringJsonPrettyString() throws IOException {
+    public void testReadJSONArray() throws Exception {
         PatchInterceptor pi = new PatchInterceptor();
-        String input = "{\n\"op\":\"replace\",\n\"path\":\"/language\"\n,\"value\":\"German\"\n}";
-        InputStream is = new ByteArrayInputStream(input.getBytes());
-        String expected = "{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"}";
-        assertEquals(expected, pi.getString(is));
+        String input = "[{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"},"
+                + "{\"op\":\"move\",\"from\":\"/country\",\"path\":\"/native/country\"}]";
+        JSONPatch patch = pi.read(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), PATCH_JSON);
+        assertEquals(2, patch.getOperations().size());
+        assertEquals("German", patch.getOperations().get(0).getValue());
+        assertEquals("/country", patch.getOperations().get(1).getFrom());
     }
 
     @Test
-    public void testGetStringEmptyString() throws IOException {
+    public void testReadPrettyJSON() throws Exception {
         PatchInterceptor pi = new PatchInterceptor();
-        String input = "";
-        InputStream is = new ByteArrayInputStream(input.getBytes());
-        assertEquals(input, pi.getString(is));
+        String input = "[\n  {\n\"op\":\"replace\",\n\"path\":\"/language\"\n,\"value\":\"Ger\\nman\"\n}\n]\n";
+        JSONPatch patch = pi.read(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), PATCH_JSON);
+        assertEquals("Ger\nman", patch.getOperations().get(0).getValue());
     }
 
     @Test
-    public void testGetStringEmptyStringClosedStream() throws IOException {
+    public void testReadInCharsetOfMediaType() throws Exception {
         PatchInterceptor pi = new PatchInterceptor();
-        InputStream is = null;
-        try {
-            pi.getString(is);
-        } catch (NullPointerException npe) {
-            //expected
-        }
+        String input = "{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"Dänisch\"}";
+        MediaType latin1 = MediaType.valueOf("application/patch+json; charset=ISO-8859-1");
+        JSONPatch patch = pi.read(new ByteArrayInputStream(input.getBytes(StandardCharsets.ISO_8859_1)), latin1);
+        assertEquals("Dänisch", patch.getOperations().get(0).getValue());
+        assertThrows(JSONPatchException.class, () -> pi.read(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                MediaType.valueOf("application/patch+json; charset=nonexisting")));
     }
 
     @Test
-    public void testConvertJSONArrayInput() throws IOException {
+    public void testReadInvalidInput() {
         PatchInterceptor pi = new PatchInterceptor();
-        String input = "[{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"}]";
-        String result = pi.convertInput(input);
-        assertTrue(result.contains("replace"));
-        assertTrue(result.contains("language"));
-        assertTrue(result.contains("German"));
+        assertThrows(JSONPatchException.class, () -> pi.read(new ByteArrayInputStream(new byte[0]), PATCH_JSON));
+        assertThrows(JSONPatchException.class, () -> pi.read(new ByteArrayInputStream(
+                "\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"".getBytes(StandardCharsets.UTF_8)), PATCH_JSON));
+        assertThrows(JSONPatchException.class, () -> pi.read(new ByteArrayInputStream(
+                "[\"replace\"]".getBytes(StandardCharsets.UTF_8)), PATCH_JSON));
+        assertThrows(JsonProcessingException.class, () -> pi.read(new ByteArrayInputStream(
+                "not parsable".getBytes(StandardCharsets.UTF_8)), PATCH_JSON));
+        assertThrows(JsonProcessingException.class, () -> pi.read(new ByteArrayInputStream(
+                "{\"operation\":\"replace\",\"path\":\"/language\"}".getBytes(StandardCharsets.UTF_8)), PATCH_JSON));
     }
 
     @Test
-    public void testConvertJSONObjectInput() throws IOException {
-        PatchInterceptor pi = new PatchInterceptor();
-        String input = "{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"}";
-        String result = pi.convertInput(input);
-        assertTrue(result.contains("replace"));
-        assertTrue(result.contains("language"));
-        assertTrue(result.contains("German"));
+    public void testIsPatchMatchesTypeAndSubtype() {
+        assertTrue(PatchInterceptor.isPatch(PATCH_JSON));
+        assertTrue(PatchInterceptor.isPatch(MediaType.valueOf("application/patch+json; charset=UTF-8")));
+        assertTrue(PatchInterceptor.isPatch(MediaType.valueOf("Application/Patch+JSON")));
+        assertTrue(PatchInterceptor.isPatch(MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(PatchInterceptor.isPatch(MediaType.valueOf("application/merge-patch+json")));
+        assertFalse(PatchInterceptor.isPatch(MediaType.TEXT_PLAIN_TYPE));
+        assertFalse(PatchInterceptor.isPatch(null));
     }
 
-    @Test
-    public void testConvertNonJSONInput() throws IOException {
-        PatchInterceptor pi = new PatchInterceptor();
-        String input = "\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"";
-        try {
-            String result = pi.convertInput(input);
-            fail("should not pass non json");
-        } catch (JsonProcessingException jpe) {
-            //expected ecxeption
-        }
-    }   
-    
-    @Test
-    public void testGetAndConvertString() throws IOException {
-        JSONPatchContainer jc = new JSONPatchContainer("replace", "language", "Tysk");
-        PatchInterceptor pi = new PatchInterceptor();
-        String input = jc.toString();
-        InputStream is = new ByteArrayInputStream(input.getBytes());
-        assertEquals(input, pi.getString(is));
-        input = "[" + input +"]";
-        String result = pi.convertInput(input);
-        assertTrue(result.contains("replace"));
-        assertTrue(result.contains("language"));
-        assertTrue(result.contains("Tysk"));
-    }
-    
     @Test
     public void testAroundReadFromNotPatchContent() throws IOException {
         PatchInterceptor pi = new PatchInterceptor();
@@ -147,6 +123,27 @@ public class PatchInterceptorTest {
         verify(readerInterceptorContext,times(1)).proceed();
        }
 
-    
+    @Test
+    public void testAroundReadFromPatchOperations() throws IOException {
+        PatchInterceptor pi = new PatchInterceptor();
+        ReaderInterceptorContext readerInterceptorContext = mock(ReaderInterceptorContext.class);
+        doReturn(JSONPatch.class).when(readerInterceptorContext).getType();
+        when(readerInterceptorContext.getMediaType()).thenReturn(new MediaType("application", "patch+json"));
+        when(readerInterceptorContext.getInputStream())
+                .thenReturn(new ByteArrayInputStream("{\"op\":\"replace\",\"path\":\"/language\",\"value\":\"German\"}".getBytes("UTF8")));
+        Object patch = pi.aroundReadFrom(readerInterceptorContext);
+        assertEquals(1, ((JSONPatch) patch).getOperations().size());
+        verify(readerInterceptorContext, never()).proceed();
+    }
 
+    @Test
+    public void testAroundReadFromInvalidPatchOperations() throws IOException {
+        PatchInterceptor pi = new PatchInterceptor();
+        ReaderInterceptorContext readerInterceptorContext = mock(ReaderInterceptorContext.class);
+        doReturn(JSONPatch.class).when(readerInterceptorContext).getType();
+        when(readerInterceptorContext.getMediaType()).thenReturn(new MediaType("application", "patch+json"));
+        when(readerInterceptorContext.getInputStream()).thenReturn(new ByteArrayInputStream("not parsable".getBytes("UTF8")));
+        assertThrows(BadRequestException.class, () -> pi.aroundReadFrom(readerInterceptorContext));
+        verify(readerInterceptorContext, never()).proceed();
+    }
 }
@@ -0,0 +1,92 @@
+package io.helidon.webserver.jersey;
+
+import io.helidon.common.http.DataChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolBenchmark {
+
+    private static final int RESPONSE_SIZE = 4 * 1024 * 1024;
+    private static final int WRITE_SIZE = 8192;
+    private static final int RESPONSES = 50;
+
+    /**
+     * Allocation rate of writing large list responses, copying every chunk twice into new arrays as before and once
+     * into pooled buffers released when written.
+     */
+    @Test
+    public void benchmarkAllocationsOfLargeResponses() {
+        byte[] jersey = new byte[WRITE_SIZE];
+        BufferPool pool = new BufferPool(16 * 1024 * 1024, false);
+        long sink = 0;
+        for (int i = 0; i < RESPONSES / 10; i++) {
+            sink += copied(jersey) + pooled(pool, jersey);
+        }
+
+        long begin = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < RESPONSES; i++) {
+            sink += copied(jersey);
+        }
+        long copiedTime = System.nanoTime() - start;
+        long copiedBytes = allocatedBytes() - begin;
+
+        begin = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < RESPONSES; i++) {
+            sink += pooled(pool, jersey);
+        }
+        long pooledTime = System.nanoTime() - start;
+        long pooledBytes = allocatedBytes() - begin;
+
+        assertTrue(sink > 0);
+        System.out.println("Allocated for " + RESPONSES + " responses of " + RESPONSE_SIZE / 1024 + "KB: "
+                + copiedBytes / (1024 * 1024) + "MB in " + copiedTime / 1_000_000 + "ms copied twice, "
+                + pooledBytes / (1024 * 1024) + "MB in " + pooledTime / 1_000_000 + "ms pooled");
+    }
+
+    private static long copied(byte[] jersey) {
+        long written = 0;
+        try {
+            for (int i = 0; i < RESPONSE_SIZE / WRITE_SIZE; i++) {
+                ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                WritableByteChannel ch = Channels.newChannel(stream);
+                ch.write(ByteBuffer.wrap(jersey));
+                written += DataChunk.create(false, ByteBuffer.wrap(stream.toByteArray())).data().remaining();
+            }
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return written;
+    }
+
+    private static long pooled(BufferPool pool, byte[] jersey) {
+        long written = 0;
+        List<DataChunk> inFlight = new ArrayList<>();
+        for (int i = 0; i < RESPONSE_SIZE / WRITE_SIZE; i++) {
+            DataChunk chunk = pool.copy(false, ByteBuffer.wrap(jersey));
+            written += chunk.data().remaining();
+            inFlight.add(chunk);
+            if (inFlight.size() == 16) {
+                inFlight.forEach(DataChunk::release);
+                inFlight.clear();
+            }
+        }
+        inFlight.forEach(DataChunk::release);
+        return written;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,93 @@
+package io.helidon.webserver.jersey;
+
+import io.helidon.common.http.DataChunk;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+
+    private static final int RESPONSE_SIZE = 4 * 1024 * 1024;
+    private static final int WRITE_SIZE = 8192;
+
+    @Test
+    public void testChunkCopiedIntoSmallestFittingBuffer() {
+        BufferPool pool = new BufferPool(1024 * 1024, false);
+        byte[] jersey = "{\"greeting\":\"Hallo!\"}".getBytes();
+        DataChunk chunk = pool.copy(true, ByteBuffer.wrap(jersey));
+        jersey[2] = 'X';
+
+        assertTrue(chunk.flush());
+        assertEquals(BufferPool.MIN_SIZE, chunk.data().capacity());
+        assertEquals("{\"greeting\":\"Hallo!\"}", new String(chunk.bytes()));
+        assertEquals(BufferPool.MIN_SIZE * 2, pool.acquire(BufferPool.MIN_SIZE + 1).capacity());
+        assertEquals(BufferPool.MAX_SIZE, pool.acquire(BufferPool.MAX_SIZE).capacity());
+        assertThrows(IllegalArgumentException.class, () -> pool.acquire(BufferPool.MAX_SIZE + 1));
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        BufferPool pool = new BufferPool(1024 * 1024, true);
+        DataChunk chunk = pool.copy(false, ByteBuffer.wrap(new byte[100]));
+        ByteBuffer buffer = chunk.data();
+        assertTrue(buffer.isDirect());
+        chunk.release();
+        chunk.release();
+        assertEquals(BufferPool.MIN_SIZE, pool.getPooledBytes());
+
+        DataChunk next = pool.copy(false, ByteBuffer.wrap(new byte[200]));
+        assertSame(buffer, next.data());
+        assertEquals(200, next.data().remaining());
+        assertNotSame(buffer, pool.copy(false, ByteBuffer.wrap(new byte[200])).data());
+        assertEquals(2, pool.getAllocated());
+        assertEquals(1, pool.getReused());
+    }
+
+    @Test
+    public void testPoolKeepsNoMoreThanItsBytes() {
+        BufferPool pool = new BufferPool(BufferPool.MIN_SIZE, false);
+        ByteBuffer first = pool.acquire(10);
+        ByteBuffer second = pool.acquire(10);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(BufferPool.MIN_SIZE, pool.getPooledBytes());
+        assertSame(first, pool.acquire(10));
+        assertNotSame(second, pool.acquire(10));
+    }
+
+    @Test
+    public void testLargeResponsesReuseBuffers() {
+        byte[] jersey = new byte[WRITE_SIZE];
+        BufferPool pool = new BufferPool(16 * 1024 * 1024, false);
+        int responses = 5;
+        long written = 0;
+        for (int i = 0; i < responses; i++) {
+            written += pooled(pool, jersey);
+        }
+
+        int chunks = responses * RESPONSE_SIZE / WRITE_SIZE;
+        assertEquals((long) responses * RESPONSE_SIZE, written);
+        assertEquals(16, pool.getAllocated());
+        assertEquals(chunks - 16, pool.getReused());
+    }
+
+    private static long pooled(BufferPool pool, byte[] jersey) {
+        long written = 0;
+        List<DataChunk> inFlight = new ArrayList<>();
+        for (int i = 0; i < RESPONSE_SIZE / WRITE_SIZE; i++) {
+            DataChunk chunk = pool.copy(false, ByteBuffer.wrap(jersey));
+            written += chunk.data().remaining();
+            inFlight.add(chunk);
+            if (inFlight.size() == 16) {
+                inFlight.forEach(DataChunk::release);
+                inFlight.clear();
+            }
+        }
+        inFlight.forEach(DataChunk::release);
+        return written;
+    }
+}
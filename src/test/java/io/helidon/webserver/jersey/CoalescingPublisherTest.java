@@ -0,0 +1,86 @@
+package io.helidon.webserver.jersey;
+
+import io.helidon.common.reactive.Flow;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingPublisherTest {
+
+    @Test
+    public void testSmallWritesMergedIntoChunks() throws Exception {
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(16);
+        List<String> chunks = subscribe(publisher);
+        for (String fragment : new String[]{"{\"greeting\"", ":", "\"Hallo!\"", ",", "\"language\"", ":", "\"Dansk\"", "}"}) {
+            publisher.write(fragment.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("{\"greeting\":", "\"Hallo!\",", "\"language\":"), chunks);
+        publisher.close();
+        assertEquals(List.of("{\"greeting\":", "\"Hallo!\",", "\"language\":", "\"Dansk\"}"), chunks);
+    }
+
+    @Test
+    public void testFlushAndLargeWritesPublishPendingBytes() throws Exception {
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(16);
+        List<String> chunks = subscribe(publisher);
+        publisher.write('[');
+        publisher.flush();
+        publisher.write("{}".getBytes(StandardCharsets.UTF_8));
+        publisher.write("{\"greeting\":\"Hallo!\"}".getBytes(StandardCharsets.UTF_8));
+        publisher.write(']');
+        publisher.close();
+        assertEquals(List.of("[", "{}", "{\"greeting\":\"Hallo!\"}", "]"), chunks);
+    }
+
+    @Test
+    public void testEveryWritePublishedWhenNotCoalescing() throws Exception {
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(16);
+        publisher.coalesce(false);
+        List<String> chunks = subscribe(publisher);
+        publisher.write("data: Hallo!\n\n".getBytes(StandardCharsets.UTF_8));
+        publisher.write("data: Hej!\n\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("data: Hallo!\n\n", "data: Hej!\n\n"), chunks);
+    }
+
+    @Test
+    public void testLargeWritesPublishedInPooledPieces() throws Exception {
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(16);
+        List<String> chunks = subscribe(publisher);
+        publisher.write(new byte[BufferPool.MAX_SIZE * 2 + 1]);
+        assertEquals(3, chunks.size());
+        assertEquals(BufferPool.MAX_SIZE, chunks.get(0).length());
+        assertEquals(1, chunks.get(2).length());
+    }
+
+    private static List<String> subscribe(ResponseWriter.CoalescingPublisher publisher) {
+        List<String> chunks = new ArrayList<>();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] copy = new byte[item.remaining()];
+                item.get(copy);
+                chunks.add(new String(copy, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail("publishing failed", throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return chunks;
+    }
+}
@@ -0,0 +1,127 @@
+package io.helidon.webserver.jersey;
+
+import io.helidon.common.http.DataChunk;
+import io.helidon.common.reactive.Flow;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileRegionPublisherTest {
+
+    @Test
+    public void testFilePublishedAsMappedRegionsWhileSent() throws Exception {
+        byte[] content = new byte[4096 * 3 + 100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.createTempFile("regions-", ".bin");
+        try {
+            Files.write(file, content);
+            Recorder recorder = new Recorder();
+            new FileRegionPublisher(open(file), content.length, 4096, 8192).subscribe(recorder);
+            recorder.subscription.request(Long.MAX_VALUE);
+
+            assertEquals(2, recorder.chunks.size());
+            assertTrue(recorder.chunks.get(0).data().isDirect());
+            assertTrue(recorder.chunks.get(0).flush());
+            recorder.chunks.get(0).release();
+            recorder.chunks.get(0).release();
+            assertEquals(3, recorder.chunks.size());
+            assertFalse(recorder.completed);
+
+            recorder.chunks.get(1).release();
+            assertEquals(4, recorder.chunks.size());
+            assertEquals(100, recorder.chunks.get(3).data().remaining());
+            assertTrue(recorder.completed);
+            assertNull(recorder.error);
+
+            ByteArrayOutputStream sent = new ByteArrayOutputStream();
+            for (DataChunk chunk : recorder.chunks) {
+                sent.write(chunk.bytes());
+            }
+            assertArrayEquals(content, sent.toByteArray());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFileDeletedAfterOpenIsPublishedOnce() throws Exception {
+        Path file = Files.createTempFile("regions-", ".bin");
+        Files.write(file, new byte[100]);
+        FileChannel channel = open(file);
+        FileRegionPublisher publisher = new FileRegionPublisher(channel, 100, 4096, 8192);
+        Files.delete(file);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(1);
+        assertEquals(1, recorder.chunks.size());
+        assertEquals(100, recorder.chunks.get(0).data().remaining());
+        recorder.subscription.request(1);
+        assertTrue(recorder.completed);
+        assertNull(recorder.error);
+        assertFalse(channel.isOpen());
+
+        Recorder second = new Recorder();
+        publisher.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testNothingPublishedAfterCancel() throws Exception {
+        Path file = Files.createTempFile("regions-", ".bin");
+        try {
+            Files.write(file, new byte[10]);
+            Recorder recorder = new Recorder();
+            FileChannel channel = open(file);
+            new FileRegionPublisher(channel, 10, 4096, 8192).subscribe(recorder);
+            recorder.subscription.cancel();
+            recorder.subscription.request(1);
+            assertTrue(recorder.chunks.isEmpty());
+            assertFalse(recorder.completed);
+            assertFalse(channel.isOpen());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    private static final class Recorder implements Flow.Subscriber<DataChunk> {
+        private final List<DataChunk> chunks = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(DataChunk item) {
+            chunks.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.helidon.webserver.jersey;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseWriterTest {
+
+    @Test
+    public void testSuspendedResponseTimesOut() throws Exception {
+        ResponseWriter writer = new ResponseWriter(null, null, null);
+        CountDownLatch timedOut = new CountDownLatch(1);
+        long start = System.nanoTime();
+        assertTrue(writer.suspend(200, TimeUnit.MILLISECONDS, w -> {
+            assertSame(writer, w);
+            timedOut.countDown();
+        }));
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testSuspendTimeoutExtended() throws Exception {
+        ResponseWriter writer = new ResponseWriter(null, null, null);
+        assertThrows(IllegalStateException.class, () -> writer.setSuspendTimeout(1, TimeUnit.SECONDS));
+
+        CountDownLatch timedOut = new CountDownLatch(1);
+        assertTrue(writer.suspend(0, TimeUnit.MILLISECONDS, w -> timedOut.countDown()));
+        assertFalse(timedOut.await(300, TimeUnit.MILLISECONDS));
+
+        writer.setSuspendTimeout(100, TimeUnit.MILLISECONDS);
+        writer.setSuspendTimeout(600, TimeUnit.MILLISECONDS);
+        assertFalse(timedOut.await(400, TimeUnit.MILLISECONDS));
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNoTimeoutAfterCommit() throws Exception {
+        ResponseWriter writer = new ResponseWriter(null, null, null);
+        AtomicInteger timeouts = new AtomicInteger();
+        assertTrue(writer.suspend(100, TimeUnit.MILLISECONDS, w -> timeouts.incrementAndGet()));
+        writer.commit();
+        Thread.sleep(400);
+        assertEquals(0, timeouts.get());
+        assertFalse(writer.suspend(100, TimeUnit.MILLISECONDS, w -> timeouts.incrementAndGet()));
+    }
+}
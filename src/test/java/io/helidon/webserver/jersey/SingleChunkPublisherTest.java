@@ -0,0 +1,72 @@
+package io.helidon.webserver.jersey;
+
+import io.helidon.common.http.DataChunk;
+import io.helidon.common.reactive.Flow;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleChunkPublisherTest {
+
+    @Test
+    public void testChunkPublishedOnceOnDemand() {
+        DataChunk chunk = DataChunk.create("{\"greeting\":\"Hallo!\"}".getBytes());
+        SingleChunkPublisher publisher = new SingleChunkPublisher(chunk);
+        List<Object> signals = new ArrayList<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        publisher.subscribe(recorder(signals, subscription));
+
+        assertEquals(List.of("subscribed"), signals);
+        subscription[0].request(1);
+        subscription[0].request(1);
+        assertEquals(List.of("subscribed", chunk, "complete"), signals);
+
+        List<Object> second = new ArrayList<>();
+        publisher.subscribe(recorder(second, new Flow.Subscription[1]));
+        assertEquals("subscribed", second.get(0));
+        assertTrue(second.get(1) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testNothingPublishedWhenCancelledOrRequestedWrongly() {
+        List<Object> signals = new ArrayList<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        new SingleChunkPublisher(DataChunk.create(new byte[1])).subscribe(recorder(signals, subscription));
+        subscription[0].cancel();
+        subscription[0].request(1);
+        assertEquals(List.of("subscribed"), signals);
+
+        List<Object> invalid = new ArrayList<>();
+        new SingleChunkPublisher(DataChunk.create(new byte[1])).subscribe(recorder(invalid, subscription));
+        subscription[0].request(0);
+        assertTrue(invalid.get(1) instanceof IllegalArgumentException);
+    }
+
+    private static Flow.Subscriber<DataChunk> recorder(List<Object> signals, Flow.Subscription[] subscription) {
+        return new Flow.Subscriber<DataChunk>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                signals.add("subscribed");
+            }
+
+            @Override
+            public void onNext(DataChunk item) {
+                signals.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package io.helidon.webserver.jersey;
+
+import io.helidon.common.reactive.Flow;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteWindowTest {
+
+    @Test
+    public void testWritesWaitFromHighToLowWatermark() throws Exception {
+        WriteWindow window = new WriteWindow(100, 40);
+        window.reserve(60);
+        window.reserve(60);
+        assertEquals(120, window.getInFlight());
+
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            started.countDown();
+            reserve(window, 10);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS));
+        window.released(60);
+        assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS));
+        window.released(30);
+        writer.get(5, TimeUnit.SECONDS);
+
+        assertEquals(40, window.getInFlight());
+        assertTrue(window.getWaitedNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testClosedWindowNeverWaits() throws Exception {
+        WriteWindow window = new WriteWindow(10, 0);
+        window.reserve(10);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> reserve(window, 10));
+        assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS));
+        window.close();
+        writer.get(5, TimeUnit.SECONDS);
+        window.reserve(10);
+        assertEquals(30, window.getInFlight());
+        assertThrows(IllegalArgumentException.class, () -> new WriteWindow(10, 11));
+    }
+
+    @Test
+    public void testPublisherWaitsForChunksToBeSent() throws Exception {
+        WriteWindow window = new WriteWindow(16, 0);
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(8, window);
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        publisher.write(new byte[16]);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                publisher.write(new byte[16]);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS));
+        window.released(16);
+        writer.get(5, TimeUnit.SECONDS);
+        assertEquals(16, window.getInFlight());
+    }
+
+    @Test
+    public void testChunkFillingWindowIsFlushed() throws Exception {
+        WriteWindow window = new WriteWindow(16, 0);
+        assertFalse(window.reserve(8));
+        assertTrue(window.reserve(8));
+
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(8, new WriteWindow(16, 0));
+        List<Boolean> flushed = new ArrayList<>();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                flushed.add(publisher.isFlushing());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        publisher.write(new byte[8]);
+        publisher.write(new byte[8]);
+        assertEquals(List.of(false, true), flushed);
+        assertFalse(publisher.isFlushing());
+    }
+
+    @Test
+    public void testWriteTimesOutWhenClientStopsReading() throws Exception {
+        WriteWindow window = new WriteWindow(10, 0, 200);
+        window.reserve(10);
+        long start = System.nanoTime();
+        assertThrows(SocketTimeoutException.class, () -> window.reserve(10));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(10, window.getInFlight());
+
+        window.released(10);
+        assertFalse(window.reserve(5));
+        assertThrows(IllegalArgumentException.class, () -> new WriteWindow(10, 0, -1));
+    }
+
+    @Test
+    public void testEventWritesFailInsteadOfWaiting() throws Exception {
+        WriteWindow window = new WriteWindow(16, 8);
+        assertFalse(window.reserveNow(8));
+        assertTrue(window.reserveNow(8));
+        assertThrows(IOException.class, () -> window.reserveNow(1));
+        window.released(4);
+        assertThrows(IOException.class, () -> window.reserveNow(1));
+        window.released(4);
+        assertFalse(window.reserveNow(1));
+
+        ResponseWriter.CoalescingPublisher publisher = new ResponseWriter.CoalescingPublisher(8, new WriteWindow(16, 0));
+        publisher.coalesce(false);
+        publisher.waitForWindow(false);
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        publisher.write(new byte[16]);
+        assertThrows(IOException.class, () -> publisher.write(new byte[1]));
+    }
+
+    private static void reserve(WriteWindow window, int bytes) {
+        try {
+            window.reserve(bytes);
+        } catch (InterruptedIOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}